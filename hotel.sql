@@ -36,9 +36,22 @@ CREATE TABLE client (
 	cli_prenom VARCHAR(50),
 	cli_adresse VARCHAR(50),
 	cli_ville VARCHAR(50),
+	cli_version INT NOT NULL DEFAULT 0,
 	PRIMARY KEY (cli_id)
 );
 
+CREATE INDEX client_nom ON client (cli_nom, cli_id);
+CREATE INDEX client_prenom ON client (cli_prenom, cli_id);
+CREATE INDEX client_ville ON client (cli_ville, cli_id);
+
+CREATE TABLE client_change (
+	chg_id BIGINT NOT NULL AUTO_INCREMENT,
+	chg_cli_id INT NOT NULL,
+	chg_operation CHAR(1) NOT NULL,
+	chg_date TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+	PRIMARY KEY (chg_id)
+);
+
 CREATE TABLE reservation (
 	res_id INT NOT NULL AUTO_INCREMENT,
 	res_cha_id INT NOT NULL ,
@@ -146,3 +159,6 @@ INSERT INTO reservation (res_cha_id, res_cli_id, res_date, res_date_debut, res_d
 INSERT INTO reservation (res_cha_id, res_cli_id, res_date, res_date_debut, res_date_fin, res_prix, res_arrhes) VALUES (4, 6, '2017-01-10', '2017-07-01', '2017-07-15', 500, 80);
 INSERT INTO reservation (res_cha_id, res_cli_id, res_date, res_date_debut, res_date_fin, res_prix, res_arrhes) VALUES (4, 1, '2017-01-10', '2017-07-01', '2017-07-15', 40, 0);
 
+CREATE TRIGGER client_insert AFTER INSERT ON client FOR EACH ROW INSERT INTO client_change (chg_cli_id, chg_operation) VALUES (NEW.cli_id, 'I');
+CREATE TRIGGER client_update AFTER UPDATE ON client FOR EACH ROW INSERT INTO client_change (chg_cli_id, chg_operation) VALUES (NEW.cli_id, 'U');
+CREATE TRIGGER client_delete AFTER DELETE ON client FOR EACH ROW INSERT INTO client_change (chg_cli_id, chg_operation) VALUES (OLD.cli_id, 'D');
@@ -0,0 +1,120 @@
+package org.afpa.controllers;
+
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.Callback;
+import org.afpa.dal.models.Client;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work the client TableView does on its model when it scrolls and when a row is edited, over a million
+ * rows
+ * <p>
+ * Scrolling asks the cell value factories for every visible cell of the new viewport, editing replaces a row or
+ * updates its properties while the visible cells observe them. The benchmark drives the model without a stage so it
+ * runs headless, the pixels drawn by the skin are the same for both factories and left out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClientTableBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int VIEWPORT = 30;
+
+    private final Callback<CellDataFeatures<Client, String>, ObservableValue<String>> reflectiveFirstName = new PropertyValueFactory<>("firstName");
+    private final Callback<CellDataFeatures<Client, String>, ObservableValue<String>> reflectiveLastName = new PropertyValueFactory<>("lastName");
+    private final Callback<CellDataFeatures<Client, String>, ObservableValue<String>> typedFirstName = cell -> cell.getValue() == null ? null : cell.getValue().firstNameProperty();
+    private final Callback<CellDataFeatures<Client, String>, ObservableValue<String>> typedLastName = cell -> cell.getValue() == null ? null : cell.getValue().lastNameProperty();
+
+    private ObservableList<Client> rows;
+
+    @Setup
+    public void setUp() {
+        List<Client> clients = new ArrayList<>(ROWS);
+
+        for (int i = 1; i <= ROWS; i++) {
+            clients.add(new Client(i + " rue du tableau", "Ville" + i % 100, "Prenom" + i, i, "Nom" + i));
+        }
+
+        rows = FXCollections.observableArrayList(clients);
+
+        // Stands for the TableView, which rebuilds its cells on every change of its items
+        rows.addListener((ListChangeListener<Client>) change -> {
+            while (change.next()) {
+                change.getFrom();
+            }
+        });
+    }
+
+    /**
+     * Scrolls to a random viewport, the cells resolving the getters by reflection
+     */
+    @Benchmark
+    public void scrollReflective(Blackhole blackhole) {
+        scroll(blackhole, reflectiveFirstName, reflectiveLastName);
+    }
+
+    /**
+     * Scrolls to a random viewport, the cells reading the properties directly
+     */
+    @Benchmark
+    public void scrollTyped(Blackhole blackhole) {
+        scroll(blackhole, typedFirstName, typedLastName);
+    }
+
+    /**
+     * Edits a row by replacing it in the list, which the TableView reports as a removal and an addition
+     */
+    @Benchmark
+    public Client editByReplacing() {
+        int index = ThreadLocalRandom.current().nextInt(ROWS);
+        Client edited = new Client(rows.get(index));
+
+        edited.setFirstName("Modifié");
+
+        return rows.set(index, edited);
+    }
+
+    /**
+     * Edits a row in place through its properties, only the cells observing them are notified
+     */
+    @Benchmark
+    public Client editInPlace() {
+        int index = ThreadLocalRandom.current().nextInt(ROWS);
+        Client row = rows.get(index);
+        Client edited = new Client(row);
+
+        edited.setFirstName("Modifié");
+
+        // The visible cells observe the properties of their row
+        row.firstNameProperty();
+        row.copy(edited);
+
+        return row;
+    }
+
+    private void scroll(Blackhole blackhole, Callback<CellDataFeatures<Client, String>, ObservableValue<String>> firstName,
+                        Callback<CellDataFeatures<Client, String>, ObservableValue<String>> lastName) {
+        int top = ThreadLocalRandom.current().nextInt(ROWS - VIEWPORT);
+
+        for (int i = top; i < top + VIEWPORT; i++) {
+            CellDataFeatures<Client, String> cell = new CellDataFeatures<>(null, null, rows.get(i));
+
+            blackhole.consume(firstName.call(cell).getValue());
+            blackhole.consume(lastName.call(cell).getValue());
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.afpa.dal;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.afpa.dal.shared.UnitOfWork;
+import org.h2.api.Trigger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * An in-process H2 database standing in for MariaDB, loaded from hotel.sql
+ * <p>
+ * Each instance is a new private database, so benchmarks can run offline and in parallel. The triggers of hotel.sql
+ * are replaced by {@link ClientChangeTrigger}, so the change log of the clients fills up as with MariaDB.
+ */
+public final class EmbeddedHotelDatabase implements AutoCloseable {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    // The triggers of hotel.sql, whose MariaDB bodies H2 can't run
+    private static final Pattern TRIGGER = Pattern.compile("CREATE TRIGGER (\\w+) AFTER (INSERT|UPDATE|DELETE) ON client .*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final Connection connection;
+    private final String url;
+    private HikariDataSource pool;
+
+    private EmbeddedHotelDatabase(String url) throws SQLException {
+        this.url = url;
+        this.connection = DriverManager.getConnection(url, "sa", "");
+    }
+
+    /**
+     * Creates a database from hotel.sql then fills the client table up to the given size
+     *
+     * @param clients The number of clients the table must hold
+     * @return The database
+     * @throws SQLException If any database error occurs
+     * @throws IOException  If hotel.sql can't be read
+     */
+    public static EmbeddedHotelDatabase create(int clients) throws SQLException, IOException {
+        return create(clients, 0);
+    }
+
+    /**
+     * Creates a database from hotel.sql, fills the client table up to the given size and books rooms for the
+     * generated clients
+     *
+     * @param clients      The number of clients the table must hold
+     * @param reservations The number of reservations of each generated client
+     * @return The database
+     * @throws SQLException If any database error occurs
+     * @throws IOException  If hotel.sql can't be read
+     */
+    public static EmbeddedHotelDatabase create(int clients, int reservations) throws SQLException, IOException {
+        EmbeddedHotelDatabase database = new EmbeddedHotelDatabase(
+                "jdbc:h2:mem:hotel" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+        database.load();
+
+        int existing = database.fill(clients);
+
+        database.book(existing, reservations);
+
+        // The DAOs commit by themselves like with the datasource.properties configuration
+        database.connection.setAutoCommit(false);
+
+        return database;
+    }
+
+    /**
+     * @return The connection to the database, which does not auto commit
+     */
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Opens another connection to the same database
+     *
+     * @return The new connection, which does not auto commit
+     * @throws SQLException If any database error occurs
+     */
+    public Connection newConnection() throws SQLException {
+        Connection other = DriverManager.getConnection(url, "sa", "");
+
+        other.setAutoCommit(false);
+
+        return other;
+    }
+
+    /**
+     * Returns a unit of work lending the connections of a pool over the database, like the application does
+     *
+     * @param poolSize The maximum number of connections of the pool
+     * @return The unit of work, its pool is closed with the database
+     */
+    public UnitOfWork unitOfWork(int poolSize) {
+        if (pool == null) {
+            HikariConfig config = new HikariConfig();
+
+            config.setAutoCommit(false);
+            config.setJdbcUrl(url);
+            config.setMaximumPoolSize(poolSize);
+            config.setPassword("");
+            config.setUsername("sa");
+
+            pool = new HikariDataSource(config);
+        }
+
+        return new UnitOfWork(pool);
+    }
+
+    /**
+     * @return The JDBC url of the database
+     */
+    public String url() {
+        return url;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws SQLException {
+        if (pool != null) pool.close();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    /**
+     * Runs the statements of hotel.sql, but the ones selecting the database which H2 does not need, with the triggers
+     * calling {@link ClientChangeTrigger}
+     */
+    private void load() throws SQLException, IOException {
+        String script;
+
+        try (InputStream in = EmbeddedHotelDatabase.class.getResourceAsStream("/hotel.sql")) {
+            if (in == null) throw new IOException("hotel.sql is missing from the classpath");
+
+            script = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines().collect(Collectors.joining("\n"));
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : script.split(";\\s*\n")) {
+                String trimmed = sql.trim();
+                String upper = trimmed.toUpperCase(Locale.ROOT);
+
+                if (trimmed.isEmpty() || upper.startsWith("DROP DATABASE") || upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")) {
+                    continue;
+                }
+
+                Matcher trigger = TRIGGER.matcher(trimmed);
+
+                // H2 triggers are Java classes
+                if (trigger.matches()) {
+                    statement.execute("CREATE TRIGGER " + trigger.group(1) + " AFTER " + trigger.group(2)
+                            + " ON client FOR EACH ROW CALL \"" + ClientChangeTrigger.class.getName() + "\"");
+
+                    continue;
+                }
+
+                statement.execute(trimmed.endsWith(";") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+            }
+        }
+    }
+
+    /**
+     * Inserts generated clients until the table holds the given number of rows
+     *
+     * @return The number of clients loaded from hotel.sql
+     */
+    private int fill(int clients) throws SQLException {
+        int existing;
+
+        try (Statement statement = connection.createStatement();
+             java.sql.ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM client")) {
+            rs.next();
+            existing = rs.getInt(1);
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO client(cli_nom, cli_prenom, cli_adresse, cli_ville) VALUES (?,?,?,?)")) {
+            for (int i = existing; i < clients; i++) {
+                ps.setString(1, "Nom" + i);
+                ps.setString(2, "Prenom" + i);
+                ps.setString(3, i + " rue du benchmark");
+                ps.setString(4, "Ville" + i % 100);
+                ps.addBatch();
+
+                if (i % 1000 == 999) ps.executeBatch();
+            }
+
+            ps.executeBatch();
+        }
+
+        return existing;
+    }
+
+    /**
+     * Books rooms of hotel.sql for each generated client
+     */
+    private void book(int existing, int reservations) throws SQLException {
+        if (reservations <= 0) return;
+
+        int rooms;
+
+        try (Statement statement = connection.createStatement();
+             java.sql.ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM chambre")) {
+            rs.next();
+            rooms = rs.getInt(1);
+        }
+
+        try (Statement statement = connection.createStatement();
+             java.sql.ResultSet ids = statement.executeQuery("SELECT cli_id FROM client ORDER BY cli_id OFFSET " + existing + " ROWS");
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO reservation (res_cha_id, res_cli_id, res_date, res_date_debut, res_date_fin, res_prix, res_arrhes) VALUES (?, ?, '2020-01-10', '2020-07-01', '2020-07-15', ?, ?)")) {
+            int count = 0;
+
+            while (ids.next()) {
+                int id = ids.getInt(1);
+
+                for (int i = 0; i < reservations; i++) {
+                    ps.setInt(1, 1 + (id * reservations + i) % rooms);
+                    ps.setInt(2, id);
+                    ps.setInt(3, 100 + id % 1000);
+                    ps.setInt(4, 50);
+                    ps.addBatch();
+
+                    if (++count % 1000 == 0) ps.executeBatch();
+                }
+            }
+
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Logs the writes of the clients into client_change, like the triggers of hotel.sql do on MariaDB
+     */
+    public static final class ClientChangeTrigger implements Trigger {
+        private String operation;
+
+        @Override
+        public void init(Connection connection, String schema, String trigger, String table, boolean before, int type) {
+            operation = type == DELETE ? "D" : type == UPDATE ? "U" : "I";
+        }
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO client_change (chg_cli_id, chg_operation) VALUES (?, ?)")) {
+                // cli_id is the first column
+                ps.setObject(1, (newRow == null ? oldRow : newRow)[0]);
+                ps.setString(2, operation);
+                ps.executeUpdate();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+}
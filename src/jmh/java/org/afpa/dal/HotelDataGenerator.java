@@ -0,0 +1,331 @@
+package org.afpa.dal;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.afpa.dal.models.Client;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Fills the hotel schema with realistic hotels, rooms, clients and reservations, with batched inserts
+ * <p>
+ * The names, streets and cities are drawn from short lists with a skewed distribution, a few of them being much more
+ * frequent than the others like in a real client base, so the indexes have the selectivity they would have in
+ * production. The same seed generates the same rows. Rows are appended to the tables, reload hotel.sql first for a
+ * reproducible database.
+ * <p>
+ * Fill the local database of datasource.properties with {@code ./gradlew generateData -Pgenerate.clients=2000000},
+ * set with the system properties:
+ * <ul>
+ * <li>{@code generate.clients}: the clients to insert, 1000000 by default</li>
+ * <li>{@code generate.hotels} and {@code generate.rooms}: the hotels to insert and the rooms of each, 50 and 40 by
+ * default</li>
+ * <li>{@code generate.reservations}: the mean number of reservations of each inserted client, 2 by default</li>
+ * <li>{@code generate.seed}: the seed of the rows, 1 by default</li>
+ * </ul>
+ * On MariaDB the client trigger also logs a change per inserted client.
+ */
+public final class HotelDataGenerator {
+    /**
+     * The rows inserted per batch, each batch being committed
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    private static final String[] CITIES = {"Paris", "Marseille", "Lyon", "Toulouse", "Nice", "Nantes", "Strasbourg",
+            "Montpellier", "Bordeaux", "Lille", "Rennes", "Reims", "Le Havre", "Saint-Étienne", "Toulon", "Grenoble",
+            "Dijon", "Angers", "Nîmes", "Villeurbanne", "Clermont-Ferrand", "Le Mans", "Aix-en-Provence", "Brest",
+            "Tours", "Amiens", "Limoges", "Annecy", "Perpignan", "Boulogne-Billancourt", "Metz", "Besançon", "Orléans",
+            "Rouen", "Mulhouse", "Caen", "Nancy", "Argenteuil", "Roubaix", "Tourcoing", "Avignon", "Poitiers", "Pau"};
+    private static final String[] FIRST_NAMES = {"Marie", "Jean", "Pierre", "Michel", "Nathalie", "Isabelle", "Philippe",
+            "Sylvie", "Catherine", "Alain", "Nicolas", "Christophe", "Patrick", "Sophie", "Stéphane", "Sandrine",
+            "Julien", "Céline", "Thomas", "Camille", "Léa", "Manon", "Chloé", "Hugo", "Lucas", "Louis", "Emma", "Zoé",
+            "Gabriel", "Arthur", "Jade", "Inès", "Théo", "Mathis", "Léna", "Noah", "Anaïs", "Benoît", "Hélène", "Aurélie"};
+    private static final String[] LAST_NAMES = {"Martin", "Bernard", "Thomas", "Petit", "Robert", "Richard", "Durand",
+            "Dubois", "Moreau", "Laurent", "Simon", "Michel", "Lefebvre", "Leroy", "Roux", "David", "Bertrand", "Morel",
+            "Fournier", "Girard", "Bonnet", "Dupont", "Lambert", "Fontaine", "Rousseau", "Vincent", "Muller", "Lefèvre",
+            "Faure", "André", "Mercier", "Blanc", "Guérin", "Boyer", "Garnier", "Chevalier", "François", "Legrand",
+            "Gauthier", "Garcia", "Perrin", "Robin", "Clément", "Morin", "Nicolas", "Henry", "Roussel", "Mathieu",
+            "Gautier", "Masson", "Marchand", "Duval", "Denis", "Dumont", "Marie", "Lemaire", "Noël", "Meyer", "Dufour",
+            "Meunier", "Brun", "Blanchard", "Giraud", "Joly", "Rivière", "Lucas", "Brunet", "Gaillard", "Barbier"};
+    private static final String[] STREETS = {"de la République", "Victor Hugo", "de la Gare", "Jean Jaurès",
+            "du Général de Gaulle", "Pasteur", "de l'Église", "des Écoles", "du Moulin", "Jules Ferry", "de la Mairie",
+            "des Lilas", "du Stade", "de la Paix", "Gambetta", "Voltaire", "des Tilleuls", "du Château", "Carnot",
+            "de Verdun", "de la Liberté", "des Acacias", "du Port", "Émile Zola", "des Roses", "Saint-Martin"};
+    private static final String[] STREET_TYPES = {"rue", "rue", "rue", "avenue", "boulevard", "place", "impasse", "allée"};
+    private static final LocalDate FIRST_BOOKING = LocalDate.of(2015, 1, 1);
+
+    private final int batchSize;
+    private final SplittableRandom random;
+
+    /**
+     * Creates a generator of {@value #BATCH_SIZE} rows per batch
+     *
+     * @param seed The seed of the generated rows
+     */
+    public HotelDataGenerator(long seed) {
+        this(seed, BATCH_SIZE);
+    }
+
+    /**
+     * Primary constructor
+     *
+     * @param seed      The seed of the generated rows
+     * @param batchSize The rows inserted per batch
+     */
+    public HotelDataGenerator(long seed, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("The batch size must be positive");
+
+        this.batchSize = batchSize;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int clients = Integer.getInteger("generate.clients", 1_000_000);
+        int hotels = Integer.getInteger("generate.hotels", 50);
+        int rooms = Integer.getInteger("generate.rooms", 40);
+        int reservations = Integer.getInteger("generate.reservations", 2);
+        HotelDataGenerator generator = new HotelDataGenerator(Long.getLong("generate.seed", 1));
+        HikariConfig config = new HikariConfig("src/main/resources/org/afpa/datasource.properties");
+
+        config.setMaximumPoolSize(1);
+
+        try (HikariDataSource pool = new HikariDataSource(config);
+             Connection connection = pool.getConnection()) {
+            long start = System.nanoTime();
+            int rows = generator.hotels(connection, hotels, rooms);
+            int firstClient = generator.clients(connection, clients);
+
+            rows += clients;
+            rows += generator.reservations(connection, firstClient, reservations);
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%,d rows inserted in %.1f s, %,.0f rows/s%n", rows, elapsed, rows / elapsed);
+        }
+    }
+
+    /**
+     * Generates a client, not inserted
+     *
+     * @return The client, without id
+     */
+    public Client client() {
+        return new Client(address(), skewed(CITIES), skewed(FIRST_NAMES), 0, skewed(LAST_NAMES));
+    }
+
+    /**
+     * Inserts hotels in the existing stations, with their rooms
+     *
+     * @param connection The connection, which must not auto commit
+     * @param hotels     The hotels to insert
+     * @param rooms      The rooms of each hotel
+     * @return The number of rows inserted
+     * @throws SQLException If any database error occurs
+     */
+    public int hotels(Connection connection, int hotels, int rooms) throws SQLException {
+        int[] stations = ids(connection, "SELECT sta_id FROM station");
+
+        if (stations.length == 0) throw new SQLException("The station table is empty, load hotel.sql first");
+
+        try (PreparedStatement hotel = connection.prepareStatement(
+                "INSERT INTO hotel (hot_sta_id, hot_nom, hot_categorie, hot_adresse, hot_ville) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement room = connection.prepareStatement(
+                     "INSERT INTO chambre (cha_hot_id, cha_numero, cha_capacite, cha_type) VALUES (?, ?, ?, ?)")) {
+            for (int h = 0; h < hotels; h++) {
+                String city = skewed(CITIES);
+
+                hotel.setInt(1, stations[random.nextInt(stations.length)]);
+                hotel.setString(2, "Hôtel " + STREETS[random.nextInt(STREETS.length)]);
+                hotel.setInt(3, 1 + random.nextInt(5));
+                hotel.setString(4, address());
+                hotel.setString(5, city);
+                hotel.executeUpdate();
+
+                int id;
+
+                try (ResultSet keys = hotel.getGeneratedKeys()) {
+                    keys.next();
+                    id = keys.getInt(1);
+                }
+
+                // Numbered by floor, 10 rooms a floor
+                for (int r = 0; r < rooms; r++) {
+                    room.setInt(1, id);
+                    room.setInt(2, (r / 10) * 100 + r % 10 + 1);
+                    room.setInt(3, 1 + random.nextInt(4));
+                    room.setInt(4, 1 + random.nextInt(3));
+                    room.addBatch();
+                }
+
+                room.executeBatch();
+                connection.commit();
+            }
+        }
+
+        return hotels * (rooms + 1);
+    }
+
+    /**
+     * Inserts generated clients
+     *
+     * @param connection The connection, which must not auto commit
+     * @param clients    The clients to insert
+     * @return The id after which the clients were inserted
+     * @throws SQLException If any database error occurs
+     */
+    public int clients(Connection connection, int clients) throws SQLException {
+        int after = max(connection, "SELECT MAX(cli_id) FROM client");
+        long start = System.nanoTime();
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO client (cli_nom, cli_prenom, cli_adresse, cli_ville) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= clients; i++) {
+                Client client = client();
+
+                ps.setString(1, client.getLastName());
+                ps.setString(2, client.getFirstName());
+                ps.setString(3, client.getAddress());
+                ps.setString(4, client.getCity());
+                ps.addBatch();
+
+                if (i % batchSize == 0 || i == clients) {
+                    ps.executeBatch();
+                    connection.commit();
+                }
+
+                if (i % 100_000 == 0) progress("clients", i, start);
+            }
+        }
+
+        return after;
+    }
+
+    /**
+     * Books the rooms for the clients inserted after an id, each getting between none and twice the given number of
+     * reservations
+     *
+     * @param connection   The connection, which must not auto commit
+     * @param after        The id after which the clients were inserted
+     * @param reservations The mean number of reservations of each client
+     * @return The number of reservations inserted
+     * @throws SQLException If any database error occurs
+     */
+    public int reservations(Connection connection, int after, int reservations) throws SQLException {
+        if (reservations <= 0) return 0;
+
+        int[] rooms = ids(connection, "SELECT cha_id FROM chambre");
+        int count = 0;
+        long start = System.nanoTime();
+
+        if (rooms.length == 0) throw new SQLException("The chambre table is empty, load hotel.sql first");
+
+        try (PreparedStatement clients = connection.prepareStatement("SELECT cli_id FROM client WHERE cli_id > ? ORDER BY cli_id LIMIT ?");
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO reservation "
+                     + "(res_cha_id, res_cli_id, res_date, res_date_debut, res_date_fin, res_prix, res_arrhes) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            // The ids are read by chunks, auto increments may leave gaps
+            for (int[] ids = page(clients, after); ids.length > 0; ids = page(clients, ids[ids.length - 1])) {
+                for (int id : ids) {
+                    for (int r = random.nextInt(2 * reservations + 1); r > 0; r--) {
+                        LocalDate booked = FIRST_BOOKING.plusDays(random.nextInt(10 * 365));
+                        LocalDate arrival = booked.plusDays(1 + random.nextInt(180));
+                        int nights = 1 + random.nextInt(14);
+                        // Below the 9999.99 of the column
+                        int price = Math.min(nights * (40 + random.nextInt(210)), 9999);
+
+                        ps.setInt(1, rooms[random.nextInt(rooms.length)]);
+                        ps.setInt(2, id);
+                        ps.setDate(3, Date.valueOf(booked));
+                        ps.setDate(4, Date.valueOf(arrival));
+                        ps.setDate(5, Date.valueOf(arrival.plusDays(nights)));
+                        ps.setInt(6, price);
+
+                        // A third of the bookings are paid without a deposit
+                        if (random.nextInt(3) == 0) ps.setNull(7, java.sql.Types.DECIMAL);
+                        else ps.setInt(7, price * 3 / 10);
+
+                        ps.addBatch();
+
+                        if (++count % batchSize == 0) {
+                            ps.executeBatch();
+                            connection.commit();
+                        }
+
+                        if (count % 100_000 == 0) progress("reservations", count, start);
+                    }
+                }
+            }
+
+            ps.executeBatch();
+            connection.commit();
+        }
+
+        return count;
+    }
+
+    /**
+     * Picks a value, the first ones much more often: the index is the square of a uniform fraction
+     */
+    private String skewed(String[] values) {
+        double fraction = random.nextDouble();
+
+        return values[(int) (fraction * fraction * values.length)];
+    }
+
+    /**
+     * @return An address within the 50 characters of the columns
+     */
+    private String address() {
+        return (1 + random.nextInt(150)) + " " + STREET_TYPES[random.nextInt(STREET_TYPES.length)] + " "
+                + STREETS[random.nextInt(STREETS.length)];
+    }
+
+    private int[] page(PreparedStatement clients, int after) throws SQLException {
+        clients.setInt(1, after);
+        clients.setInt(2, batchSize);
+
+        int[] ids = new int[batchSize];
+        int count = 0;
+
+        try (ResultSet rs = clients.executeQuery()) {
+            while (rs.next()) ids[count++] = rs.getInt(1);
+        }
+
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static int[] ids(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            int[] ids = new int[64];
+            int count = 0;
+
+            while (rs.next()) {
+                if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+
+                ids[count++] = rs.getInt(1);
+            }
+
+            return Arrays.copyOf(ids, count);
+        }
+    }
+
+    private static int max(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void progress(String rows, int count, long start) {
+        System.out.printf("%,d %s, %,.0f rows/s%n", count, rows, count / ((System.nanoTime() - start) / 1e9));
+    }
+}
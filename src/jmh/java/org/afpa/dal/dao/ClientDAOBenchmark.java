@@ -0,0 +1,115 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.EmbeddedHotelDatabase;
+import org.afpa.dal.models.Client;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of ClientDAO against an embedded database at several table sizes
+ * <p>
+ * Run with {@code -t} above 1 to measure how the throughput scales with the pool, every thread shares the DAO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClientDAOBenchmark {
+    private static final int POOL_SIZE = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int clients;
+
+    private ClientDAO clientDAO;
+    private EmbeddedHotelDatabase database;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = EmbeddedHotelDatabase.create(clients);
+        clientDAO = new ClientDAO(database.unitOfWork(POOL_SIZE));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public void delete(Deletable deletable) throws SQLException {
+        clientDAO.delete(deletable.id);
+    }
+
+    @Benchmark
+    public Client find() throws SQLException {
+        return clientDAO.find(randomId());
+    }
+
+    @Benchmark
+    public Client insert() throws SQLException {
+        Client client = newClient();
+
+        clientDAO.insert(client);
+
+        return client;
+    }
+
+    @Benchmark
+    public ArrayList<Client> list() throws SQLException {
+        return clientDAO.list();
+    }
+
+    @Benchmark
+    public ArrayList<Client> page() throws SQLException {
+        return clientDAO.page(randomId(), 50);
+    }
+
+    @Benchmark
+    public void update(Updatable updatable) throws SQLException {
+        clientDAO.update(updatable.client);
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(clients);
+    }
+
+    private static Client newClient() {
+        return new Client("1 rue du benchmark", "Benchville", "Jean", 0, "Bench");
+    }
+
+    /**
+     * A client read with its version before each invocation of the update benchmark
+     */
+    @State(Scope.Thread)
+    public static class Updatable {
+        private Client client;
+
+        @Setup(Level.Invocation)
+        public void find(ClientDAOBenchmark benchmark) throws SQLException {
+            client = benchmark.clientDAO.find(benchmark.randomId());
+            client.setFirstName("Jean");
+        }
+    }
+
+    /**
+     * A client inserted before each invocation of the delete benchmark
+     */
+    @State(Scope.Thread)
+    public static class Deletable {
+        private int id;
+
+        @Setup(Level.Invocation)
+        public void insert(ClientDAOBenchmark benchmark) throws SQLException {
+            Client client = newClient();
+
+            benchmark.clientDAO.insert(client);
+
+            id = client.getId();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.afpa.dal.dao;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.afpa.dal.EmbeddedHotelDatabase;
+import org.afpa.dal.HotelDataGenerator;
+import org.afpa.dal.metrics.LatencyHistogram;
+import org.afpa.dal.metrics.PoolMetrics;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.UnitOfWork;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of ClientDAO operations from many threads, at a target rate, and reports the throughput, the latency
+ * percentiles and the saturation of the pool over time
+ * <p>
+ * With a target rate, each thread starts its operations on a fixed schedule and their latency is measured from the
+ * time they were due, so a stall of the database shows in the percentiles instead of slowing the load down. Without
+ * one, each thread starts an operation as soon as the previous one ends. Run it with {@code ./gradlew daoLoadTest},
+ * set with the system properties:
+ * <ul>
+ * <li>{@code load.dao}: {@code h2} for an embedded database filled by {@link HotelDataGenerator}, {@code mariadb} for
+ * the local database of datasource.properties, filled beforehand with {@code ./gradlew generateData}</li>
+ * <li>{@code load.clients}: the clients generated in the embedded database, 100000 by default</li>
+ * <li>{@code load.mix}: the weights of the operations, {@code find=60,page=15,query=10,insert=5,update=10} by
+ * default</li>
+ * <li>{@code load.pool}: the maximum number of connections, the one of datasource.properties by default</li>
+ * <li>{@code load.rate}: the operations per second of all the threads, 0 by default for as many as they can</li>
+ * <li>{@code load.threads}: the threads, 32 by default</li>
+ * <li>{@code load.seconds}, {@code load.warmup} and {@code load.interval}: the measured, warm-up and reporting
+ * durations, 30, 5 and 1 seconds by default</li>
+ * </ul>
+ */
+public final class ClientDAOLoadTest {
+    private static final String PROPERTIES = "src/main/resources/org/afpa/datasource.properties";
+
+    private final LongAdder conflicts = new LongAdder();
+    private final ClientDAO dao;
+    private final LongAdder failures = new LongAdder();
+    // The latencies of the current interval, reset once reported
+    private final LatencyHistogram interval = new LatencyHistogram();
+    private final int lastId;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Operation[] mix;
+    private final PoolMetrics pool;
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    private ClientDAOLoadTest(ClientDAO dao, PoolMetrics pool, Operation[] mix) throws SQLException {
+        this.dao = dao;
+        this.lastId = dao.getLastClient(ReadConsistency.READ_YOUR_WRITES).getId();
+        this.mix = mix;
+        this.pool = pool;
+
+        for (Operation operation : Operation.values()) latencies.put(operation, new LatencyHistogram());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Operation[] mix = Operation.mix(System.getProperty("load.mix", "find=60,page=15,query=10,insert=5,update=10"));
+        String database = System.getProperty("load.dao", "h2");
+        PoolMetrics poolMetrics = new PoolMetrics();
+        HikariConfig config;
+        EmbeddedHotelDatabase embedded = null;
+
+        if (database.equals("mariadb")) {
+            config = new HikariConfig(PROPERTIES);
+        } else {
+            embedded = generate(Integer.getInteger("load.clients", 100_000));
+            config = new HikariConfig();
+            config.setAutoCommit(false);
+            config.setJdbcUrl(embedded.url());
+            config.setPassword("");
+            config.setUsername("sa");
+        }
+
+        config.setMaximumPoolSize(Integer.getInteger("load.pool", config.getMaximumPoolSize()));
+        config.setMetricsTrackerFactory(poolMetrics);
+
+        try (HikariDataSource pool = new HikariDataSource(config)) {
+            ClientDAOLoadTest load = new ClientDAOLoadTest(new ClientDAO(new UnitOfWork(pool)), poolMetrics, mix);
+
+            System.out.printf("%s, %,d clients, %d connections, mix %s%n", database, load.lastId,
+                    config.getMaximumPoolSize(), System.getProperty("load.mix", "default"));
+
+            load.run(Integer.getInteger("load.threads", 32), Integer.getInteger("load.rate", 0),
+                    Integer.getInteger("load.warmup", 5), Integer.getInteger("load.seconds", 30),
+                    Integer.getInteger("load.interval", 1));
+        } finally {
+            if (embedded != null) embedded.close();
+        }
+    }
+
+    /**
+     * Creates an embedded database and fills it like a local one would be
+     */
+    private static EmbeddedHotelDatabase generate(int clients) throws SQLException, IOException {
+        EmbeddedHotelDatabase database = EmbeddedHotelDatabase.create(0);
+        HotelDataGenerator generator = new HotelDataGenerator(1);
+
+        generator.hotels(database.connection(), 50, 40);
+        generator.reservations(database.connection(), generator.clients(database.connection(), clients), 2);
+
+        return database;
+    }
+
+    private void run(int threads, int rate, int warmUp, int seconds, int reportInterval) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        // The time between two operations of a thread, 0 to not wait
+        long period = rate > 0 ? threads * 1_000_000_000L / rate : 0;
+
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> work(period), "load-" + i);
+
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread.sleep(warmUp * 1000L);
+        interval.reset();
+        measuring = true;
+
+        long start = System.nanoTime();
+
+        System.out.printf("%6s %10s %9s %9s %9s %7s %9s %6s %7s %8s %8s%n", "s", "ops/s", "p50 ms", "p99 ms", "max ms",
+                "errors", "conflicts", "active", "pending", "total", "timeouts");
+
+        for (int elapsed = reportInterval; elapsed <= seconds; elapsed += reportInterval) {
+            Thread.sleep(reportInterval * 1000L);
+
+            long count = interval.count();
+
+            System.out.printf("%6d %,10.0f %9.2f %9.2f %9.2f %7d %9d %6d %7d %8d %8d%n", elapsed,
+                    (double) count / reportInterval, interval.percentile(0.5) / 1e6, interval.percentile(0.99) / 1e6,
+                    interval.max() / 1e6, failures.sum(), conflicts.sum(), pool.getActiveConnections(),
+                    pool.getPendingThreads(), pool.getTotalConnections(), pool.getTimeouts());
+
+            interval.reset();
+        }
+
+        measuring = false;
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        running = false;
+
+        for (Thread worker : workers) worker.join(10_000);
+
+        report(elapsed);
+    }
+
+    /**
+     * Runs the operations of the mix until the load stops
+     *
+     * @param period The time between two operations, 0 to not wait
+     */
+    private void work(long period) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HotelDataGenerator generator = new HotelDataGenerator(random.nextLong());
+        // Spreads the first operations of the threads over a period
+        long due = System.nanoTime() + (period > 0 ? random.nextLong(period) : 0);
+
+        while (running) {
+            if (period > 0) {
+                for (long wait = due - System.nanoTime(); wait > 0 && running; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                due = System.nanoTime();
+            }
+
+            Operation operation = mix[random.nextInt(mix.length)];
+            boolean succeeded;
+
+            try {
+                succeeded = operation.run(this, random, generator);
+            } catch (ConflictException e) {
+                if (measuring) conflicts.increment();
+
+                succeeded = true;
+            } catch (SQLException e) {
+                succeeded = false;
+            }
+
+            // From the time the operation was due, the time it waited behind a slow one included
+            long latency = System.nanoTime() - due;
+
+            if (measuring) {
+                latencies.get(operation).record(latency);
+                interval.record(latency);
+
+                if (!succeeded) failures.increment();
+            }
+
+            due += period;
+        }
+    }
+
+    private void report(double elapsed) {
+        long count = latencies.values().stream().mapToLong(LatencyHistogram::count).sum();
+
+        System.out.printf("%n%,.0f operations/s over %.1f s, %d errors, %d conflicts%n", count / elapsed, elapsed,
+                failures.sum(), conflicts.sum());
+        System.out.printf("%-8s %10s %9s %9s %9s %9s %9s %9s%n", "", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+
+        for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+
+            if (histogram.count() == 0) continue;
+
+            System.out.printf("%-8s %,10.0f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey().name().toLowerCase(Locale.ROOT),
+                    histogram.count() / elapsed, histogram.mean() / 1e6, histogram.percentile(0.5) / 1e6,
+                    histogram.percentile(0.9) / 1e6, histogram.percentile(0.99) / 1e6,
+                    histogram.percentile(0.999) / 1e6, histogram.max() / 1e6);
+        }
+
+        System.out.println(pool);
+    }
+
+    private int randomId(ThreadLocalRandom random) {
+        return 1 + random.nextInt(Math.max(1, lastId));
+    }
+
+    /**
+     * The operations of the mix, each returning false when the DAO reported a failure
+     */
+    private enum Operation {
+        FIND {
+            @Override
+            boolean run(ClientDAOLoadTest load, ThreadLocalRandom random, HotelDataGenerator generator) throws SQLException {
+                return load.dao.find(load.randomId(random)) != null;
+            }
+        },
+        PAGE {
+            @Override
+            boolean run(ClientDAOLoadTest load, ThreadLocalRandom random, HotelDataGenerator generator) throws SQLException {
+                return load.dao.page(load.randomId(random), ClientQuery.DEFAULT_LIMIT) != null;
+            }
+        },
+        QUERY {
+            @Override
+            boolean run(ClientDAOLoadTest load, ThreadLocalRandom random, HotelDataGenerator generator) throws SQLException {
+                Client model = generator.client();
+                ClientQuery query = ClientQuery.all()
+                        .lastNameStartsWith(model.getLastName().substring(0, 3))
+                        .cityStartsWith(model.getCity())
+                        .orderBy(ClientQuery.Sort.LAST_NAME);
+
+                return load.dao.query(query) != null;
+            }
+        },
+        INSERT {
+            @Override
+            boolean run(ClientDAOLoadTest load, ThreadLocalRandom random, HotelDataGenerator generator) throws SQLException {
+                Client client = generator.client();
+
+                load.dao.insert(client);
+
+                return client.getId() != 0;
+            }
+        },
+        UPDATE {
+            @Override
+            boolean run(ClientDAOLoadTest load, ThreadLocalRandom random, HotelDataGenerator generator) throws SQLException {
+                Client client = load.dao.find(load.randomId(random), ReadConsistency.READ_YOUR_WRITES);
+
+                if (client == null) return false;
+
+                // Deleted or never inserted, auto increments may leave gaps
+                if (client.getId() == 0) return true;
+
+                client.setCity(generator.client().getCity());
+                load.dao.update(client);
+
+                return true;
+            }
+        };
+
+        /**
+         * Parses a mix such as {@code find=60,insert=40} into an array holding each operation as many times as its
+         * weight
+         */
+        private static Operation[] mix(String mix) {
+            List<Operation> operations = new ArrayList<>();
+
+            for (String weighted : mix.split(",")) {
+                String[] parts = weighted.trim().split("=");
+
+                if (parts.length != 2) throw new IllegalArgumentException("Operation=weight expected: " + weighted);
+
+                Operation operation = valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+
+                for (int i = Integer.parseInt(parts[1].trim()); i > 0; i--) operations.add(operation);
+            }
+
+            if (operations.isEmpty()) throw new IllegalArgumentException("The mix has no operation");
+
+            return operations.toArray(new Operation[0]);
+        }
+
+        abstract boolean run(ClientDAOLoadTest load, ThreadLocalRandom random, HotelDataGenerator generator) throws SQLException;
+    }
+}
@@ -0,0 +1,102 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.EmbeddedHotelDatabase;
+import org.afpa.dal.interfaces.RowMapper;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.models.ClientReservations;
+import org.afpa.dal.models.Reservation;
+import org.afpa.dal.shared.UnitOfWork;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a page of clients with their reservations in one joined query, in a batched IN query, and with
+ * one query per client
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClientReservationsBenchmark {
+    private static final int PAGE_SIZE = 50;
+    private static final int POOL_SIZE = 10;
+    private static final String SELECT_RESERVATIONS = "SELECT " + ClientDAO.RESERVATION_PROJECTION.columns()
+            + " FROM reservation JOIN chambre ON cha_id = res_cha_id JOIN hotel ON hot_id = cha_hot_id"
+            + " WHERE res_cli_id = ? ORDER BY res_id";
+
+    @Param({"1000", "10000"})
+    public int clients;
+
+    @Param({"1", "5"})
+    public int reservations;
+
+    private ClientDAO clientDAO;
+    private EmbeddedHotelDatabase database;
+    private UnitOfWork unitOfWork;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = EmbeddedHotelDatabase.create(clients, reservations);
+        unitOfWork = database.unitOfWork(POOL_SIZE);
+        clientDAO = new ClientDAO(unitOfWork);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    /**
+     * Seeks the page and joins the reservations in a single query
+     */
+    @Benchmark
+    public ArrayList<ClientReservations> joined() throws SQLException {
+        return clientDAO.pageWithReservations(randomAfterId(), PAGE_SIZE);
+    }
+
+    /**
+     * Loads the page, then the reservations of all its clients in one IN query
+     */
+    @Benchmark
+    public ArrayList<ClientReservations> batchedIn() throws SQLException {
+        ArrayList<Client> page = clientDAO.page(randomAfterId(), PAGE_SIZE);
+
+        return clientDAO.findWithReservations(page.stream().mapToInt(Client::getId).toArray());
+    }
+
+    /**
+     * Loads the page, then the reservations of each client with its own query
+     */
+    @Benchmark
+    public ArrayList<ClientReservations> nPlusOne() throws SQLException {
+        ArrayList<Client> page = clientDAO.page(randomAfterId(), PAGE_SIZE);
+        ArrayList<ClientReservations> result = new ArrayList<>(page.size());
+        RowMapper<Reservation> mapper = ClientDAO.RESERVATION_PROJECTION.mapper();
+
+        for (Client client : page) {
+            result.add(new ClientReservations(client, unitOfWork.call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_RESERVATIONS)) {
+                    ps.setInt(1, client.getId());
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return mapper.mapAll(rs, reservations);
+                    }
+                }
+            })));
+        }
+
+        return result;
+    }
+
+    private int randomAfterId() {
+        return ThreadLocalRandom.current().nextInt(Math.max(1, clients - PAGE_SIZE));
+    }
+}
@@ -0,0 +1,92 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.EmbeddedHotelDatabase;
+import org.afpa.dal.interfaces.RowMapper;
+import org.afpa.dal.models.Client;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping of a client result set to Client objects, without the query itself
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowMappingBenchmark {
+    @Param({"1000", "10000"})
+    public int clients;
+
+    private EmbeddedHotelDatabase database;
+    private ResultSet rs;
+    private Statement statement;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = EmbeddedHotelDatabase.create(clients);
+
+        // A scrollable result set is rewound before each invocation instead of running the query again
+        statement = database.connection().createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rs = statement.executeQuery("SELECT " + ClientDAO.PROJECTION.columns() + " FROM client");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        rs.close();
+        statement.close();
+        database.close();
+    }
+
+    /**
+     * Maps the rows looking each column up by name, the way ClientDAO used to
+     */
+    @Benchmark
+    public void byName(Blackhole blackhole) throws SQLException {
+        rs.beforeFirst();
+
+        while (rs.next()) {
+            Client client = new Client();
+
+            client.setAddress(rs.getString("cli_adresse"));
+            client.setCity(rs.getString("cli_ville"));
+            client.setFirstName(rs.getString("cli_prenom"));
+            client.setId(rs.getInt("cli_id"));
+            client.setLastName(rs.getString("cli_nom"));
+
+            blackhole.consume(client);
+        }
+    }
+
+    /**
+     * Maps the rows the way ClientDAO does, with the indexes of its projection
+     */
+    @Benchmark
+    public void projection(Blackhole blackhole) throws SQLException {
+        rs.beforeFirst();
+
+        RowMapper<Client> mapper = ClientDAO.PROJECTION.mapper();
+
+        while (rs.next()) {
+            blackhole.consume(mapper.map(rs));
+        }
+    }
+
+    /**
+     * Maps the rows with hand written column indexes, as a baseline
+     */
+    @Benchmark
+    public void byIndex(Blackhole blackhole) throws SQLException {
+        rs.beforeFirst();
+
+        while (rs.next()) {
+            blackhole.consume(new Client(rs.getString(4), rs.getString(5), rs.getString(3), rs.getInt(1), rs.getString(2)));
+        }
+    }
+}
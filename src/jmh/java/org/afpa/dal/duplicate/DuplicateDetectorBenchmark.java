@@ -0,0 +1,89 @@
+package org.afpa.dal.duplicate;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.search.ClientSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the duplicate detection over a million clients, one in a hundred typed twice with a typo
+ * <p>
+ * The full pass reads the clients from memory so the database is left out, the check is the one run by each add
+ * and modify against an index of every client.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DuplicateDetectorBenchmark {
+    private static final String[] CITIES = {"Amiens", "Bretou", "Londre", "Lyon", "Paris", "Pralo", "Toras", "Vonten"};
+    private static final String CONSONANTS = "bcdfghjklmnprstvz";
+    private static final String VOWELS = "aeiou";
+
+    @Param({"1000000"})
+    public int clients;
+
+    private List<Client> all;
+    private DuplicateIndex index;
+
+    @Setup
+    public void setUp() {
+        all = new ArrayList<>(clients);
+
+        for (int i = 1; i <= clients; i++) {
+            all.add(i % 100 == 0
+                    ? new Client(i - 1 + " rue du double", CITIES[(i - 1) % CITIES.length], name(-(i - 1)) + "e", i, name(i - 1))
+                    : new Client(i + " rue du double", CITIES[i % CITIES.length], name(-i), i, name(i)));
+        }
+
+        ClientSearchIndex searchIndex = new ClientSearchIndex();
+
+        index = new DuplicateIndex(searchIndex::get);
+
+        for (Client client : all) {
+            searchIndex.add(client);
+            index.add(client);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public DuplicateReport fullPass() {
+        return new DuplicateDetector().findAll(all.stream());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<Duplicate> check() {
+        Client client = new Client(all.get(ThreadLocalRandom.current().nextInt(clients)));
+
+        client.setId(0);
+
+        return index.check(client);
+    }
+
+    /**
+     * @return A name of two to four random syllables, always the same for a seed
+     */
+    private static String name(long seed) {
+        Random random = new Random(seed);
+        StringBuilder name = new StringBuilder();
+
+        for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+            name.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length()))).append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+        }
+
+        if (random.nextBoolean()) name.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())));
+
+        return name.toString();
+    }
+}
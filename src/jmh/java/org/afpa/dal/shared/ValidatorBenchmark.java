@@ -0,0 +1,53 @@
+package org.afpa.dal.shared;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.validation.ClientValidator;
+import org.afpa.dal.validation.ValidationReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the validation of a client, as done on each add and modify, and of a batch as done by the CSV import
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidatorBenchmark {
+    private final List<Client> batch = new ArrayList<>();
+    private final Client invalid = new Client("65 rue des Poussins", "Amiens", "", 0, "Dubois");
+    private final Client valid = new Client("65 rue des Poussins", "Amiens", "William", 0, "Dubois");
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 100_000; i++) {
+            batch.add(i % 100 == 0 ? invalid : new Client(i + " rue des Poussins", "Amiens", "Prenom" + i, 0, "Nom" + i));
+        }
+    }
+
+    @Benchmark
+    public boolean validClient() {
+        return ClientValidator.DEFAULT.isValid(valid);
+    }
+
+    @Benchmark
+    public boolean invalidClient() {
+        return ClientValidator.DEFAULT.isValid(invalid);
+    }
+
+    @Benchmark
+    public int invalidClientErrors() {
+        return ClientValidator.DEFAULT.validate(invalid).size();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ValidationReport batch() {
+        return ClientValidator.DEFAULT.validateAll(batch);
+    }
+}
@@ -0,0 +1,117 @@
+package org.afpa.dal.snapshot;
+
+import org.afpa.dal.EmbeddedHotelDatabase;
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.models.ClientChanges;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.search.ClientSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures what the client window waits for at startup, with and without the local snapshot
+ * <p>
+ * The first page is what the TableView needs to show the clients, the search index is filled next. Each
+ * measurement is a single cold call, as a launch is. The snapshot is {@code changes} clients behind the database, so
+ * the reconcile reads them back from the change log filled by the triggers.
+ * <p>
+ * Only the data paths are measured, not the JVM and JavaFX boot around them. The time from the launch to the
+ * clients shown is the one printed by {@code App} with {@code -Dorg.afpa.startup.report=true}, see
+ * {@link org.afpa.Startup}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class ClientSnapshotBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000"})
+    public int changes;
+
+    @Param({"100000", "1000000"})
+    public int clients;
+
+    private ClientDAO clientDAO;
+    private EmbeddedHotelDatabase database;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = EmbeddedHotelDatabase.create(clients);
+        clientDAO = new ClientDAO(database.unitOfWork(2));
+        directory = Files.createTempDirectory("snapshot");
+
+        try (Stream<Client> all = clientDAO.stream()) {
+            ClientSnapshot.write(directory, null, clientDAO.changeToken(), all.iterator());
+        }
+
+        // Made since the snapshot was written, as by the other users between two launches
+        try (Statement statement = database.connection().createStatement()) {
+            statement.executeUpdate("UPDATE client SET cli_ville = 'Modifiée', cli_version = cli_version + 1 WHERE cli_id <= " + changes);
+        }
+
+        database.connection().commit();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public ArrayList<Client> firstPageFromDatabase() throws SQLException {
+        clientDAO.count();
+
+        return clientDAO.page(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ArrayList<Client> firstPageFromSnapshot() throws IOException {
+        ClientSnapshot snapshot = ClientSnapshot.open(directory);
+
+        snapshot.size();
+
+        return snapshot.page(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ClientSearchIndex searchIndexFromDatabase() throws SQLException {
+        ClientSearchIndex index = new ClientSearchIndex();
+
+        try (Stream<Client> all = clientDAO.stream()) {
+            all.forEach(index::add);
+        }
+
+        return index;
+    }
+
+    @Benchmark
+    public ClientSearchIndex searchIndexFromSnapshot() throws IOException, SQLException {
+        ClientSnapshot snapshot = ClientSnapshot.open(directory);
+        ClientSearchIndex index = new ClientSearchIndex();
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            index.add(snapshot.get(i));
+        }
+
+        // Then applies what changed since the snapshot was written
+        ClientChanges changed = clientDAO.changesSince(snapshot.getToken());
+
+        if (changed == null || changed.getUpdated().size() != changes) throw new IllegalStateException("The changes were not read");
+
+        changed.getUpdated().forEach(index::update);
+
+        return index;
+    }
+}
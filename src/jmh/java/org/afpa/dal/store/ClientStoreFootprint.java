@@ -0,0 +1,82 @@
+package org.afpa.dal.store;
+
+import org.afpa.dal.models.Client;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Compares the heap retained by a million clients held as a list of {@link Client} and in a {@link ClientStore}
+ * <p>
+ * The heap is not something JMH measures, the retained bytes are read from the memory bean after a few collections,
+ * once before and once after building each set. Run it with {@code ./gradlew clientStoreFootprint}, the figures vary
+ * a little between runs and JVMs but the ratio does not.
+ */
+public final class ClientStoreFootprint {
+    private static final int ROWS = 1_000_000;
+
+    private ClientStoreFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : ROWS;
+
+        // Like EmbeddedHotelDatabase fills the table, every name is unique
+        IntFunction<Client> generated = i -> new Client(i + " rue du benchmark", "Ville" + i % 100, "Prenom" + i, i, "Nom" + i);
+        // Closer to a real client base, the names repeat
+        IntFunction<Client> repeated = i -> new Client(i + " rue du benchmark", "Ville" + i % 100, "Prenom" + i % 500, i, "Nom" + i % 20_000);
+
+        report("generated", rows, generated);
+        report("repeated", rows, repeated);
+    }
+
+    private static void report(String data, int rows, IntFunction<Client> clients) {
+        long list = retained(() -> {
+            List<Client> all = new ArrayList<>(rows);
+
+            for (int i = 1; i <= rows; i++) all.add(clients.apply(i));
+
+            return all;
+        });
+
+        long store = retained(() -> {
+            ClientStore all = new ClientStore();
+
+            for (int i = 1; i <= rows; i++) all.put(clients.apply(i));
+
+            return all;
+        });
+
+        System.out.printf("%-9s %,d clients: ArrayList<Client> %,d bytes (%d per client), ClientStore %,d bytes (%d per client)%n",
+                data, rows, list, list / rows, store, store / rows);
+    }
+
+    /**
+     * @return The bytes retained by the value built by the supplier
+     */
+    private static long retained(Supplier<Object> supplier) {
+        long before = usedHeap();
+        Object value = supplier.get();
+        long after = usedHeap();
+
+        // Keeps the value reachable until the heap is measured
+        Reference.reachabilityFence(value);
+
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        for (int i = 0; i < 4; i++) {
+            memory.gc();
+        }
+
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
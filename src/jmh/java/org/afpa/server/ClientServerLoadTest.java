@@ -0,0 +1,232 @@
+package org.afpa.server;
+
+import org.afpa.dal.EmbeddedHotelDatabase;
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.dao.ClientQuery;
+import org.afpa.dal.dao.ConflictException;
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.interfaces.Queryable;
+import org.afpa.dal.metrics.LatencyHistogram;
+import org.afpa.dal.models.Client;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads the headless server with concurrent connections and reports its throughput and tail latency
+ * <p>
+ * Each connection sends a request as soon as the previous one is answered: 80% reads of a client, 15% pages of 50
+ * clients and 5% inserts. The latencies of the warm-up are dropped. JMH measures methods, not a server under
+ * concurrent clients, so run it with {@code ./gradlew serverLoadTest}, set with the system properties:
+ * <ul>
+ * <li>{@code load.clients}: the clients in the database, 10000 by default</li>
+ * <li>{@code load.connections}: the concurrent connections, 64 by default</li>
+ * <li>{@code load.dao}: {@code h2} for the embedded database, {@code memory} to measure the server alone</li>
+ * <li>{@code load.seconds} and {@code load.warmup}: the measured and warm-up durations, 20 and 5 seconds by default</li>
+ * </ul>
+ */
+public final class ClientServerLoadTest {
+    private static final int PAGE = 50;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final String base;
+    private final int clients;
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    private ClientServerLoadTest(String base, int clients) {
+        this.base = base;
+        this.clients = clients;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 10_000);
+        int connections = Integer.getInteger("load.connections", 64);
+        int seconds = Integer.getInteger("load.seconds", 20);
+        int warmUp = Integer.getInteger("load.warmup", 5);
+        String dao = System.getProperty("load.dao", "h2");
+        InetSocketAddress address = new InetSocketAddress("localhost", 0);
+
+        if (dao.equals("memory")) {
+            MemoryClients memory = new MemoryClients(clients);
+
+            try (ClientServer server = new ClientServer(memory, memory, address, connections, 1024)) {
+                run(server, dao, clients, connections, warmUp, seconds);
+            }
+        } else {
+            try (EmbeddedHotelDatabase database = EmbeddedHotelDatabase.create(clients)) {
+                ClientDAO clientDAO = new ClientDAO(database.unitOfWork(Runtime.getRuntime().availableProcessors() * 2 + 1));
+
+                try (ClientServer server = new ClientServer(clientDAO, address, connections, 1024)) {
+                    run(server, dao, clients, connections, warmUp, seconds);
+                }
+            }
+        }
+    }
+
+    private static void run(ClientServer server, String dao, int clients, int connections, int warmUp, int seconds)
+            throws InterruptedException {
+        server.start();
+
+        ClientServerLoadTest load = new ClientServerLoadTest("http://localhost:" + server.getPort() + "/clients", clients);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < connections; i++) {
+            Thread worker = new Thread(load::work, "load-" + i);
+
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread.sleep(warmUp * 1000L);
+        load.measuring = true;
+
+        long start = System.nanoTime();
+
+        Thread.sleep(seconds * 1000L);
+        load.measuring = false;
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        load.running = false;
+
+        for (Thread worker : workers) worker.join(10_000);
+
+        load.report(dao, clients, connections, elapsed);
+    }
+
+    /**
+     * Sends requests one after the other until the load stops
+     */
+    private void work() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (running) {
+            int mix = random.nextInt(100);
+            HttpRequest request;
+
+            if (mix < 80) {
+                request = HttpRequest.newBuilder(URI.create(base + "/" + (1 + random.nextInt(clients)))).build();
+            } else if (mix < 95) {
+                request = HttpRequest.newBuilder(URI.create(base + "?after=" + random.nextInt(clients) + "&limit=" + PAGE)).build();
+            } else {
+                request = HttpRequest.newBuilder(URI.create(base))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"lastName\":\"Charge\",\"firstName\":\"Test\","
+                                + "\"address\":\"1 rue de la Charge\",\"city\":\"Amiens\"}"))
+                        .build();
+            }
+
+            long start = System.nanoTime();
+
+            try {
+                int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+
+                if (!measuring) continue;
+
+                latencies.record(System.nanoTime() - start);
+
+                if (status == 503) overloaded.increment();
+                else if (status >= 400) failed.increment();
+            } catch (Exception e) {
+                if (measuring) failed.increment();
+            }
+        }
+    }
+
+    private void report(String dao, int clients, int connections, double elapsed) {
+        System.out.printf("%s, %,d clients, %d connections: %,.0f requests/s over %.1f s, %d overloaded, %d failed%n",
+                dao, clients, connections, latencies.count() / elapsed, elapsed, overloaded.sum(), failed.sum());
+        System.out.printf("latency ms: mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                latencies.mean() / 1e6, latencies.percentile(0.5) / 1e6, latencies.percentile(0.9) / 1e6,
+                latencies.percentile(0.99) / 1e6, latencies.percentile(0.999) / 1e6, latencies.max() / 1e6);
+    }
+
+    /**
+     * The clients held in memory, the queries are not filtered
+     */
+    private static final class MemoryClients implements CRUD<Client>, Queryable<Client, ClientQuery> {
+        private final ConcurrentSkipListMap<Integer, Client> clients = new ConcurrentSkipListMap<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        private MemoryClients(int count) {
+            for (int i = 0; i < count; i++) {
+                insert(new Client(i + " rue de la Charge", "Ville" + i % 100, "Prenom" + i, 0, "Nom" + i));
+            }
+        }
+
+        @Override
+        public int count(ClientQuery query) {
+            return clients.size();
+        }
+
+        @Override
+        public ArrayList<Client> query(ClientQuery query) {
+            return clients.values().stream().limit(query.getLimit()).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public void delete(int id) {
+            clients.remove(id);
+        }
+
+        @Override
+        public Client find(int id) {
+            Client client = clients.get(id);
+
+            return client == null ? new Client() : new Client(client);
+        }
+
+        @Override
+        public int count() {
+            return clients.size();
+        }
+
+        @Override
+        public int idAt(int position) {
+            return clients.keySet().stream().skip(position).findFirst().orElse(0);
+        }
+
+        @Override
+        public void insert(Client client) {
+            client.setId(next.incrementAndGet());
+            clients.put(client.getId(), new Client(client));
+        }
+
+        @Override
+        public ArrayList<Client> list() {
+            return new ArrayList<>(clients.values());
+        }
+
+        @Override
+        public ArrayList<Client> page(int afterId, int size) {
+            return clients.tailMap(afterId, false).values().stream().limit(size).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public Stream<Client> stream() {
+            return clients.values().stream();
+        }
+
+        @Override
+        public void update(Client client) throws ConflictException {
+            client.setVersion(client.getVersion() + 1);
+            clients.put(client.getId(), new Client(client));
+        }
+    }
+}
@@ -3,21 +3,35 @@ package org.afpa;
 import javafx.application.Application;
 import javafx.event.EventHandler;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
+import org.afpa.controllers.Index;
 import org.afpa.dal.shared.AlertUtils;
+import org.afpa.server.ClientServer;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class App extends Application {
     private static Scene scene;
+    private Index index;
 
-    public static void main(String[] args) {
-        launch(args);
+    /**
+     * Shows the window, or with {@code --headless} serves the clients over HTTP without a window
+     *
+     * @param args The arguments of the application
+     * @throws IOException If the server can't listen on its port
+     * @see ClientServer
+     */
+    public static void main(String[] args) throws IOException {
+        if (Arrays.asList(args).contains("--headless")) {
+            ClientServer.main(args);
+        } else {
+            launch(args);
+        }
     }
 
     /**
@@ -25,7 +39,12 @@ public class App extends Application {
      */
     @Override
     public void start(Stage stage) throws IOException {
-        scene = new Scene(loadFXML("index"));
+        Startup.mark("JavaFX started");
+
+        FXMLLoader loader = new FXMLLoader(App.class.getResource("index.fxml"));
+
+        scene = new Scene(loader.load());
+        index = loader.getController();
 
         stage.setOnCloseRequest(event -> {
             ButtonType cancel = new ButtonType("Annuler");
@@ -44,16 +63,15 @@ public class App extends Application {
         stage.setTitle("Clients - DAO");
         stage.setScene(scene);
         stage.show();
+
+        Startup.mark("window shown");
     }
 
     /**
-     * Loads an FXML file
-     *
-     * @param fxml The fxml file to load
-     * @return The loaded file
-     * @throws IOException If the function can't read the file
+     * Flushes the edits still queued before the JVM exits, once the window is closed
      */
-    private static Parent loadFXML(String fxml) throws IOException {
-        return new FXMLLoader(App.class.getResource(fxml + ".fxml")).load();
+    @Override
+    public void stop() {
+        if (index != null) index.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package org.afpa;
+
+import javafx.application.Platform;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Reports how long after the launch of the JVM each step of the startup is reached
+ * <p>
+ * Enabled with {@code -Dorg.afpa.startup.report=true}, which prints a line per step. With
+ * {@code -Dorg.afpa.startup.exit=true} the application also exits once the clients are shown, to time launches from
+ * a script or to record the classes loaded by a startup for the class data sharing archive.
+ */
+public final class Startup {
+    public static final boolean EXIT = Boolean.getBoolean("org.afpa.startup.exit");
+    public static final boolean REPORT = Boolean.getBoolean("org.afpa.startup.report");
+
+    // The launch of the process, which includes the time the JVM takes to boot
+    private static final Instant LAUNCH = ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+
+    private Startup() { }
+
+    /**
+     * Prints the time elapsed since the launch, if the report is enabled
+     *
+     * @param step The step reached
+     */
+    public static void mark(String step) {
+        if (REPORT) System.out.printf("startup: %s after %d ms%n", step, Duration.between(LAUNCH, Instant.now()).toMillis());
+    }
+
+    /**
+     * Marks the last step of the startup, the clients are shown, then exits if asked to
+     */
+    public static void done() {
+        mark("clients shown");
+
+        if (EXIT) Platform.exit();
+    }
+}
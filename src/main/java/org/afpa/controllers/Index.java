@@ -1,29 +1,108 @@
 package org.afpa.controllers;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
+import org.afpa.Startup;
+import org.afpa.dal.dao.AsyncDAO;
+import org.afpa.dal.dao.CachedCRUD;
+import org.afpa.dal.csv.ClientCsvExporter;
+import org.afpa.dal.csv.ClientCsvImporter;
+import org.afpa.dal.csv.ImportReport;
 import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.dao.ConflictException;
+import org.afpa.dal.dao.SnapshotClientDAO;
+import org.afpa.dal.dao.WriteBehindClientDAO;
+import org.afpa.dal.duplicate.Duplicate;
+import org.afpa.dal.duplicate.DuplicateIndex;
+import org.afpa.dal.interfaces.AsyncCRUD;
 import org.afpa.dal.models.Client;
+import org.afpa.dal.models.ClientChanges;
 import org.afpa.dal.shared.AlertUtils;
+import org.afpa.dal.shared.DAOExecutor;
+import org.afpa.dal.shared.DataSource;
 import org.afpa.dal.shared.ExceptionPrinter;
-import org.afpa.dal.shared.Validator;
+import org.afpa.dal.shared.PagedList;
+import org.afpa.dal.search.ClientSearchIndex;
+import org.afpa.dal.snapshot.ClientSnapshot;
+import org.afpa.dal.validation.ClientValidator;
+import org.afpa.dal.validation.FieldError;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public final class Index implements Initializable {
-    private final ClientDAO clientDAO;
-    private final ObservableList<Client> clientObservableList = FXCollections.observableArrayList();
+    private static final int CACHE_SIZE = 1000;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+    // ClientDAO borrows a pooled connection per operation, one connection is left for the search index stream
+    private static final int DAO_CONCURRENCY = Integer.getInteger("org.afpa.dao.concurrency", Math.max(1, DataSource.getMaximumPoolSize() - 1));
+    private static final int DAO_QUEUE_CAPACITY = Integer.getInteger("org.afpa.dao.queueCapacity", 256);
+    private static final int MAX_PAGES = 4;
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_MARGIN = 10;
+    private static final int SEARCH_LIMIT = 500;
+    // Keeps a copy of the clients on the local disk, so the next launch shows them without waiting for the database
+    private static final boolean SNAPSHOT = !Boolean.getBoolean("org.afpa.snapshot.disabled");
+    private static final Path SNAPSHOT_DIRECTORY = Paths.get(System.getProperty("org.afpa.snapshot.directory",
+            Paths.get(System.getProperty("user.home"), ".afpa-hotel").toString()));
+    // Milliseconds between two purges of the change log, by every workstation
+    private static final long PURGE_INTERVAL = Long.getLong("org.afpa.sync.purgeInterval", 600_000);
+    // Milliseconds between two reads of the changes made by the other workstations
+    private static final long SYNC_INTERVAL = Long.getLong("org.afpa.sync.interval", 2000);
+    // Queues the edits and commits them in batches, for the rushes of small edits
+    private static final boolean WRITE_BEHIND = Boolean.getBoolean("org.afpa.writeBehind");
+    private static final int WRITE_BEHIND_CAPACITY = Integer.getInteger("org.afpa.writeBehind.capacity", 10_000);
+    private static final long WRITE_BEHIND_INTERVAL = Long.getLong("org.afpa.writeBehind.interval", 200);
+    private static final int WRITE_BEHIND_OPERATIONS = Integer.getInteger("org.afpa.writeBehind.operations", 100);
+
+    private final ClientDAO bulkClientDAO;
+    private final AsyncCRUD<Client> clientDAO;
+    private final PagedList<Client> clientObservableList;
+    private final CachedCRUD<Client> cachedClientDAO;
+    private final ScheduledExecutorService changeFeed;
+    private final DAOExecutor daoExecutor;
+    private final DuplicateIndex duplicateIndex;
+    // Held while the search and duplicate indexes are changed together, by the JavaFX, change feed and indexer threads
+    private final Object indexLock = new Object();
+    private final Object rescanLock = new Object();
+    private final ClientSearchIndex searchIndex = new ClientSearchIndex();
+    private final ObservableList<Client> searchResults = FXCollections.observableArrayList();
+    private final SnapshotClientDAO snapshotClientDAO;
+    private final WriteBehindClientDAO writeBehindClientDAO;
+
+    @FXML
+    private TextField addressText, cityText, firstNameText, lastNameText, searchText;
+
+    @FXML
+    private Label connection;
 
     @FXML
-    private TextField addressText, cityText, firstNameText, lastNameText;
+    private ProgressIndicator busy;
 
     @FXML
     private TableColumn<Client, String> firstName, lastName;
@@ -31,8 +110,46 @@ public final class Index implements Initializable {
     @FXML
     private TableView<Client> clients;
 
+    // Token of the last change applied to the list, -1 until the list is loaded, only used on the change feed thread
+    private long changeToken = -1;
+
+    // Number of database operations started by the user and not finished yet
+    private int pending;
+
+    // The snapshot loaded at startup, written again with the changes made since on close
+    private volatile ClientSnapshot snapshot;
+
+    // The latest values of the clients indexed or removed (null) since the running rescan started, which its rows
+    // must not overwrite, null while no rescan runs, guarded by the index lock
+    private Map<Integer, Client> changedDuringRescan;
+
     public Index() {
-        this.clientDAO = new ClientDAO();
+        // Caches the clients loaded by the TableView so editing them does not go back to the database
+        this.bulkClientDAO = new ClientDAO();
+        this.writeBehindClientDAO = WRITE_BEHIND
+                ? new WriteBehindClientDAO(bulkClientDAO, DataSource.getUnitOfWork(), WRITE_BEHIND_CAPACITY, WRITE_BEHIND_INTERVAL,
+                WRITE_BEHIND_OPERATIONS, conflict -> Platform.runLater(this::conflicted))
+                : null;
+        this.cachedClientDAO = new CachedCRUD<>(writeBehindClientDAO == null ? bulkClientDAO : writeBehindClientDAO, Client::getId,
+                Client::new, CACHE_SIZE, CACHE_TTL);
+
+        // Runs the database work off the JavaFX application thread
+        this.daoExecutor = new DAOExecutor(DAO_CONCURRENCY, DAO_QUEUE_CAPACITY);
+        // Serves the pages from the local snapshot until the changes made since it was written are applied
+        this.snapshotClientDAO = new SnapshotClientDAO(cachedClientDAO, null);
+        this.clientDAO = new AsyncDAO<>(snapshotClientDAO, daoExecutor);
+        // Reads the clients it compares from the search index, which already holds them
+        this.duplicateIndex = new DuplicateIndex(searchIndex::get);
+        this.clientObservableList = new PagedList<>(clientDAO, Client::getId, PAGE_SIZE, MAX_PAGES, PREFETCH_MARGIN, Platform::runLater);
+
+        // Reads the changes of the clients on its own thread, one read at a time
+        this.changeFeed = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "client-change-feed");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
     }
 
     /**
@@ -40,31 +157,35 @@ public final class Index implements Initializable {
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // Initializes the ArrayList
-        ArrayList<Client> databaseClients = null;
+        // Opens a first connection while the window shows, the operations started meanwhile wait for the pool
+        connect();
 
-        try {
-            // Fills an ArrayList with all the clients on the database
-            databaseClients = clientDAO.list();
-        } catch (SQLException e) {
-            // Pretty prints the exception
-            new ExceptionPrinter<>(e).print();
-        }
+        // Counts the clients and fills the search index, from the local snapshot when there is one
+        // The pages are only loaded when the TableView renders them
+        whenDone(CompletableFuture.runAsync(this::start, changeFeed), done -> { });
 
-        if (databaseClients != null) {
-            // Adds all the clients from the database to the client's observable list
-            this.clientObservableList.addAll(databaseClients);
-        }
+        // Then only applies the changes made since
+        changeFeed.scheduleWithFixedDelay(this::poll, SYNC_INTERVAL, SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+
+        // Keeps the change log from growing forever, between two polls so it never deletes under a read
+        changeFeed.scheduleWithFixedDelay(this::purgeChanges, PURGE_INTERVAL, PURGE_INTERVAL, TimeUnit.MILLISECONDS);
 
         // Defines the value the TableColumns will have to observe for changes
-        this.firstName.setCellValueFactory(new PropertyValueFactory<>("firstName"));
-        this.lastName.setCellValueFactory(new PropertyValueFactory<>("lastName"));
+        // The rows are null while their page loads
+        this.firstName.setCellValueFactory(cell -> cell.getValue() == null ? null : cell.getValue().firstNameProperty());
+        this.lastName.setCellValueFactory(cell -> cell.getValue() == null ? null : cell.getValue().lastNameProperty());
 
         // Set the items for the clients TableView
         this.clients.setItems(clientObservableList);
 
+        // Filters the TableView through the search index as the user types
+        searchText.textProperty().addListener((observable, oldValue, newValue) -> filter(newValue));
+
         // Fills the form with the information of the selected client on the TableView
         clients.getSelectionModel().getSelectedItems().addListener((ListChangeListener<Client>) c -> {
+            // The selection is cleared when the pages are reloaded
+            if (c.getList().isEmpty() || c.getList().get(0) == null) return;
+
             addressText.setText(c.getList().get(0).getAddress());
             cityText.setText(c.getList().get(0).getCity());
             firstNameText.setText(c.getList().get(0).getFirstName());
@@ -72,6 +193,42 @@ public final class Index implements Initializable {
         });
     }
 
+    /**
+     * Flushes the queued edits and stops the background work, called when the application exits
+     */
+    public void close() {
+        changeFeed.shutdownNow();
+
+        if (writeBehindClientDAO != null) {
+            writeBehindClientDAO.close();
+        }
+
+        if (SNAPSHOT) saveSnapshot();
+
+        daoExecutor.close();
+    }
+
+    /**
+     * Shows the connecting state until the database answers, and tries again while it can't be reached
+     */
+    private void connect() {
+        DataSource.warmUp().whenCompleteAsync((done, error) -> {
+            if (error == null) {
+                connection.setVisible(false);
+                Startup.mark("database connected");
+
+                return;
+            }
+
+            // Pretty prints the exception, the operations fail until the database answers
+            new ExceptionPrinter<>(ExceptionPrinter.unwrap(error)).print();
+            connection.setText("Base de données injoignable, nouvelle tentative...");
+
+            // Not scheduled on the change feed, which may itself be waiting for a connection
+            CompletableFuture.runAsync(this::connect, CompletableFuture.delayedExecutor(SYNC_INTERVAL, TimeUnit.MILLISECONDS, Platform::runLater));
+        }, Platform::runLater);
+    }
+
     /**
      * Adds a client from the database and TableView on add button action
      */
@@ -85,21 +242,20 @@ public final class Index implements Initializable {
         client.setLastName(lastNameText.getText());
 
         // Validates the client
-        boolean isValid = Validator.validateClient(client);
+        List<FieldError> errors = ClientValidator.DEFAULT.validate(client);
 
-        try {
-            if (isValid) {
-                // Inserts the new client into the database
-                clientDAO.insert(client);
+        if (errors.isEmpty()) {
+            if (!confirmDuplicates(client, "Annulation - Ajout")) return;
 
-                // Adds the client to the TableView
-                clientObservableList.add(client);
-            } else {
-                AlertUtils.alert(Alert.AlertType.ERROR, "Certains de vos champs contiennent des erreurs.", "Erreur - Ajout");
-            }
-        } catch (SQLException e) {
-            // Pretty prints the exception
-            new ExceptionPrinter<>(e).print();
+            // Inserts the new client into the database
+            whenDone(clientDAO.insert(client), inserted -> {
+                // Reads the change right away so the TableView shows the new client
+                changeFeed.execute(this::poll);
+                indexClient(client);
+                filter(searchText.getText());
+            });
+        } else {
+            alertErrors(errors);
         }
     }
 
@@ -110,31 +266,30 @@ public final class Index implements Initializable {
     private void delete() {
         // If the user has select a client
         if (!clients.getSelectionModel().getSelectedItems().isEmpty()) {
-            try {
-                // Creates the buttons type for the confirmation
-                ButtonType cancel = new ButtonType("Annuler");
-                ButtonType confirm = new ButtonType("Confirmer");
+            // Creates the buttons type for the confirmation
+            ButtonType cancel = new ButtonType("Annuler");
+            ButtonType confirm = new ButtonType("Confirmer");
 
-                // Sends the confirmation to the user
-                ButtonType isConfirmed = AlertUtils.confirm(cancel, confirm);
+            // Sends the confirmation to the user
+            ButtonType isConfirmed = AlertUtils.confirm(cancel, confirm);
 
-                // If the user confirmed
-                if (isConfirmed.equals(confirm)) {
-                    // Deletes the client from the database
-                    clientDAO.delete(clients.getSelectionModel().getSelectedItem().getId());
+            // If the user confirmed
+            if (isConfirmed.equals(confirm)) {
+                int id = clients.getSelectionModel().getSelectedItem().getId();
 
-                    // Removes the client from the TableView
-                    clientObservableList.remove(clients.getSelectionModel().getSelectedIndex());
+                // Deletes the client from the database
+                whenDone(clientDAO.delete(id), deleted -> {
+                    // Reads the change right away so the TableView drops the deleted client
+                    changeFeed.execute(this::poll);
+                    unindexClient(id);
+                    filter(searchText.getText());
 
                     // Sends an information alert to the user
                     AlertUtils.alert(Alert.AlertType.INFORMATION, "Le client à été supprimé", "Suppression - Client");
-                } else {
-                    // Sends an information alert to the user
-                    AlertUtils.alert(Alert.AlertType.INFORMATION, "La suppression à été annulée.", "Annulation - Suppresion");
-                }
-            } catch (SQLException e) {
-                // Pretty prints the exception
-                new ExceptionPrinter<>(e).print();
+                });
+            } else {
+                // Sends an information alert to the user
+                AlertUtils.alert(Alert.AlertType.INFORMATION, "La suppression à été annulée.", "Annulation - Suppresion");
             }
         } else {
             // Otherwise sends an Error alert to the user
@@ -149,40 +304,514 @@ public final class Index implements Initializable {
     private void modify() {
         // If the user has select a client
         if (!clients.getSelectionModel().getSelectedItems().isEmpty()) {
+            Client selected = clients.getSelectionModel().getSelectedItem();
+
+            // Edits a copy of the row, with the version it was read with
+            Client updatedClient = new Client(selected);
+
+            updatedClient.setAddress(addressText.getText());
+            updatedClient.setCity(cityText.getText());
+            updatedClient.setFirstName(firstNameText.getText());
+            updatedClient.setLastName(lastNameText.getText());
+
+            // Validates the client
+            List<FieldError> errors = ClientValidator.DEFAULT.validate(updatedClient);
+
+            if (errors.isEmpty()) {
+                if (!confirmDuplicates(updatedClient, "Annulation - Mise à jour")) return;
+
+                // Updates the client from the database, unless another workstation modified it meanwhile
+                whenDone(clientDAO.update(updatedClient), updated -> {
+                    // Updates the row in place, its cells observe its properties so the TableView keeps its
+                    // order and position
+                    selected.copy(updatedClient);
+
+                    // The search results are copies, the row may also be loaded in the paged list
+                    Client paged = clientObservableList.getLoaded(selected.getId());
+
+                    if (paged != null && paged != selected) paged.copy(updatedClient);
+
+                    indexClient(updatedClient);
+
+                    // Sends an information alert to the user
+                    AlertUtils.alert(Alert.AlertType.INFORMATION, "Le client à été mis à jour", "Mis à Jour - Client");
+                });
+            } else {
+                alertErrors(errors);
+            }
+        } else {
+            // Otherwise sends an Error alert to the user
+            AlertUtils.alert(Alert.AlertType.ERROR, "Vous devez choisir un client à mettre à jour.", "Erreur - Selection");
+        }
+    }
+
+    /**
+     * Imports the clients of a CSV file chosen by the user on import button action
+     */
+    @FXML
+    private void importClients() {
+        FileChooser chooser = new FileChooser();
+
+        chooser.setTitle("Importer des clients");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Fichiers CSV", "*.csv"));
+
+        File file = chooser.showOpenDialog(clients.getScene().getWindow());
+
+        if (file == null) return;
+
+        Path csv = file.toPath();
+        Path rejects = csv.resolveSibling(csv.getFileName() + ".rejets.csv");
+        ClientCsvImporter importer = new ClientCsvImporter(bulkClientDAO);
+
+        // Runs on its own thread, the import would hold the DAO queue for minutes
+        CompletableFuture<ImportReport> operation = CompletableFuture.supplyAsync(() -> {
             try {
-                // Retreives the client with the given id
-                Client updatedClient = clientDAO.find(clients.getSelectionModel().getSelectedItem().getId());
-
-                if (updatedClient != null) {
-                    updatedClient.setAddress(addressText.getText());
-                    updatedClient.setCity(cityText.getText());
-                    updatedClient.setFirstName(firstNameText.getText());
-                    updatedClient.setLastName(lastNameText.getText());
-
-                    // Validates the client
-                    boolean isValid = Validator.validateClient(updatedClient);
-
-                    if (isValid) {
-                        // Updates the client from the database
-                        clientDAO.update(updatedClient);
-
-                        // Workaround for refreshing TableView
-                        clientObservableList.remove(clients.getSelectionModel().getSelectedIndex());
-                        clientObservableList.add(updatedClient);
-
-                        // Sends an information alert to the user
-                        AlertUtils.alert(Alert.AlertType.INFORMATION, "Le client à été mis à jour", "Mis à Jour - Client");
-                    } else {
-                        AlertUtils.alert(Alert.AlertType.ERROR, "Certains de vos champs contiennent des erreurs.", "Erreur - Ajout");
+                return importer.importFile(csv, rejects, report -> Platform.runLater(() -> busy.setProgress(report.getProgress())));
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, background("csv-import"));
+
+        whenDone(operation, report -> {
+            busy.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+
+            // Reloads the TableView and the search index with the new clients, cheaper than reading their changes
+            changeFeed.execute(this::resync);
+            index();
+
+            String rejected = report.getRejected() == 0 ? "" : String.format("%n%d lignes rejetées, voir %s", report.getRejected(), rejects);
+
+            AlertUtils.alert(Alert.AlertType.INFORMATION, String.format("%d clients importés.%s", report.getImported(), rejected), "Import - Clients");
+        });
+    }
+
+    /**
+     * Exports all the clients to a CSV file chosen by the user on export button action
+     */
+    @FXML
+    private void exportClients() {
+        FileChooser chooser = new FileChooser();
+
+        chooser.setTitle("Exporter les clients");
+        chooser.setInitialFileName("clients.csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Fichiers CSV", "*.csv"));
+
+        File file = chooser.showSaveDialog(clients.getScene().getWindow());
+
+        if (file == null) return;
+
+        ClientCsvExporter exporter = new ClientCsvExporter(cachedClientDAO);
+
+        CompletableFuture<Long> operation = CompletableFuture.supplyAsync(() -> {
+            try {
+                return exporter.exportFile(file.toPath(), written -> { });
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, background("csv-export"));
+
+        whenDone(operation, written -> AlertUtils.alert(Alert.AlertType.INFORMATION, String.format("%d clients exportés.", written), "Export - Clients"));
+    }
+
+    /**
+     * Fills the search index on its own thread so the scan does not hold the DAO queue, and writes the local snapshot
+     * from the same scan
+     */
+    private void index() {
+        background("client-search-indexer").execute(() -> {
+            // One rescan at a time, the changes recorded during a rescan belong to it
+            synchronized (rescanLock) {
+                try {
+                    // Read before the scan, the changes made during it are applied again to the snapshot which is harmless,
+                    // no snapshot is written while a change is pending
+                    long token = SNAPSHOT ? bulkClientDAO.changeToken() : -1;
+
+                    // Recorded from before the cursor is opened, so no change newer than its rows is missed
+                    synchronized (indexLock) {
+                        changedDuringRescan = new HashMap<>();
+                    }
+
+                    try (Stream<Client> databaseClients = cachedClientDAO.stream()) {
+                        synchronized (indexLock) {
+                            searchIndex.clear();
+                            duplicateIndex.clear();
+
+                            // Applies again the changes the clear dropped
+                            changedDuringRescan.values().stream().filter(Objects::nonNull).forEach(this::replace);
+                        }
+
+                        Iterator<Client> clients = databaseClients.peek(this::indexScanned).iterator();
+
+                        if (token < 0) {
+                            clients.forEachRemaining(client -> { });
+                        } else {
+                            ClientSnapshot.write(SNAPSHOT_DIRECTORY, snapshot, token, clients);
+                        }
+                    }
+                } catch (SQLException | IOException | IllegalStateException e) {
+                    // Pretty prints the exception
+                    new ExceptionPrinter<>(e).print();
+                } finally {
+                    synchronized (indexLock) {
+                        changedDuringRescan = null;
                     }
                 }
-            } catch (SQLException e) {
-                // Pretty prints the exception
-                new ExceptionPrinter<>(e).print();
             }
+
+            Platform.runLater(() -> filter(searchText.getText()));
+        });
+    }
+
+    /**
+     * Shows the clients of the local snapshot right away then reads the changes made since it was written, or counts
+     * the clients and scans them when there is no snapshot
+     * <p>
+     * Runs on the change feed thread.
+     */
+    private void start() {
+        ClientSnapshot loaded = null;
+
+        try {
+            loaded = SNAPSHOT ? ClientSnapshot.open(SNAPSHOT_DIRECTORY) : null;
+        } catch (IOException e) {
+            // Pretty prints the exception, the clients are read from the database
+            new ExceptionPrinter<>(e).print();
+        }
+
+        if (loaded == null) {
+            resync();
+            index();
+            Platform.runLater(Startup::done);
+
+            return;
+        }
+
+        ClientSnapshot current = loaded;
+
+        snapshot = current;
+        changeToken = current.getToken();
+        snapshotClientDAO.attach(current);
+
+        Platform.runLater(() -> clientObservableList.reset(current.size()));
+
+        // Filled before the changes are applied, which would otherwise be overwritten
+        for (int i = 0; i < current.size(); i++) {
+            indexClient(current.get(i));
+        }
+
+        Platform.runLater(() -> filter(searchText.getText()));
+        // Shown before the database is read
+        Platform.runLater(Startup::done);
+
+        poll();
+    }
+
+    /**
+     * Writes the local snapshot again with the changes made since it was read, without scanning the clients
+     */
+    private void saveSnapshot() {
+        try {
+            ClientSnapshot previous = snapshot != null ? snapshot : ClientSnapshot.open(SNAPSHOT_DIRECTORY);
+
+            if (previous == null) return;
+
+            ClientChanges changes = bulkClientDAO.changesSince(previous.getToken());
+
+            // Too many changes, the next launch reloads the clients and writes a new snapshot
+            if (changes == null || changes.isOverflow() || changes.isEmpty()) return;
+
+            ClientSnapshot.write(SNAPSHOT_DIRECTORY, previous, changes.getToken(), previous.merge(changes));
+        } catch (IOException | SQLException e) {
+            // Pretty prints the exception
+            new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Reads the changes made to the clients since the last ones applied, by any workstation, then applies them
+     * <p>
+     * Runs on the change feed thread.
+     */
+    private void poll() {
+        if (changeToken < 0) {
+            resync();
+
+            return;
+        }
+
+        try {
+            ClientChanges changes = bulkClientDAO.changesSince(changeToken);
+
+            // Tries again on the next poll
+            if (changes == null) return;
+
+            boolean fromSnapshot = snapshotClientDAO.isAttached();
+
+            if (changes.isOverflow()) {
+                resync();
+
+                // The search index was filled from the snapshot
+                if (fromSnapshot) index();
+            } else {
+                changeToken = changes.getToken();
+
+                // The first changes applied after loading the snapshot bring the list up to date with the database,
+                // the pages loaded from then on are read from the database
+                if (fromSnapshot || !changes.isEmpty()) {
+                    Platform.runLater(() -> {
+                        snapshotClientDAO.detach();
+                        apply(changes);
+                    });
+                }
+            }
+        } catch (SQLException e) {
+            // Pretty prints the exception
+            new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Deletes the changes no workstation needs anymore from the change log
+     * <p>
+     * Runs on the change feed thread.
+     */
+    private void purgeChanges() {
+        try {
+            bulkClientDAO.purgeChanges();
+        } catch (SQLException e) {
+            // Pretty prints the exception
+            new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Counts the clients and reads the token of the change log in one unit of work, then reloads the TableView
+     * <p>
+     * Runs on the change feed thread. Both reads see the same snapshot under the repeatable read isolation of
+     * MariaDB, so the following changes are neither missed nor counted twice.
+     */
+    private void resync() {
+        try {
+            int[] count = new int[1];
+
+            changeToken = DataSource.getUnitOfWork().call(connection -> {
+                // Read first, so the count sees the same snapshot
+                long token = bulkClientDAO.changeToken();
+
+                count[0] = token < 0 ? 0 : bulkClientDAO.count();
+
+                return token;
+            });
+
+            // A change is pending, the next poll reloads the list once it is committed
+            if (changeToken < 0) return;
+
+            Platform.runLater(() -> {
+                snapshotClientDAO.detach();
+                clientObservableList.reset(count[0]);
+            });
+        } catch (SQLException e) {
+            // Pretty prints the exception, the poll reads from the previous token
+            new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Applies changes to the TableView, the cache and the search index, on the JavaFX application thread
+     * <p>
+     * The rows are modified in place so the TableView keeps its selection and position. A deleted client whose
+     * position is unknown makes the whole list reload.
+     *
+     * @param changes The changes read by the last poll
+     */
+    private void apply(ClientChanges changes) {
+        for (Client client : changes.getUpdated()) {
+            cachedClientDAO.invalidate(client.getId());
+            indexClient(client);
+
+            Client row = clientObservableList.getLoaded(client.getId());
+
+            if (row != null) row.copy(client);
+
+            for (Client result : searchResults) {
+                if (result.getId() == client.getId()) result.copy(client);
+            }
+        }
+
+        for (Client client : changes.getInserted()) {
+            indexClient(client);
+        }
+
+        clientObservableList.appendInserted(changes.getInserted().size());
+
+        boolean positioned = true;
+
+        for (int id : changes.getDeleted()) {
+            cachedClientDAO.invalidate(id);
+            unindexClient(id);
+            searchResults.removeIf(result -> result.getId() == id);
+
+            if (!clientObservableList.removeDeleted(id)) positioned = false;
+        }
+
+        if (!positioned) changeFeed.execute(this::resync);
+    }
+
+    /**
+     * Indexes a client for the search and the duplicate checks, in place of its previous values
+     *
+     * @param client The client
+     */
+    private void indexClient(Client client) {
+        synchronized (indexLock) {
+            if (changedDuringRescan != null) changedDuringRescan.put(client.getId(), client);
+
+            replace(client);
+        }
+    }
+
+    /**
+     * Indexes a client read by a rescan, unless a change applied since the rescan started is newer
+     *
+     * @param client The client read by the rescan
+     */
+    private void indexScanned(Client client) {
+        synchronized (indexLock) {
+            if (!changedDuringRescan.containsKey(client.getId())) replace(client);
+        }
+    }
+
+    /**
+     * Replaces the previous values of a client in both indexes, with the index lock held
+     */
+    private void replace(Client client) {
+        Client previous = searchIndex.get(client.getId());
+
+        if (previous != null) duplicateIndex.remove(previous);
+
+        searchIndex.add(client);
+        duplicateIndex.add(client);
+    }
+
+    /**
+     * Removes a client from the search and the duplicate checks
+     *
+     * @param id The id of the client
+     */
+    private void unindexClient(int id) {
+        synchronized (indexLock) {
+            if (changedDuringRescan != null) changedDuringRescan.put(id, null);
+
+            Client previous = searchIndex.get(id);
+
+            if (previous != null) duplicateIndex.remove(previous);
+
+            searchIndex.remove(id);
+        }
+    }
+
+    /**
+     * Asks the user to confirm a client which looks like a known one
+     *
+     * @param client The client about to be saved
+     * @param title  The title of the alert when the user cancels
+     * @return {@code true} if the client has no duplicate or the user confirmed it
+     */
+    private boolean confirmDuplicates(Client client, String title) {
+        List<Duplicate> duplicates = duplicateIndex.check(client);
+
+        if (duplicates.isEmpty()) return true;
+
+        Client other = duplicates.get(0).getOther();
+        ButtonType cancel = new ButtonType("Annuler");
+        ButtonType confirm = new ButtonType("Enregistrer quand même");
+
+        ButtonType isConfirmed = AlertUtils.confirm(String.format("Ce client ressemble à %s %s (%s), déjà enregistré. Est-ce bien un autre client ?",
+                other.getFirstName(), other.getLastName(), other.getCity()), cancel, confirm);
+
+        if (confirm.equals(isConfirmed)) return true;
+
+        AlertUtils.alert(Alert.AlertType.INFORMATION, "Le client n'a pas été enregistré.", title);
+
+        return false;
+    }
+
+    /**
+     * Tells the user which fields of the form are invalid
+     *
+     * @param errors The errors of the fields
+     */
+    private void alertErrors(List<FieldError> errors) {
+        StringBuilder message = new StringBuilder("Certains de vos champs contiennent des erreurs.");
+
+        for (FieldError error : errors) {
+            message.append('\n').append(error.getMessage());
+        }
+
+        AlertUtils.alert(Alert.AlertType.ERROR, message.toString(), "Erreur - Ajout");
+    }
+
+    /**
+     * Tells the user an update was rejected because another workstation modified or deleted the client first
+     */
+    private void conflicted() {
+        // Reads the changes right away so the row shows what the other workstation saved
+        changeFeed.execute(this::poll);
+
+        AlertUtils.alert(Alert.AlertType.WARNING, "Ce client a été modifié ou supprimé depuis un autre poste, vérifiez-le puis recommencez.", "Conflit - Client");
+    }
+
+    /**
+     * Shows the clients matching the query, or all the clients for a blank query
+     *
+     * @param query The words typed in the search field
+     */
+    private void filter(String query) {
+        if (query == null || query.isBlank()) {
+            clients.setItems(clientObservableList);
         } else {
-            // Otherwise sends an Error alert to the user
-            AlertUtils.alert(Alert.AlertType.ERROR, "Vous devez choisir un client à mettre à jour.", "Erreur - Selection");
+            searchResults.setAll(searchIndex.search(query, SEARCH_LIMIT));
+            clients.setItems(searchResults);
         }
     }
+
+    /**
+     * Shows the busy indicator until a database operation is done, then applies its result on the JavaFX
+     * application thread
+     *
+     * @param operation The running operation
+     * @param onSuccess Applies the result of the operation
+     * @param <R>       The result of the operation
+     */
+    private <R> void whenDone(CompletableFuture<R> operation, Consumer<R> onSuccess) {
+        busy.setVisible(++pending > 0);
+
+        operation.whenCompleteAsync((result, error) -> {
+            busy.setVisible(--pending > 0);
+
+            if (error == null) {
+                onSuccess.accept(result);
+            } else if (ExceptionPrinter.unwrap(error) instanceof RejectedExecutionException) {
+                AlertUtils.alert(Alert.AlertType.ERROR, "La base de données est surchargée, réessayez plus tard.", "Erreur - Base de données");
+            } else if (ExceptionPrinter.unwrap(error) instanceof ConflictException) {
+                conflicted();
+            } else {
+                // Pretty prints the exception
+                new ExceptionPrinter<>(ExceptionPrinter.unwrap(error)).print();
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * @param name The name of the threads
+     * @return An executor running each task on a new daemon thread
+     */
+    private static Executor background(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
 }
@@ -0,0 +1,73 @@
+package org.afpa.dal.csv;
+
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.models.Client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Exports the clients to a CSV file as they are streamed from the database, without holding them in memory
+ *
+ * @see ClientCsvImporter
+ */
+public final class ClientCsvExporter {
+    /**
+     * Clients written between two progress reports
+     */
+    public static final int PROGRESS_INTERVAL = 1000;
+
+    private final CRUD<Client> clientDAO;
+
+    /**
+     * Primary constructor
+     *
+     * @param clientDAO The DAO streaming the clients
+     */
+    public ClientCsvExporter(CRUD<Client> clientDAO) {
+        this.clientDAO = clientDAO;
+    }
+
+    /**
+     * Exports all the clients
+     *
+     * @param csv      The UTF-8 file to write, replaced if it exists
+     * @param progress Receives the number of clients written so far, every {@value #PROGRESS_INTERVAL} clients
+     * @return The number of clients written
+     * @throws IOException  If the file can't be written
+     * @throws SQLException If the clients can't be read
+     */
+    public long exportFile(Path csv, LongConsumer progress) throws IOException, SQLException {
+        long written = 0;
+
+        try (Stream<Client> clients = clientDAO.stream();
+             CsvWriter writer = new CsvWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            writer.write("cli_id", "cli_nom", "cli_prenom", "cli_adresse", "cli_ville");
+
+            Iterator<Client> iterator = clients.iterator();
+
+            while (iterator.hasNext()) {
+                Client client = iterator.next();
+
+                writer.write(String.valueOf(client.getId()), client.getLastName(), client.getFirstName(), client.getAddress(), client.getCity());
+
+                if (++written % PROGRESS_INTERVAL == 0) progress.accept(written);
+            }
+        } catch (IllegalStateException e) {
+            // The stream wraps the errors raised while reading the rows
+            if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+
+            throw e;
+        }
+
+        progress.accept(written);
+
+        return written;
+    }
+}
@@ -0,0 +1,341 @@
+package org.afpa.dal.csv;
+
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.validation.ClientValidator;
+import org.afpa.dal.validation.FieldError;
+import org.afpa.dal.validation.ValidationReport;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Imports clients from a CSV file in a two stage pipeline
+ * <p>
+ * A reader thread parses the records and validates them a chunk at a time, in parallel, then hands them over to the
+ * calling thread which writes them to the database. The chunks go through a bounded queue, so a slow database blocks the reader instead
+ * of filling the memory: at most {@code queueCapacity + 2} chunks are held at once, whatever the size of the file.
+ * <p>
+ * The file starts with a header naming its columns, {@code cli_nom}, {@code cli_prenom}, {@code cli_adresse} and
+ * {@code cli_ville} or the same without the {@code cli_} prefix, in any order. Other columns such as the
+ * {@code cli_id} written by {@link ClientCsvExporter} are ignored. Records which fail the {@link ClientValidator} are
+ * copied to the reject file along with the errors of their fields.
+ */
+public final class ClientCsvImporter {
+    /**
+     * Clients written to the database at once
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+
+    /**
+     * Chunks waiting for the database before the reader blocks
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    private static final List<Client> END = new ArrayList<>();
+    private static final String[] COLUMNS = {"cli_nom", "cli_prenom", "cli_adresse", "cli_ville"};
+
+    private final boolean bulkLoad;
+    private final int chunkSize;
+    private final ClientDAO clientDAO;
+    private final int queueCapacity;
+
+    /**
+     * Primary constructor
+     *
+     * @param clientDAO The DAO writing the clients
+     */
+    public ClientCsvImporter(ClientDAO clientDAO) {
+        this(clientDAO, DEFAULT_CHUNK_SIZE, DEFAULT_QUEUE_CAPACITY, true);
+    }
+
+    /**
+     * @param clientDAO     The DAO writing the clients
+     * @param chunkSize     The number of clients written to the database at once
+     * @param queueCapacity The number of chunks waiting for the database before the reader blocks
+     * @param bulkLoad      True to use {@link ClientDAO#loadAll(List)}, else {@link ClientDAO#insertAll(List)}
+     */
+    public ClientCsvImporter(ClientDAO clientDAO, int chunkSize, int queueCapacity, boolean bulkLoad) {
+        if (chunkSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("The chunk size and the queue capacity must be positive");
+        }
+
+        this.bulkLoad = bulkLoad;
+        this.chunkSize = chunkSize;
+        this.clientDAO = clientDAO;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Imports the clients of a CSV file
+     * <p>
+     * Each chunk is committed on its own, the chunks written before a failure stay in the database.
+     *
+     * @param csv      The UTF-8 file to import
+     * @param rejects  The file receiving the invalid records, or null to drop them
+     * @param progress Receives the progress after each chunk, on the calling thread
+     * @return The final report
+     * @throws IOException  If a file can't be read or written, or its header is incomplete
+     * @throws SQLException If a chunk could not be written to the database
+     */
+    public ImportReport importFile(Path csv, Path rejects, Consumer<ImportReport> progress) throws IOException, SQLException {
+        long totalBytes = Files.size(csv);
+        AtomicLong bytesRead = new AtomicLong();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong read = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicReference<IOException> readFailure = new AtomicReference<>();
+        BlockingQueue<List<Client>> chunks = new ArrayBlockingQueue<>(queueCapacity);
+
+        // Opened here so a missing file fails before the reader starts
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(
+                new CountingInputStream(Files.newInputStream(csv), bytesRead), StandardCharsets.UTF_8), 1 << 16));
+
+        Thread readerThread = new Thread(() -> {
+            try (reader; CsvWriter rejectWriter = rejects == null ? null : new CsvWriter(Files.newBufferedWriter(rejects, StandardCharsets.UTF_8))) {
+                read(reader, rejectWriter, chunks, read, rejected);
+            } catch (IOException e) {
+                readFailure.set(e);
+            } catch (InterruptedException e) {
+                // The writer gave up, nobody waits for the end
+                return;
+            }
+
+            try {
+                chunks.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "csv-import-reader");
+
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        try {
+            while (true) {
+                List<Client> chunk = chunks.take();
+
+                if (chunk == END) break;
+
+                int written = bulkLoad ? clientDAO.loadAll(chunk) : length(clientDAO.insertAll(chunk));
+
+                if (written < 0) {
+                    throw new SQLException("A chunk could not be imported after " + imported.get() + " clients");
+                }
+
+                imported.addAndGet(written);
+
+                progress.accept(new ImportReport(bytesRead.get(), imported.get(), read.get(), rejected.get(), totalBytes));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("The import was interrupted");
+        } finally {
+            // Stops the reader if the writer failed
+            readerThread.interrupt();
+        }
+
+        if (readFailure.get() != null) throw readFailure.get();
+
+        ImportReport report = new ImportReport(bytesRead.get(), imported.get(), read.get(), rejected.get(), totalBytes);
+
+        progress.accept(report);
+
+        return report;
+    }
+
+    /**
+     * Parses and validates the records, then queues the valid ones by chunks
+     */
+    private void read(CsvReader reader, CsvWriter rejectWriter, BlockingQueue<List<Client>> chunks, AtomicLong read, AtomicLong rejected)
+            throws IOException, InterruptedException {
+        List<String> header = reader.next();
+
+        if (header == null) return;
+
+        int[] indexes = columns(header);
+
+        if (rejectWriter != null) {
+            List<String> rejectHeader = new ArrayList<>(header);
+
+            rejectHeader.add("raison");
+            rejectWriter.write(rejectHeader.toArray(new String[0]));
+        }
+
+        List<Record> pending = new ArrayList<>(chunkSize);
+        List<String> record;
+
+        while ((record = reader.next()) != null) {
+            // Skips the blank lines
+            if (record.size() == 1 && record.get(0).isEmpty()) continue;
+
+            read.incrementAndGet();
+
+            Client client = null;
+
+            if (record.size() == header.size()) {
+                client = new Client(record.get(indexes[2]).trim(), record.get(indexes[3]).trim(),
+                        record.get(indexes[1]).trim(), 0, record.get(indexes[0]).trim());
+            }
+
+            pending.add(new Record(record, reader.getLine(), client));
+
+            if (pending.size() == chunkSize) {
+                validate(pending, rejectWriter, chunks, rejected);
+                pending = new ArrayList<>(chunkSize);
+            }
+
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+
+        if (!pending.isEmpty()) validate(pending, rejectWriter, chunks, rejected);
+    }
+
+    /**
+     * Validates the records of a chunk at once, writes the rejected ones then queues the clients of the others
+     */
+    private void validate(List<Record> pending, CsvWriter rejectWriter, BlockingQueue<List<Client>> chunks, AtomicLong rejected)
+            throws IOException, InterruptedException {
+        List<Client> clients = new ArrayList<>(pending.size());
+
+        for (Record record : pending) {
+            if (record.client != null) clients.add(record.client);
+        }
+
+        ValidationReport report = ClientValidator.DEFAULT.validateAll(clients);
+        List<Client> chunk = new ArrayList<>(clients.size() - report.getInvalidCount());
+        int index = 0;
+
+        for (Record record : pending) {
+            String reason;
+
+            if (record.client == null) {
+                reason = "Nombre de colonnes invalide à la ligne " + record.line;
+            } else if (report.isValid(index)) {
+                chunk.add(clients.get(index++));
+
+                continue;
+            } else {
+                StringBuilder errors = new StringBuilder("Client invalide à la ligne ").append(record.line).append(" :");
+
+                for (FieldError error : report.getErrors(index++)) {
+                    errors.append(' ').append(error.getMessage());
+                }
+
+                reason = errors.toString();
+            }
+
+            rejected.incrementAndGet();
+
+            if (rejectWriter != null) {
+                List<String> reject = new ArrayList<>(record.values);
+
+                reject.add(reason);
+                rejectWriter.write(reject.toArray(new String[0]));
+            }
+        }
+
+        // Blocks while the database is behind
+        if (!chunk.isEmpty()) chunks.put(chunk);
+    }
+
+    /**
+     * Finds the index of each expected column in the header
+     *
+     * @param header The names of the columns of the file
+     * @return The index of {@code cli_nom}, {@code cli_prenom}, {@code cli_adresse} and {@code cli_ville}
+     * @throws IOException If a column is missing
+     */
+    private static int[] columns(List<String> header) throws IOException {
+        int[] indexes = new int[COLUMNS.length];
+
+        Arrays.fill(indexes, -1);
+
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (name.equals(COLUMNS[column]) || name.equals(COLUMNS[column].substring(4))) {
+                    indexes[column] = i;
+                }
+            }
+        }
+
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if (indexes[column] < 0) throw new IOException("The column " + COLUMNS[column] + " is missing from the header");
+        }
+
+        return indexes;
+    }
+
+    private static int length(int[] ids) {
+        return ids == null ? -1 : ids.length;
+    }
+
+    /**
+     * A record read from the file, waiting for the validation of its chunk
+     */
+    private static final class Record {
+        private final Client client;
+        private final long line;
+        private final List<String> values;
+
+        /**
+         * @param client The client of the record, or null if the record has the wrong number of columns
+         */
+        private Record(List<String> values, long line, Client client) {
+            this.client = client;
+            this.line = line;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Counts the bytes read from a stream, to report the progress of the import
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        private CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+
+            if (b >= 0) count.incrementAndGet();
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+
+            if (n > 0) count.addAndGet(n);
+
+            return n;
+        }
+    }
+}
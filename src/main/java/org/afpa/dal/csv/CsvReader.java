@@ -0,0 +1,102 @@
+package org.afpa.dal.csv;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records one at a time
+ * <p>
+ * Fields are separated by commas, a field holding a comma, a quote or a line break is enclosed in quotes and its
+ * quotes are doubled. Only the current record is held in memory.
+ */
+public final class CsvReader implements Closeable {
+    private final BufferedReader reader;
+    private long line;
+
+    /**
+     * Primary constructor
+     *
+     * @param reader The buffered source of the records
+     */
+    public CsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record
+     *
+     * @return The fields of the record, or null at the end of the input
+     * @throws IOException If the input can't be read or ends inside a quoted field
+     */
+    public List<String> next() throws IOException {
+        String text = reader.readLine();
+
+        if (text == null) return null;
+
+        line++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) break;
+
+                // A quoted field goes on over the next line
+                text = reader.readLine();
+
+                if (text == null) throw new IOException("Unterminated quoted field at line " + line);
+
+                line++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+
+            char c = text.charAt(i++);
+
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < text.length() && text.charAt(i) == '"') {
+                    // An escaped quote
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    /**
+     * @return The number of lines read so far
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
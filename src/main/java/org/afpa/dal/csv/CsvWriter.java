@@ -0,0 +1,64 @@
+package org.afpa.dal.csv;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes RFC 4180 records, quoting only the fields which need it
+ *
+ * @see CsvReader
+ */
+public final class CsvWriter implements Closeable, Flushable {
+    private final BufferedWriter writer;
+
+    /**
+     * Primary constructor
+     *
+     * @param writer The buffered destination of the records
+     */
+    public CsvWriter(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes a record followed by a line break
+     *
+     * @param fields The fields of the record, null fields are written empty
+     * @throws IOException If the output can't be written
+     */
+    public void write(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) writer.write(',');
+
+            String field = fields[i] == null ? "" : fields[i];
+
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+                writer.write(field);
+            } else {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+
+        writer.newLine();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
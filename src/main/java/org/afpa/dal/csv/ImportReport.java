@@ -0,0 +1,67 @@
+package org.afpa.dal.csv;
+
+/**
+ * The progress of a CSV import at a given time
+ */
+public final class ImportReport {
+    private final long bytesRead;
+    private final long imported;
+    private final long read;
+    private final long rejected;
+    private final long totalBytes;
+
+    public ImportReport(long bytesRead, long imported, long read, long rejected, long totalBytes) {
+        this.bytesRead = bytesRead;
+        this.imported = imported;
+        this.read = read;
+        this.rejected = rejected;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * @return The number of bytes of the file read so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The number of clients written to the database
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * @return The fraction of the file read so far, between 0 and 1
+     */
+    public double getProgress() {
+        return totalBytes == 0 ? 1 : Math.min(1, (double) bytesRead / totalBytes);
+    }
+
+    /**
+     * @return The number of records read, header excluded
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * @return The number of records written to the reject file
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return The size of the file in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d read, %d imported, %d rejected (%.0f%%)", read, imported, rejected, getProgress() * 100);
+    }
+}
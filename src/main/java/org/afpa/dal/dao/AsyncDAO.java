@@ -0,0 +1,143 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.interfaces.AsyncCRUD;
+import org.afpa.dal.interfaces.CRUD;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the operations of a DAO on an executor and returns their results as futures
+ * <p>
+ * The futures complete on the executor threads, callers on the JavaFX application thread should apply the results
+ * with {@code Platform::runLater}.
+ *
+ * @param <T> The model of the DAO
+ * @see AsyncCRUD
+ */
+public final class AsyncDAO<T> implements AsyncCRUD<T> {
+    private final CRUD<T> dao;
+    private final Executor executor;
+
+    /**
+     * Primary constructor
+     *
+     * @param dao      The DAO to run
+     * @param executor The executor running the operations
+     */
+    public AsyncDAO(CRUD<T> dao, Executor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Integer> count() {
+        return supply(dao::count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> delete(int id) {
+        return supply(() -> {
+            dao.delete(id);
+
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<T> find(int id) {
+        return supply(() -> dao.find(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Integer> idAt(int position) {
+        return supply(() -> dao.idAt(position));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> insert(T object) {
+        return supply(() -> {
+            dao.insert(object);
+
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ArrayList<T>> list() {
+        return supply(dao::list);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ArrayList<T>> page(int afterId, int size) {
+        return supply(() -> dao.page(afterId, size));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> update(T object) {
+        return supply(() -> {
+            dao.update(object);
+
+            return null;
+        });
+    }
+
+    /**
+     * Runs an operation on the executor
+     *
+     * @param operation The operation to run
+     * @param <R>       The result of the operation
+     * @return The future result, completed exceptionally if the operation failed or the executor rejected it
+     */
+    private <R> CompletableFuture<R> supply(Operation<R> operation) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return operation.run();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RuntimeException e) {
+            // The executor refused the operation
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * A DAO operation which may throw a SQLException
+     *
+     * @param <R> The result of the operation
+     */
+    @FunctionalInterface
+    private interface Operation<R> {
+        R run() throws SQLException;
+    }
+}
@@ -0,0 +1,368 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.interfaces.CRUD;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A read-through cache in front of any DAO, keyed by the id of the models
+ * <p>
+ * The cache holds at most {@code maxSize} entries, each for at most {@code ttl}. Once full, the least recently read
+ * entry among a small sample is evicted, each sample starting where the previous one stopped so that every entry gets
+ * sampled in turn. Writes go to the DAO first then invalidate the written id, and a model read before an invalidation
+ * of its id is not cached. Models are copied in and out of the cache so callers can modify what they get without
+ * corrupting it.
+ *
+ * @param <T> The model of the DAO
+ * @see CRUD
+ */
+public final class CachedCRUD<T> implements CRUD<T> {
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+    // A power of two, the ids share the invalidation stamps of their stripe
+    private static final int STAMP_STRIPES = 64;
+
+    private final UnaryOperator<T> copier;
+    private final CRUD<T> dao;
+    private final Map<Integer, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final ToIntFunction<T> idExtractor;
+    private final int maxSize;
+    private final LongAdder misses = new LongAdder();
+    // Incremented by each invalidation of an id of the stripe, to refuse the models read before
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_STRIPES);
+    private final long ttlNanos;
+    // Where the next eviction sample starts, guarded by the cache
+    private Iterator<Map.Entry<Integer, Entry<T>>> hand;
+
+    /**
+     * Primary constructor
+     *
+     * @param dao         The DAO to cache
+     * @param idExtractor Returns the id of a model
+     * @param copier      Returns a copy of a model
+     * @param maxSize     The maximum number of cached models
+     * @param ttl         How long a model stays cached after being loaded
+     */
+    public CachedCRUD(CRUD<T> dao, ToIntFunction<T> idExtractor, UnaryOperator<T> copier, int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The cache must hold at least one entry");
+        }
+
+        this.copier = copier;
+        this.dao = dao;
+        this.idExtractor = idExtractor;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int count() throws SQLException {
+        return dao.count();
+    }
+
+    /**
+     * Deletes a model through the DAO then drops it from the cache
+     *
+     * @param id The id of the model to delete
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public void delete(int id) throws SQLException {
+        try {
+            dao.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    /**
+     * Deletes a model through the DAO then drops it from the cache
+     *
+     * @param id The id of the model to delete
+     * @return False if the delete failed
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public boolean remove(int id) throws SQLException {
+        try {
+            return dao.remove(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    /**
+     * Finds a model in the cache, or through the DAO on a miss
+     *
+     * @param id The id of the model to find
+     * @return A copy of the model
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public T find(int id) throws SQLException {
+        Entry<T> entry = entries.get(id);
+
+        if (entry != null) {
+            if (entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+
+                entry.lastAccess = System.nanoTime();
+
+                return copier.apply(entry.value);
+            }
+
+            // Drops the expired entry unless someone refreshed it meanwhile
+            if (entries.remove(id, entry)) evictions.increment();
+        }
+
+        misses.increment();
+
+        // Read before the DAO, a write committed meanwhile invalidates after and the stale model is not cached
+        long stamp = stamps.get(stripe(id));
+        T value = dao.find(id);
+
+        // The DAO returns an empty model when the id does not exist
+        if (value != null && idExtractor.applyAsInt(value) == id) {
+            put(value, stamp);
+        }
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int idAt(int position) throws SQLException {
+        return dao.idAt(position);
+    }
+
+    /**
+     * Inserts a model through the DAO then drops any stale entry with its id
+     *
+     * @param object The model to insert
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public void insert(T object) throws SQLException {
+        try {
+            dao.insert(object);
+        } finally {
+            invalidate(idExtractor.applyAsInt(object));
+        }
+    }
+
+    /**
+     * Lists the models through the DAO and caches them
+     *
+     * @return The models
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public ArrayList<T> list() throws SQLException {
+        long[] before = stamps();
+        ArrayList<T> values = dao.list();
+
+        if (values != null) values.forEach(value -> put(value, before[stripe(idExtractor.applyAsInt(value))]));
+
+        return values;
+    }
+
+    /**
+     * Loads a page through the DAO and caches its models
+     *
+     * @param afterId The id of the last model of the previous page
+     * @param size    The maximum number of models in the page
+     * @return The page
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public ArrayList<T> page(int afterId, int size) throws SQLException {
+        long[] before = stamps();
+        ArrayList<T> values = dao.page(afterId, size);
+
+        if (values != null) values.forEach(value -> put(value, before[stripe(idExtractor.applyAsInt(value))]));
+
+        return values;
+    }
+
+    /**
+     * Streams the models through the DAO, without caching them
+     *
+     * @return The models stream
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public Stream<T> stream() throws SQLException {
+        return dao.stream();
+    }
+
+    /**
+     * Updates a model through the DAO then drops it from the cache
+     *
+     * @param object The model to update
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public void update(T object) throws SQLException {
+        try {
+            dao.update(object);
+        } finally {
+            invalidate(idExtractor.applyAsInt(object));
+        }
+    }
+
+    /**
+     * Drops a model from the cache
+     *
+     * @param id The id of the model
+     */
+    public void invalidate(int id) {
+        // Before the removal, so a find which read the model earlier cannot cache it after
+        stamps.incrementAndGet(stripe(id));
+        entries.remove(id);
+    }
+
+    /**
+     * Drops every model from the cache
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < STAMP_STRIPES; i++) stamps.incrementAndGet(i);
+
+        entries.clear();
+    }
+
+    /**
+     * @return The number of entries evicted because the cache was full or because they expired
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of finds served from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of finds which went to the DAO
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of cached models
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param id The id of a model
+     * @return The invalidation stamp index of the id
+     */
+    private static int stripe(int id) {
+        return (id ^ id >>> 16) & STAMP_STRIPES - 1;
+    }
+
+    /**
+     * @return A copy of the invalidation stamps, taken before a read of many models
+     */
+    private long[] stamps() {
+        long[] copy = new long[STAMP_STRIPES];
+
+        for (int i = 0; i < STAMP_STRIPES; i++) copy[i] = stamps.get(i);
+
+        return copy;
+    }
+
+    /**
+     * Caches a copy of a model unless its id was invalidated since it was read, then evicts entries until the cache
+     * fits its maximum size
+     *
+     * @param value The model to cache
+     * @param stamp The invalidation stamp of its id before it was read
+     */
+    private void put(T value, long stamp) {
+        int id = idExtractor.applyAsInt(value);
+        long now = System.nanoTime();
+
+        // Checked under the lock of the entry, an invalidation increments the stamp before removing the entry
+        entries.compute(id, (key, entry) -> stamps.get(stripe(id)) == stamp
+                ? new Entry<>(copier.apply(value), now + ttlNanos, now)
+                : entry);
+
+        while (entries.size() > maxSize) {
+            evictOne(now);
+        }
+    }
+
+    /**
+     * Evicts the first expired entry of a sample, or the least recently read one
+     * <p>
+     * The sample continues the iteration of the previous one, like the hand of a clock, and starts over once it went
+     * through the whole cache.
+     *
+     * @param now The current time in nanoseconds
+     */
+    private void evictOne(long now) {
+        Map.Entry<Integer, Entry<T>> victim = null;
+
+        synchronized (this) {
+            for (int i = 0; i < EVICTION_SAMPLE_SIZE && !entries.isEmpty(); i++) {
+                if (hand == null || !hand.hasNext()) hand = entries.entrySet().iterator();
+
+                if (!hand.hasNext()) break;
+
+                Map.Entry<Integer, Entry<T>> candidate = hand.next();
+
+                if (candidate.getValue().expiresAt - now <= 0) {
+                    victim = candidate;
+                    break;
+                }
+
+                if (victim == null || candidate.getValue().lastAccess < victim.getValue().lastAccess) {
+                    victim = candidate;
+                }
+            }
+        }
+
+        if (victim != null && entries.remove(victim.getKey(), victim.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * A cached model
+     *
+     * @param <T> The model
+     */
+    private static final class Entry<T> {
+        private final long expiresAt;
+        private final T value;
+        private volatile long lastAccess;
+
+        private Entry(T value, long expiresAt, long lastAccess) {
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+            this.value = value;
+        }
+    }
+}
@@ -1,78 +1,558 @@
 package org.afpa.dal.dao;
 
 import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.interfaces.Queryable;
+import org.afpa.dal.interfaces.RowMapper;
+import org.afpa.dal.metrics.Metrics;
+import org.afpa.dal.metrics.OperationMetrics;
 import org.afpa.dal.models.Client;
+import org.afpa.dal.models.ClientChanges;
+import org.afpa.dal.models.ClientReservations;
+import org.afpa.dal.models.Reservation;
 import org.afpa.dal.shared.DataSource;
 import org.afpa.dal.shared.ExceptionPrinter;
+import org.afpa.dal.shared.Projection;
+import org.afpa.dal.shared.UnitOfWork;
+import org.mariadb.jdbc.MariaDbStatement;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The Data Access Object for the Client model.
+ * <p>
+ * Each operation borrows a pooled connection through its {@link UnitOfWork} and gives it back once done, so one
+ * instance can be shared by many threads.
+ * <p>
+ * The reads borrow from the read unit of work, spread over the replicas, unless they run in a transaction of the
+ * primary which they join. {@link #find(int, ReadConsistency)}, {@link #list(ReadConsistency)} and
+ * {@link #getLastClient(ReadConsistency)} read from the primary when asked to see the writes made before them. The
+ * writes, the change log and the bulk operations always go to the primary.
  *
  * @see CRUD
  * @see Client
  */
-public final class ClientDAO implements CRUD<Client> {
-    private final Connection connection;
+public final class ClientDAO implements CRUD<Client>, Queryable<Client, ClientQuery> {
+    /**
+     * Statements sent per batch by the bulk operations, each batch is committed on its own
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Milliseconds after which {@link #changesSince(long)} stops waiting for a missing change id, whose transaction
+     * then rolled back or runs longer than any unit of work of the application
+     */
+    public static final long GAP_TIMEOUT = 10_000;
+
+    /**
+     * Changes read at most by {@link #changesSince(long)}, beyond which the clients must be reloaded, also the number
+     * of changes {@link #purgeChanges()} keeps
+     */
+    public static final int MAX_CHANGES = 10_000;
+
+    /**
+     * Rows fetched per round trip when streaming, MariaDB buffers the whole result set when it is 0
+     */
+    public static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * The columns of the client table in the order the queries select them, shared with the DAOs joining it
+     */
+    static final Projection<Client> PROJECTION = Projection.of(Client::new)
+            .column("cli_id", (client, rs, i) -> client.setId(rs.getInt(i)))
+            .column("cli_nom", (client, rs, i) -> client.setLastName(rs.getString(i)))
+            .column("cli_prenom", (client, rs, i) -> client.setFirstName(rs.getString(i)))
+            .column("cli_adresse", (client, rs, i) -> client.setAddress(rs.getString(i)))
+            .column("cli_ville", (client, rs, i) -> client.setCity(rs.getString(i)))
+            .column("cli_version", (client, rs, i) -> client.setVersion(rs.getInt(i)));
+
+    /**
+     * The columns of a reservation, of its room and of its hotel, selected after the ones of the client
+     */
+    static final Projection<Reservation> RESERVATION_PROJECTION = Projection.of(Reservation::new)
+            .column("res_id", (reservation, rs, i) -> reservation.setId(rs.getInt(i)))
+            .column("res_cli_id", (reservation, rs, i) -> reservation.setClientId(rs.getInt(i)))
+            .column("res_date", (reservation, rs, i) -> reservation.setDate(rs.getObject(i, LocalDateTime.class)))
+            .column("res_date_debut", (reservation, rs, i) -> reservation.setStartDate(rs.getObject(i, LocalDateTime.class)))
+            .column("res_date_fin", (reservation, rs, i) -> reservation.setEndDate(rs.getObject(i, LocalDateTime.class)))
+            .column("res_prix", (reservation, rs, i) -> reservation.setPrice(rs.getBigDecimal(i)))
+            .column("res_arrhes", (reservation, rs, i) -> reservation.setDeposit(rs.getBigDecimal(i)))
+            .column("cha_numero", (reservation, rs, i) -> reservation.setRoomNumber(rs.getInt(i)))
+            .column("hot_nom", (reservation, rs, i) -> reservation.setHotelName(rs.getString(i)))
+            .column("hot_ville", (reservation, rs, i) -> reservation.setHotelCity(rs.getString(i)));
+
+    private static final RowMapper<Client> MAPPER = PROJECTION.mapper();
+    // The server refuses LOAD DATA LOCAL INFILE, MariaDB and MySQL 5, then MySQL 8
+    private static final int ER_NOT_ALLOWED_COMMAND = 1148;
+    private static final int ER_CLIENT_LOCAL_FILES_DISABLED = 3948;
+    // The last changes in which changeToken looks for pending ones
+    private static final int CHANGE_TOKEN_WINDOW = 1000;
+    // The changes deleted per unit of work by purgeChanges, to keep the locks short
+    private static final int PURGE_CHUNK = 10_000;
+    private static final RowMapper<Client> CHANGE_MAPPER = PROJECTION.mapper(3);
+    private static final RowMapper<Reservation> RESERVATION_MAPPER = RESERVATION_PROJECTION.mapper(PROJECTION.size());
+    private static final OperationMetrics CHANGE_TOKEN_METRICS = Metrics.operation("ClientDAO.changeToken");
+    private static final OperationMetrics CHANGES_SINCE_METRICS = Metrics.operation("ClientDAO.changesSince");
+    private static final OperationMetrics COUNT_METRICS = Metrics.operation("ClientDAO.count");
+    private static final OperationMetrics COUNT_QUERY_METRICS = Metrics.operation("ClientDAO.countQuery");
+    private static final OperationMetrics DELETE_METRICS = Metrics.operation("ClientDAO.delete");
+    private static final OperationMetrics DELETE_ALL_METRICS = Metrics.operation("ClientDAO.deleteAll");
+    private static final OperationMetrics FIND_METRICS = Metrics.operation("ClientDAO.find");
+    private static final OperationMetrics FIND_WITH_RESERVATIONS_METRICS = Metrics.operation("ClientDAO.findWithReservations");
+    private static final OperationMetrics ID_AT_METRICS = Metrics.operation("ClientDAO.idAt");
+    private static final OperationMetrics INSERT_METRICS = Metrics.operation("ClientDAO.insert");
+    private static final OperationMetrics INSERT_ALL_METRICS = Metrics.operation("ClientDAO.insertAll");
+    private static final OperationMetrics LOAD_ALL_METRICS = Metrics.operation("ClientDAO.loadAll");
+    private static final OperationMetrics LIST_METRICS = Metrics.operation("ClientDAO.list");
+    private static final OperationMetrics PAGE_METRICS = Metrics.operation("ClientDAO.page");
+    private static final OperationMetrics PAGE_WITH_RESERVATIONS_METRICS = Metrics.operation("ClientDAO.pageWithReservations");
+    private static final OperationMetrics PURGE_CHANGES_METRICS = Metrics.operation("ClientDAO.purgeChanges");
+    private static final OperationMetrics QUERY_METRICS = Metrics.operation("ClientDAO.query");
+    private static final OperationMetrics STREAM_METRICS = Metrics.operation("ClientDAO.stream");
+    private static final OperationMetrics UPDATE_METRICS = Metrics.operation("ClientDAO.update");
+    private static final OperationMetrics UPDATE_ALL_METRICS = Metrics.operation("ClientDAO.updateAll");
+
+    private final String COUNT_CLIENTS = "SELECT COUNT(*) FROM client";
+    private final String DELETE_CHANGES = "DELETE FROM client_change WHERE chg_id <= ? AND chg_date < CURRENT_TIMESTAMP(3) - INTERVAL ? SECOND"
+            + " ORDER BY chg_id LIMIT ?";
     private final String DELETE_CLIENT = "DELETE from client WHERE cli_id = ?";
     private final String DELETE_RESERVATION = "DELETE FROM reservation WHERE res_cli_id = ?";
     private final String INSERT_CLIENT = "INSERT INTO client(cli_nom, cli_prenom, cli_adresse, cli_ville) VALUES (?,?,?,?)";
-    private final String SELECT_CLIENT = "SELECT * FROM client WHERE cli_id = ?";
-    private final String SELECT_CLIENTS = "SELECT * FROM client";
-    private final String SELECT_LAST_CLIENT = "SELECT * FROM client ORDER BY cli_id DESC LIMIT 1";
-    private final String UPDATE_CLIENT = "UPDATE client SET cli_nom = ?, cli_prenom = ?, cli_adresse = ?, cli_ville = ? WHERE cli_id = ?";
+    private final String JOIN_RESERVATIONS = " LEFT JOIN reservation ON res_cli_id = cli_id"
+            + " LEFT JOIN chambre ON cha_id = res_cha_id"
+            + " LEFT JOIN hotel ON hot_id = cha_hot_id";
+    private final String LOAD_CLIENTS = "LOAD DATA LOCAL INFILE 'clients.tsv' INTO TABLE client CHARACTER SET utf8mb4 (cli_nom, cli_prenom, cli_adresse, cli_ville)";
+    private final String SELECT_CHANGE_TOKEN = "SELECT chg_id, chg_date, CURRENT_TIMESTAMP(3) FROM client_change ORDER BY chg_id DESC LIMIT ?";
+    private final String SELECT_CHANGES = "SELECT chg_id, chg_operation, chg_cli_id, " + PROJECTION.columns()
+            + ", chg_date, CURRENT_TIMESTAMP(3), (SELECT MAX(chg_id) FROM client_change)"
+            + " FROM client_change LEFT JOIN client ON cli_id = chg_cli_id WHERE chg_id > ? ORDER BY chg_id LIMIT ?";
+    private final String SELECT_CLIENT = "SELECT " + PROJECTION.columns() + " FROM client WHERE cli_id = ?";
+    private final String SELECT_CLIENT_ID_AT = "SELECT cli_id FROM client ORDER BY cli_id LIMIT 1 OFFSET ?";
+    private final String SELECT_CLIENTS = "SELECT " + PROJECTION.columns() + " FROM client";
+    private final String SELECT_CLIENTS_PAGE = "SELECT " + PROJECTION.columns() + " FROM client WHERE cli_id > ? ORDER BY cli_id LIMIT ?";
+    private final String SELECT_CLIENTS_PAGE_WITH_RESERVATIONS = "SELECT " + PROJECTION.columns() + ", " + RESERVATION_PROJECTION.columns()
+            + " FROM (" + SELECT_CLIENTS_PAGE + ") page" + JOIN_RESERVATIONS + " ORDER BY cli_id, res_id";
+    private final String SELECT_CLIENTS_WITH_RESERVATIONS = "SELECT " + PROJECTION.columns() + ", " + RESERVATION_PROJECTION.columns()
+            + " FROM client" + JOIN_RESERVATIONS + " WHERE cli_id IN (%s) ORDER BY cli_id, res_id";
+    private final String SELECT_LAST_CHANGE = "SELECT MAX(chg_id) FROM client_change";
+    private final String SELECT_LAST_CLIENT = "SELECT " + PROJECTION.columns() + " FROM client ORDER BY cli_id DESC LIMIT 1";
+    private final String UPDATE_CLIENT = "UPDATE client SET cli_nom = ?, cli_prenom = ?, cli_adresse = ?, cli_ville = ?, cli_version = cli_version + 1"
+            + " WHERE cli_id = ? AND cli_version = ?";
+    // Commits in the same round trip as the update, the driver then skips the commit of the unit of work
+    private final String UPDATE_CLIENT_AND_COMMIT = UPDATE_CLIENT + "; COMMIT";
+    private final UnitOfWork readUnitOfWork;
+    private final UnitOfWork unitOfWork;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    // Whether the driver reports the update count of each statement of a batch, null until the first batch tells
+    private volatile Boolean batchUpdateCounts;
+    private volatile boolean bulkLoad = true;
 
     /**
      * Primary constructor
      */
     public ClientDAO() {
-        connection = DataSource.getConnection();
+        this(DataSource.getUnitOfWork(), DataSource.getReadUnitOfWork());
+    }
+
+    /**
+     * Creates a DAO borrowing its connections through the given unit of work, used to run it against another database
+     *
+     * @param unitOfWork The unit of work lending a connection to each operation
+     */
+    public ClientDAO(UnitOfWork unitOfWork) {
+        this(unitOfWork, unitOfWork);
+    }
+
+    /**
+     * Creates a DAO writing through a unit of work and reading through another one
+     *
+     * @param unitOfWork     The unit of work of the primary, lending a connection to the writes
+     * @param readUnitOfWork The unit of work of the replicas, lending a connection to the reads
+     */
+    public ClientDAO(UnitOfWork unitOfWork, UnitOfWork readUnitOfWork) {
+        this.readUnitOfWork = readUnitOfWork;
+        this.unitOfWork = unitOfWork;
+    }
+
+    /**
+     * Returns the token of the last change made to the clients, to read the following ones with
+     * {@link #changesSince(long)}
+     * <p>
+     * Read it first in the same unit of work as the clients it stands for, so no change is missed or applied twice.
+     * While a recent change id is missing below the last one, its transaction may commit after this read and it
+     * would be missed, so no token is returned until it is filled or {@value #GAP_TIMEOUT} ms old.
+     *
+     * @return The token, or -1 if it can't be read or a change is pending, read it again in a new unit of work
+     * @throws SQLException If any database error occurs
+     */
+    public long changeToken() throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            long token = unitOfWork.call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_CHANGE_TOKEN)) {
+                    ps.setInt(1, CHANGE_TOKEN_WINDOW);
+
+                    // The last changes from the newest, a gap followed by a recent change is still pending
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return 0L;
+
+                        long last = rs.getLong(1);
+                        long following = last;
+                        boolean recent = rs.getTimestamp(3).getTime() - rs.getTimestamp(2).getTime() < GAP_TIMEOUT;
+
+                        while (rs.next()) {
+                            long change = rs.getLong(1);
+
+                            if (change != following - 1 && recent) return -1L;
+
+                            following = change;
+                            recent = rs.getTimestamp(3).getTime() - rs.getTimestamp(2).getTime() < GAP_TIMEOUT;
+                        }
+
+                        return last;
+                    }
+                }
+            });
+
+            CHANGE_TOKEN_METRICS.success(start);
+
+            return token;
+        } catch (SQLException e) {
+            CHANGE_TOKEN_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the changes made to the clients after a token, from the change log the triggers of the client table fill
+     * <p>
+     * The changes of a client are merged into one entry holding its current values, so the cost depends on the
+     * number of changes and not on the number of clients. Past {@value #MAX_CHANGES} changes nothing is read and the
+     * result is flagged as an overflow.
+     * <p>
+     * Ids are allocated before their transaction commits, so a change may be committed after a later one. The changes
+     * are only read up to the first missing id, the next reads start from it again until it is filled. A missing id
+     * written more than {@value #GAP_TIMEOUT} ms before the change following it is skipped, its transaction rolled
+     * back or is still running. The ids of the change log must be allocated one by one, with an
+     * {@code auto_increment_increment} of 1.
+     * <p>
+     * The log only keeps the last {@value #MAX_CHANGES} changes once {@link #purgeChanges()} ran, so a token more than
+     * {@value #MAX_CHANGES} ids behind the last change, such as the one of an old snapshot, reads as an overflow.
+     *
+     * @param token The token of the last change already applied
+     * @return The changes, or null if they can't be read
+     * @throws SQLException If any database error occurs
+     */
+    public ClientChanges changesSince(long token) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            ClientChanges changes = unitOfWork.call(connection -> {
+                // The first operation of each client, in the order of their first change
+                Map<Integer, String> operations = new LinkedHashMap<>();
+                Map<Integer, Client> rows = new HashMap<>();
+                // The columns following the ones of the client
+                int written = 4 + PROJECTION.size();
+                long last = token;
+                int read = 0;
+
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_CHANGES)) {
+                    // Reads one change more to tell an overflow
+                    ps.setLong(1, token);
+                    ps.setInt(2, MAX_CHANGES + 1);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            long change = rs.getLong(1);
+
+                            // The changes following the token may have been purged
+                            if (read == 0 && rs.getLong(written + 2) - token > MAX_CHANGES) {
+                                return new ClientChanges(List.of(), List.of(), List.of(), token, true);
+                            }
+
+                            // Both read from the clock of the database, a recent change after a gap waits for it
+                            if (change != last + 1 && rs.getTimestamp(written + 1).getTime() - rs.getTimestamp(written).getTime() < GAP_TIMEOUT) {
+                                break;
+                            }
+
+                            if (++read > MAX_CHANGES) {
+                                return new ClientChanges(List.of(), List.of(), List.of(), token, true);
+                            }
+
+                            last = change;
+
+                            int id = rs.getInt(3);
+
+                            operations.putIfAbsent(id, rs.getString(2));
+
+                            // The columns of the client read as null once it is deleted
+                            if (rs.getInt(4) != 0 && !rows.containsKey(id)) {
+                                rows.put(id, CHANGE_MAPPER.map(rs));
+                            }
+                        }
+                    }
+                }
+
+                List<Client> inserted = new ArrayList<>();
+                List<Client> updated = new ArrayList<>();
+                List<Integer> deleted = new ArrayList<>();
+
+                for (Map.Entry<Integer, String> entry : operations.entrySet()) {
+                    boolean wasInserted = "I".equals(entry.getValue());
+                    Client client = rows.get(entry.getKey());
+
+                    // The join reads the current values, a client missing from it has been deleted
+                    if (client == null) {
+                        if (!wasInserted) deleted.add(entry.getKey());
+                    } else if (wasInserted) {
+                        inserted.add(client);
+                    } else {
+                        updated.add(client);
+                    }
+                }
+
+                return new ClientChanges(inserted, updated, deleted, last, false);
+            });
+
+            CHANGES_SINCE_METRICS.success(start);
+
+            return changes;
+        } catch (SQLException e) {
+            CHANGES_SINCE_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the changes {@link #changesSince(long)} no longer needs from the change log, which the triggers of the
+     * client table fill forever otherwise
+     * <p>
+     * The last {@value #MAX_CHANGES} changes are kept, older tokens read as an overflow anyway, and so are the changes
+     * of the last {@value #GAP_TIMEOUT} ms, a pending one may still fill a gap among them. The changes are deleted by
+     * chunks, each in its own unit of work. Any workstation may run it, at any time.
+     *
+     * @return The number of changes deleted, or -1 if they could not be
+     * @throws SQLException If any database error occurs
+     */
+    public int purgeChanges() throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            long last = unitOfWork.call(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery(SELECT_LAST_CHANGE)) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
+            int purged = 0;
+
+            for (int deleted = PURGE_CHUNK; deleted == PURGE_CHUNK; purged += deleted) {
+                deleted = unitOfWork.call(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(DELETE_CHANGES)) {
+                        ps.setLong(1, last - MAX_CHANGES);
+                        ps.setLong(2, GAP_TIMEOUT / 1000);
+                        ps.setInt(3, PURGE_CHUNK);
+
+                        return ps.executeUpdate();
+                    }
+                });
+            }
+
+            PURGE_CHANGES_METRICS.success(start);
+
+            return purged;
+        } catch (SQLException e) {
+            PURGE_CHANGES_METRICS.failure(start);
+
+            // Pretty prints the exception, only the current chunk was rolled back
+            new ExceptionPrinter<>(e).print();
+
+            return -1;
+        }
     }
 
     /**
-     * Deletes a Client from the database
+     * Counts the clients from the database
+     *
+     * @return The number of clients
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public int count() throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            int count = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery(COUNT_CLIENTS)) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+
+            COUNT_METRICS.success(start);
+
+            return count;
+        } catch (SQLException e) {
+            COUNT_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return 0;
+        }
+    }
+
+    /**
+     * Counts the clients kept by the filters of a query
+     *
+     * @param query The query, its sort and page are ignored
+     * @return The number of clients
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public int count(ClientQuery query) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            int count = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(query.countSql())) {
+                    query.bindFilters(ps);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+            });
+
+            COUNT_QUERY_METRICS.success(start);
+
+            return count;
+        } catch (SQLException e) {
+            COUNT_QUERY_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes a Client and its reservations from the database
+     * <p>
+     * Both deletes run in the same unit of work, so the reservations are kept if the client can't be deleted.
      *
      * @param id The id of the client to delete
      * @throws SQLException If any database error occurs
      */
     @Override
     public void delete(int id) throws SQLException {
-        Savepoint firstSavepoint = null, secondSavepoint = null;
+        remove(id);
+    }
 
-        try (PreparedStatement reservation = connection.prepareStatement(DELETE_RESERVATION)) {
-            // Creates a savepoint before deleting the reservation
-            firstSavepoint = connection.setSavepoint("beforeReservationDelete");
+    /**
+     * Deletes a Client and its reservations from the database, like {@link #delete(int)}
+     *
+     * @param id The id of the client to delete
+     * @return False if the delete failed, the unit of work already rolled back the changes
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public boolean remove(int id) throws SQLException {
+        long start = Metrics.start();
 
-            reservation.setInt(1, id);
-            reservation.executeUpdate();
+        try {
+            unitOfWork.run(connection -> {
+                try (PreparedStatement reservation = connection.prepareStatement(DELETE_RESERVATION);
+                     PreparedStatement client = connection.prepareStatement(DELETE_CLIENT)) {
+                    // The reservations reference the client so they go first
+                    reservation.setInt(1, id);
+                    reservation.executeUpdate();
 
-            // Commits the changes to the database
-            connection.commit();
+                    client.setInt(1, id);
+                    client.executeUpdate();
+                }
+            });
 
-            try (PreparedStatement client = connection.prepareStatement(DELETE_CLIENT)) {
-                // Creates a savepoint before deleting the the client
-                secondSavepoint = connection.setSavepoint("beforeClientDelete");
+            DELETE_METRICS.success(start);
 
-                client.setInt(1, id);
-                client.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            DELETE_METRICS.failure(start);
 
-                // Commits the changes to the database
-                connection.commit();
-            } catch (SQLException e) {
-                // Pretty prints the exception
-                new ExceptionPrinter<>(e).print();
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return false;
+        }
+    }
+
+    /**
+     * Deletes clients and their reservations from the database using batches
+     * <p>
+     * Each chunk of {@link #getBatchSize()} clients is deleted in its own unit of work, unless the call joins an
+     * explicit transaction.
+     *
+     * @param ids The ids of the clients to delete
+     * @throws SQLException If any database error occurs
+     */
+    public void deleteAll(int... ids) throws SQLException {
+        long start = Metrics.start();
+        int batchSize = this.batchSize;
+
+        try {
+            for (int from = 0; from < ids.length; from += batchSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + batchSize, ids.length);
+
+                unitOfWork.run(connection -> {
+                    try (PreparedStatement reservation = connection.prepareStatement(DELETE_RESERVATION);
+                         PreparedStatement client = connection.prepareStatement(DELETE_CLIENT)) {
+                        for (int i = chunkFrom; i < chunkTo; i++) {
+                            reservation.setInt(1, ids[i]);
+                            reservation.addBatch();
+
+                            client.setInt(1, ids[i]);
+                            client.addBatch();
+                        }
 
-                // Rollbacks to the latest savepoint
-                connection.rollback(secondSavepoint);
+                        // The reservations reference the clients so they go first
+                        reservation.executeBatch();
+                        client.executeBatch();
+                    }
+                });
             }
+
+            DELETE_ALL_METRICS.success(start);
         } catch (SQLException e) {
-            // Pretty prints the exception
-            new ExceptionPrinter<>(e).print();
+            DELETE_ALL_METRICS.failure(start);
 
-            // Rollbacks to the first savepoint
-            connection.rollback(firstSavepoint);
+            // Pretty prints the exception, only the current chunk was rolled back
+            new ExceptionPrinter<>(e).print();
         }
     }
 
@@ -85,67 +565,294 @@ public final class ClientDAO implements CRUD<Client> {
      */
     @Override
     public Client find(int id) throws SQLException {
-        try (PreparedStatement clientStatement = connection.prepareStatement(SELECT_CLIENT)) {
-            // Creates a new empty Client object
-            Client client = new Client();
-
-            // Use a Prepared Statement to avoid SQL Injection
-            clientStatement.setInt(1, id);
-
-            // Executes the query and returns the result set
-            ResultSet rs = clientStatement.executeQuery();
-
-            // While there is a result
-            while (rs.next()) {
-                // Sets the data to the newly created client object
-                client.setAddress(rs.getString("cli_adresse"));
-                client.setCity(rs.getString("cli_ville"));
-                client.setFirstName(rs.getString("cli_prenom"));
-                client.setId(rs.getInt("cli_id"));
-                client.setLastName(rs.getString("cli_nom"));
-            }
+        return find(id, ReadConsistency.EVENTUAL);
+    }
 
-            // Commits the changes to the database
-            connection.commit();
+    /**
+     * Finds a Client from the database
+     *
+     * @param id          The id of the client to find
+     * @param consistency Whether the client must be read from the primary
+     * @return The client if found else returns null
+     * @throws SQLException If any database error occurs
+     */
+    public Client find(int id, ReadConsistency consistency) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            Client client = reads(consistency).call(connection -> {
+                try (PreparedStatement clientStatement = connection.prepareStatement(SELECT_CLIENT)) {
+                    // Use a Prepared Statement to avoid SQL Injection
+                    clientStatement.setInt(1, id);
+
+                    // Executes the query and maps the client, or returns an empty one
+                    try (ResultSet rs = clientStatement.executeQuery()) {
+                        return rs.next() ? MAPPER.map(rs) : new Client();
+                    }
+                }
+            });
+
+            FIND_METRICS.success(start);
 
             // Returns the client or null
             return client;
         } catch (SQLException e) {
-            // Pretty prints the exception
+            FIND_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
             new ExceptionPrinter<>(e).print();
 
-            // Rollbacks the changes for the database
-            connection.rollback();
+            return null;
+        }
+    }
+
+    /**
+     * Finds clients and their reservations from the database, with one query per chunk of ids
+     * <p>
+     * The ids are sent {@link #getBatchSize()} at a time in an {@code IN} list, used to load the reservations of the
+     * clients matched by a search without a query per client.
+     *
+     * @param ids The ids of the clients to find
+     * @return The clients found, ordered by id, each with its reservations ordered by id
+     * @throws SQLException If any database error occurs
+     */
+    public ArrayList<ClientReservations> findWithReservations(int... ids) throws SQLException {
+        long start = Metrics.start();
+        int batchSize = this.batchSize;
+        int[] sorted = Arrays.stream(ids).distinct().sorted().toArray();
+
+        try {
+            ArrayList<ClientReservations> clients = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                ArrayList<ClientReservations> found = new ArrayList<>(sorted.length);
+
+                for (int from = 0; from < sorted.length; from += batchSize) {
+                    int to = Math.min(from + batchSize, sorted.length);
+                    String placeholders = String.join(",", Collections.nCopies(to - from, "?"));
+
+                    try (PreparedStatement ps = connection.prepareStatement(String.format(SELECT_CLIENTS_WITH_RESERVATIONS, placeholders))) {
+                        // Use a Prepared Statement to avoid SQL Injection
+                        for (int i = from; i < to; i++) {
+                            ps.setInt(i - from + 1, sorted[i]);
+                        }
+
+                        try (ResultSet rs = ps.executeQuery()) {
+                            found.addAll(groupReservations(rs, to - from));
+                        }
+                    }
+                }
+
+                return found;
+            });
+
+            FIND_WITH_RESERVATIONS_METRICS.success(start);
+
+            return clients;
+        } catch (SQLException e) {
+            FIND_WITH_RESERVATIONS_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
 
             return null;
         }
     }
 
     /**
-     * Inserts a client into the database
+     * Finds the id of the client at the given position, ordered by id
+     * <p>
+     * Only walks the primary key, it is used to seek a page when the previous one was never loaded.
+     *
+     * @param position The zero based position of the client
+     * @return The id of the client or 0 if there is none at this position
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public int idAt(int position) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            int id = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_CLIENT_ID_AT)) {
+                    ps.setInt(1, position);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+            });
+
+            ID_AT_METRICS.success(start);
+
+            return id;
+        } catch (SQLException e) {
+            ID_AT_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return 0;
+        }
+    }
+
+    /**
+     * Inserts a client into the database and sets its generated id
      *
      * @param client The client to insert into the database
      * @throws SQLException If any database error occurs
      */
     @Override
     public void insert(Client client) throws SQLException {
-        try (PreparedStatement ps = connection.prepareStatement(INSERT_CLIENT)) {
-            ps.setString(1, client.getLastName());
-            ps.setString(2, client.getFirstName());
-            ps.setString(3, client.getAddress());
-            ps.setString(4, client.getCity());
+        long start = Metrics.start();
+
+        try {
+            int id = unitOfWork.call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(INSERT_CLIENT, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, client.getLastName());
+                    ps.setString(2, client.getFirstName());
+                    ps.setString(3, client.getAddress());
+                    ps.setString(4, client.getCity());
 
-            // Inserts the record into the database
-            ps.executeUpdate();
+                    // Inserts the record into the database
+                    ps.executeUpdate();
 
-            // Commits the changes to the database
-            connection.commit();
+                    // Reads the id generated by the database
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        return keys.next() ? keys.getInt(1) : 0;
+                    }
+                }
+            });
+
+            // Gives the client its id once the insert is committed
+            client.setId(id);
+
+            INSERT_METRICS.success(start);
         } catch (SQLException e) {
-            // Pretty prints the exception
+            INSERT_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
             new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Inserts clients into the database using batches and sets their generated ids
+     * <p>
+     * Each chunk of {@link #getBatchSize()} clients is inserted in its own unit of work, unless the call joins an
+     * explicit transaction. MariaDB rewrites the chunk into a multi-row insert when
+     * {@code rewriteBatchedStatements} is enabled.
+     *
+     * @param clients The clients to insert into the database
+     * @return The generated ids in the order of the clients, or null if a chunk failed. The clients of the chunks
+     * committed before the failure keep their ids, the others keep 0.
+     * @throws SQLException If any database error occurs
+     */
+    public int[] insertAll(List<Client> clients) throws SQLException {
+        long start = Metrics.start();
+        int batchSize = this.batchSize;
+        int[] ids = new int[clients.size()];
+
+        try {
+            for (int from = 0; from < clients.size(); from += batchSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + batchSize, clients.size());
+
+                unitOfWork.run(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(INSERT_CLIENT, Statement.RETURN_GENERATED_KEYS)) {
+                        for (int i = chunkFrom; i < chunkTo; i++) {
+                            Client client = clients.get(i);
+
+                            // Use a Prepared Statement to avoid SQL Injection
+                            ps.setString(1, client.getLastName());
+                            ps.setString(2, client.getFirstName());
+                            ps.setString(3, client.getAddress());
+                            ps.setString(4, client.getCity());
+                            ps.addBatch();
+                        }
+
+                        // Inserts the chunk into the database
+                        ps.executeBatch();
+
+                        // Reads the ids generated for the chunk, in insertion order
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            for (int i = chunkFrom; i < chunkTo && keys.next(); i++) {
+                                ids[i] = keys.getInt(1);
+                            }
+                        }
+                    }
+                });
+
+                // Gives the clients their ids once the chunk is committed
+                for (int i = chunkFrom; i < chunkTo; i++) {
+                    clients.get(i).setId(ids[i]);
+                }
+            }
 
-            // Rollbacks the changes for the database
-            connection.rollback();
+            INSERT_ALL_METRICS.success(start);
+
+            return ids;
+        } catch (SQLException e) {
+            INSERT_ALL_METRICS.failure(start);
+
+            // Pretty prints the exception, only the current chunk was rolled back
+            new ExceptionPrinter<>(e).print();
+
+            return null;
+        }
+    }
+
+    /**
+     * Loads clients into the database with MariaDB's {@code LOAD DATA LOCAL INFILE}, the fastest bulk path
+     * <p>
+     * The clients are sent as tab separated values streamed from memory, in a single unit of work, and their generated
+     * ids are not read back. When the driver or the server refuses to load local data, as H2 or a server with
+     * {@code local_infile} off do, the DAO falls back to {@link #insertAll(List)} from then on. Any other failure is
+     * thrown, the clients may have been loaded before it and are not sent again.
+     *
+     * @param clients The clients to load into the database
+     * @return The number of clients loaded, or -1 if the fallback could not insert them
+     * @throws SQLException If any database error occurs
+     */
+    public int loadAll(List<Client> clients) throws SQLException {
+        if (!bulkLoad) {
+            int[] ids = insertAll(clients);
+
+            return ids == null ? -1 : ids.length;
+        }
+
+        long start = Metrics.start();
+
+        try {
+            int loaded = unitOfWork.call(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    if (!statement.isWrapperFor(MariaDbStatement.class)) {
+                        throw new SQLFeatureNotSupportedException("The driver cannot load local data");
+                    }
+
+                    // The driver reads the file from this stream instead of the disk
+                    statement.unwrap(MariaDbStatement.class).setLocalInfileInputStream(new ByteArrayInputStream(toTabSeparated(clients)));
+
+                    return statement.executeUpdate(LOAD_CLIENTS);
+                }
+            });
+
+            LOAD_ALL_METRICS.success(start);
+
+            return loaded;
+        } catch (SQLException e) {
+            LOAD_ALL_METRICS.failure(start);
+
+            // Lets the caller handle the failure, inserting the clients again could duplicate them
+            if (!refusesLocalInfile(e)) throw e;
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            // Batched inserts work everywhere, they are used from now on
+            bulkLoad = false;
+
+            int[] ids = insertAll(clients);
+
+            return ids == null ? -1 : ids.length;
         }
     }
 
@@ -157,69 +864,376 @@ public final class ClientDAO implements CRUD<Client> {
      */
     @Override
     public ArrayList<Client> list() throws SQLException {
-        try (ResultSet rs = connection.createStatement().executeQuery(SELECT_CLIENTS)) {
-            // Initializes a new Client ArrayList
-            ArrayList<Client> clients = new ArrayList<>();
-
-            // While there is a result
-            while (rs.next()) {
-                // Sets the data to the newly created client object
-                Client client = new Client();
-
-                client.setAddress(rs.getString("cli_adresse"));
-                client.setCity(rs.getString("cli_ville"));
-                client.setFirstName(rs.getString("cli_prenom"));
-                client.setId(rs.getInt("cli_id"));
-                client.setLastName(rs.getString("cli_nom"));
-
-                // Adds the client to the ArrayList of clients
-                clients.add(client);
-            }
+        return list(ReadConsistency.EVENTUAL);
+    }
+
+    /**
+     * Returns the list of clients from the database
+     *
+     * @param consistency Whether the clients must be read from the primary
+     * @return The clients list
+     * @throws SQLException If any database error occurs
+     */
+    public ArrayList<Client> list(ReadConsistency consistency) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            ArrayList<Client> clients = reads(consistency).call(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery(SELECT_CLIENTS)) {
+                    // Maps each row to a client
+                    return MAPPER.mapAll(rs, 16);
+                }
+            });
 
-            // Commits the changes to the database
-            connection.commit();
+            LIST_METRICS.success(start);
 
             // Returns the list of clients from the database
             return clients;
         } catch (SQLException e) {
-            // Pretty prints the exception
+            LIST_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
             new ExceptionPrinter<>(e).print();
 
-            // Rollbacks the changes to the database
-            connection.rollback();
+            return null;
+        }
+    }
+
+    /**
+     * Returns a page of clients from the database using keyset pagination
+     *
+     * @param afterId The id of the last client of the previous page, 0 for the first page
+     * @param size    The maximum number of clients in the page
+     * @return The clients with an id greater than {@code afterId}, ordered by id
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public ArrayList<Client> page(int afterId, int size) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            ArrayList<Client> clients = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_CLIENTS_PAGE)) {
+                    // Use a Prepared Statement to avoid SQL Injection
+                    ps.setInt(1, afterId);
+                    ps.setInt(2, size);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        // Maps each row to a client of the page
+                        return MAPPER.mapAll(rs, size);
+                    }
+                }
+            });
+
+            PAGE_METRICS.success(start);
+
+            // Returns the page of clients from the database
+            return clients;
+        } catch (SQLException e) {
+            PAGE_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
 
             return null;
         }
     }
 
     /**
-     * Updates a client from the database
+     * Returns the clients of a query, filtered, sorted and paged by the database
      *
-     * @param client The client to update
+     * @param query The query
+     * @return The clients of the page, in the order of the query
      * @throws SQLException If any database error occurs
+     * @see ClientQuery
+     */
+    @Override
+    public ArrayList<Client> query(ClientQuery query) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            ArrayList<Client> clients = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(query.sql(PROJECTION.columns()))) {
+                    // Every value of the query is a parameter, to avoid SQL Injection
+                    query.bind(ps);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return MAPPER.mapAll(rs, query.getLimit());
+                    }
+                }
+            });
+
+            QUERY_METRICS.success(start);
+
+            return clients;
+        } catch (SQLException e) {
+            QUERY_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return null;
+        }
+    }
+
+    /**
+     * Returns a page of clients and their reservations from the database in a single query
+     * <p>
+     * The page is seeked with keyset pagination like {@link #page(int, int)}, then joined to the reservations, their
+     * rooms and their hotels, so loading the reservations of a page never runs a query per client.
+     *
+     * @param afterId The id of the last client of the previous page, 0 for the first page
+     * @param size    The maximum number of clients in the page
+     * @return The clients with an id greater than {@code afterId}, ordered by id, each with its reservations
+     * ordered by id
+     * @throws SQLException If any database error occurs
+     */
+    public ArrayList<ClientReservations> pageWithReservations(int afterId, int size) throws SQLException {
+        long start = Metrics.start();
+
+        try {
+            ArrayList<ClientReservations> clients = reads(ReadConsistency.EVENTUAL).call(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_CLIENTS_PAGE_WITH_RESERVATIONS)) {
+                    // Use a Prepared Statement to avoid SQL Injection
+                    ps.setInt(1, afterId);
+                    ps.setInt(2, size);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return groupReservations(rs, size);
+                    }
+                }
+            });
+
+            PAGE_WITH_RESERVATIONS_METRICS.success(start);
+
+            return clients;
+        } catch (SQLException e) {
+            PAGE_WITH_RESERVATIONS_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            return null;
+        }
+    }
+
+    /**
+     * Streams all the clients from the database
+     *
+     * @return The clients stream, which must be closed once consumed
+     * @throws SQLException If any database error occurs
+     * @see #stream(int)
+     */
+    @Override
+    public Stream<Client> stream() throws SQLException {
+        return stream(STREAM_FETCH_SIZE);
+    }
+
+    /**
+     * Streams all the clients from the database without holding them in memory
+     * <p>
+     * The stream reads a forward-only, read-only result set on a connection borrowed for its whole life, outside of
+     * any unit of work. The statement, the result set and the connection are released once the last row is read,
+     * when reading fails or when the stream is closed.
+     *
+     * @param fetchSize The number of rows fetched per round trip
+     * @return The clients stream, which must be closed once consumed
+     * @throws SQLException If any database error occurs
+     */
+    public Stream<Client> stream(int fetchSize) throws SQLException {
+        long start = Metrics.start();
+
+        Connection streamConnection;
+
+        try {
+            streamConnection = readUnitOfWork.borrow();
+        } catch (SQLException e) {
+            STREAM_METRICS.failure(start);
+
+            throw e;
+        }
+
+        PreparedStatement ps = null;
+        ResultSet rs;
+
+        try {
+            streamConnection.setReadOnly(true);
+
+            ps = streamConnection.prepareStatement(SELECT_CLIENTS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+
+            rs = ps.executeQuery();
+
+            // Only the time to the first row is measured, the consumer drives the rest
+            STREAM_METRICS.success(start);
+        } catch (SQLException e) {
+            STREAM_METRICS.failure(start);
+
+            // Releases the connection before giving up
+            if (ps != null) ps.close();
+            streamConnection.close();
+
+            throw e;
+        }
+
+        ClientSpliterator spliterator = new ClientSpliterator(streamConnection, ps, rs);
+
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Updates a client from the database, in a single statement conditioned on the version it was read with
+     * <p>
+     * Nothing is read beforehand, the version of the client is incremented once the update is committed. Unless the
+     * update joins an explicit transaction, the COMMIT is sent with the UPDATE as one multi-statement query, so the
+     * edit costs a single round trip.
+     *
+     * @param client The client to update, as read with its version
+     * @throws ConflictException If the client was modified or deleted since it was read
+     * @throws SQLException      If any database error occurs
      */
     @Override
     public void update(Client client) throws SQLException {
-        try (PreparedStatement ps = connection.prepareStatement(UPDATE_CLIENT)) {
-            // Use a Prepared Statement to avoid SQL Injection
-            ps.setString(1, client.getLastName());
-            ps.setString(2, client.getFirstName());
-            ps.setString(3, client.getAddress());
-            ps.setString(4, client.getCity());
-            ps.setInt(5, client.getId());
+        long start = Metrics.start();
+
+        try {
+            // An explicit transaction is committed by whoever started it
+            String sql = unitOfWork.inTransaction() ? UPDATE_CLIENT : UPDATE_CLIENT_AND_COMMIT;
+
+            unitOfWork.run(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    bindUpdate(ps, client);
+
+                    // Updates the record into the database, unless it changed since it was read
+                    if (ps.executeUpdate() == 0) {
+                        throw new ConflictException(client.getId(), client.getVersion());
+                    }
+                }
+            });
+
+            // Gives the client the version of the row once the update is committed
+            client.setVersion(client.getVersion() + 1);
+
+            UPDATE_METRICS.success(start);
+        } catch (ConflictException e) {
+            UPDATE_METRICS.failure(start);
+
+            // Lets the caller tell the user, the unit of work already rolled back the changes
+            throw e;
+        } catch (SQLException e) {
+            UPDATE_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Updates clients from the database using batches
+     * <p>
+     * Each chunk of {@link #getBatchSize()} clients is updated in its own unit of work, unless the call joins an
+     * explicit transaction. A client which changed since it was read matches no row, which the update counts of the
+     * batch tell. When the driver only reports {@link Statement#SUCCESS_NO_INFO}, as MariaDB's bulk protocol does,
+     * the chunk is rolled back to a savepoint and its clients are updated one by one, and so are the next chunks.
+     *
+     * @param clients The clients to update
+     * @throws ConflictException If a client was modified or deleted since it was read, its chunk is rolled back
+     * @throws SQLException      If any database error occurs
+     */
+    public void updateAll(List<Client> clients) throws SQLException {
+        long start = Metrics.start();
+        int batchSize = this.batchSize;
+
+        try {
+            for (int from = 0; from < clients.size(); from += batchSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + batchSize, clients.size());
+
+                unitOfWork.run(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(UPDATE_CLIENT)) {
+                        Boolean countsKnown = batchUpdateCounts;
+
+                        if (countsKnown == null || countsKnown) {
+                            // Only needed until the driver showed whether it reports the update counts
+                            Savepoint savepoint = countsKnown == null ? connection.setSavepoint() : null;
+
+                            for (int i = chunkFrom; i < chunkTo; i++) {
+                                bindUpdate(ps, clients.get(i));
+                                ps.addBatch();
+                            }
+
+                            // Updates the chunk into the database, a row which changed since it was read matches nothing
+                            int[] counts = ps.executeBatch();
+
+                            if (Arrays.stream(counts).noneMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+                                batchUpdateCounts = true;
+
+                                for (int i = 0; i < counts.length; i++) {
+                                    if (counts[i] == 0) {
+                                        Client client = clients.get(chunkFrom + i);
+
+                                        throw new ConflictException(client.getId(), client.getVersion());
+                                    }
+                                }
+
+                                return;
+                            }
+
+                            // The conflicts can't be told apart, the chunk is updated again one client at a time
+                            batchUpdateCounts = false;
+                            connection.rollback(savepoint);
+                        }
 
-            // Updates the record into the database
-            ps.executeUpdate();
+                        for (int i = chunkFrom; i < chunkTo; i++) {
+                            Client client = clients.get(i);
 
-            // Commits the changes to the database
-            connection.commit();
+                            bindUpdate(ps, client);
+
+                            if (ps.executeUpdate() == 0) throw new ConflictException(client.getId(), client.getVersion());
+                        }
+                    }
+                });
+
+                for (int i = chunkFrom; i < chunkTo; i++) {
+                    clients.get(i).setVersion(clients.get(i).getVersion() + 1);
+                }
+            }
+
+            UPDATE_ALL_METRICS.success(start);
+        } catch (ConflictException e) {
+            UPDATE_ALL_METRICS.failure(start);
+
+            // Lets the caller tell the user, only the current chunk was rolled back
+            throw e;
         } catch (SQLException e) {
-            // Pretty prints the exception
+            UPDATE_ALL_METRICS.failure(start);
+
+            // Pretty prints the exception, only the current chunk was rolled back
             new ExceptionPrinter<>(e).print();
+        }
+    }
 
-            // Rollbacks the changes to the database
-            connection.rollback();
+    /**
+     * Returns the number of statements sent per batch by the bulk operations
+     *
+     * @return The batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of statements sent per batch by the bulk operations
+     *
+     * @param batchSize The batch size
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive");
         }
+
+        this.batchSize = batchSize;
     }
 
     /**
@@ -229,26 +1243,225 @@ public final class ClientDAO implements CRUD<Client> {
      * @throws SQLException If any database error occurs
      */
     public Client getLastClient() throws SQLException {
-        try (ResultSet rs = connection.createStatement().executeQuery(SELECT_LAST_CLIENT)) {
-            Client client = new Client();
-
-            while (rs.next()) {
-                client.setAddress(rs.getString("cli_adresse"));
-                client.setCity(rs.getString("cli_ville"));
-                client.setFirstName(rs.getString("cli_prenom"));
-                client.setId(rs.getInt("cli_id"));
-                client.setLastName(rs.getString("cli_nom"));
-            }
+        return getLastClient(ReadConsistency.EVENTUAL);
+    }
 
-            return client;
+    /**
+     * Returns the last client from the database
+     *
+     * @param consistency Whether the client must be read from the primary
+     * @return The last client
+     * @throws SQLException If any database error occurs
+     */
+    public Client getLastClient(ReadConsistency consistency) throws SQLException {
+        try {
+            return reads(consistency).call(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery(SELECT_LAST_CLIENT)) {
+                    return rs.next() ? MAPPER.map(rs) : new Client();
+                }
+            });
         } catch (SQLException e) {
-            // Pretty prints the exception
+            // Pretty prints the exception, the unit of work already rolled back the changes
             new ExceptionPrinter<>(e).print();
 
-            // Rollbacks the changes to the database
-            connection.rollback();
-
             return null;
         }
     }
+
+    /**
+     * Returns the unit of work of a read, the one of the primary inside its transactions so the read joins them
+     *
+     * @param consistency Whether the read must see the writes made before it
+     * @return The unit of work
+     */
+    private UnitOfWork reads(ReadConsistency consistency) {
+        return consistency == ReadConsistency.READ_YOUR_WRITES || unitOfWork.inTransaction() ? unitOfWork : readUnitOfWork;
+    }
+
+    /**
+     * Groups the rows of a query joining the clients to their reservations, in a single pass
+     * <p>
+     * The rows must be ordered by client, a client without reservation comes as a single row whose reservation
+     * columns are null.
+     *
+     * @param rs       The result set selecting the client projection then the reservation projection
+     * @param capacity The expected number of clients
+     * @return The clients with their reservations, in the order of the rows
+     * @throws SQLException If any database error occurs
+     */
+    private static ArrayList<ClientReservations> groupReservations(ResultSet rs, int capacity) throws SQLException {
+        ArrayList<ClientReservations> clients = new ArrayList<>(capacity);
+        ClientReservations current = null;
+        int reservationId = PROJECTION.size() + 1;
+
+        while (rs.next()) {
+            // A new client starts whenever the id changes
+            if (current == null || current.getClient().getId() != rs.getInt(1)) {
+                current = new ClientReservations(MAPPER.map(rs));
+                clients.add(current);
+            }
+
+            // The reservation id is never 0, it reads as 0 when the left join found nothing
+            if (rs.getInt(reservationId) != 0) {
+                current.getReservations().add(RESERVATION_MAPPER.map(rs));
+            }
+        }
+
+        return clients;
+    }
+
+    /**
+     * Binds the values of a client to the parameters of {@code UPDATE_CLIENT}, the version being the one it was read
+     * with
+     */
+    private static void bindUpdate(PreparedStatement ps, Client client) throws SQLException {
+        // Use a Prepared Statement to avoid SQL Injection
+        ps.setString(1, client.getLastName());
+        ps.setString(2, client.getFirstName());
+        ps.setString(3, client.getAddress());
+        ps.setString(4, client.getCity());
+        ps.setInt(5, client.getId());
+        ps.setInt(6, client.getVersion());
+    }
+
+    /**
+     * Tells whether a failure of {@link #loadAll(List)} means local data cannot be loaded at all
+     * <p>
+     * The driver refuses with a feature not supported state, SQLState class {@code 0A}, when it is not MariaDB's or
+     * when {@code allowLocalInfile} is off. The server refuses with {@code ER_NOT_ALLOWED_COMMAND} (1148), or
+     * {@code ER_CLIENT_LOCAL_FILES_DISABLED} (3948) on MySQL, when {@code local_infile} is off.
+     *
+     * @param e The failure
+     * @return True if the batched inserts must be used instead
+     */
+    private static boolean refusesLocalInfile(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLFeatureNotSupportedException) return true;
+
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                String state = sqlException.getSQLState();
+
+                if (state != null && state.startsWith("0A")) return true;
+
+                if (sqlException.getErrorCode() == ER_NOT_ALLOWED_COMMAND
+                        || sqlException.getErrorCode() == ER_CLIENT_LOCAL_FILES_DISABLED) return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes clients in the default format of LOAD DATA, tab separated and backslash escaped
+     *
+     * @param clients The clients to write
+     * @return The UTF-8 encoded rows
+     */
+    private static byte[] toTabSeparated(List<Client> clients) {
+        StringBuilder rows = new StringBuilder(clients.size() * 64);
+
+        for (Client client : clients) {
+            String[] values = {client.getLastName(), client.getFirstName(), client.getAddress(), client.getCity()};
+
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) rows.append('\t');
+
+                if (values[i] == null) {
+                    rows.append("\\N");
+                    continue;
+                }
+
+                for (int c = 0; c < values[i].length(); c++) {
+                    char character = values[i].charAt(c);
+
+                    switch (character) {
+                        case '\\':
+                            rows.append("\\\\");
+                            break;
+                        case '\t':
+                            rows.append("\\t");
+                            break;
+                        case '\n':
+                            rows.append("\\n");
+                            break;
+                        case '\r':
+                            rows.append("\\r");
+                            break;
+                        case '\0':
+                            rows.append("\\0");
+                            break;
+                        default:
+                            rows.append(character);
+                    }
+                }
+            }
+
+            rows.append('\n');
+        }
+
+        return rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Walks a result set of clients one row at a time and releases it once done
+     */
+    private static final class ClientSpliterator extends Spliterators.AbstractSpliterator<Client> {
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Connection connection;
+        private final ResultSet rs;
+        private final Statement statement;
+
+        private ClientSpliterator(Connection connection, Statement statement, ResultSet rs) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+
+            this.connection = connection;
+            this.rs = rs;
+            this.statement = statement;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super Client> action) {
+            if (closed.get()) return false;
+
+            try {
+                if (!rs.next()) {
+                    close();
+
+                    return false;
+                }
+
+                // Maps the row to a client
+                action.accept(MAPPER.map(rs));
+
+                return true;
+            } catch (SQLException e) {
+                // Pretty prints the exception
+                new ExceptionPrinter<>(e).print();
+
+                close();
+
+                throw new IllegalStateException("Could not read the next client", e);
+            }
+        }
+
+        /**
+         * Closes the result set and the statement then gives the connection back to the pool
+         */
+        private void close() {
+            if (!closed.compareAndSet(false, true)) return;
+
+            try (connection; statement; rs) {
+                // Ends the read-only transaction
+                connection.commit();
+            } catch (SQLException e) {
+                // Pretty prints the exception
+                new ExceptionPrinter<>(e).print();
+            }
+        }
+    }
 }
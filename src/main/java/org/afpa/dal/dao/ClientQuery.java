@@ -0,0 +1,328 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.models.Client;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A query of the clients filtered, sorted and paged by the database, run with {@link ClientDAO#query(ClientQuery)}
+ * <p>
+ * The filters keep the clients whose last name, first name or city start with a prefix, the sort orders them by one
+ * column then by id so the order is total. A page is either skipped to with an offset, or follows the last client
+ * of the previous page with {@link #after(Client)}, which the indexes of the sorted columns seek to directly however
+ * deep the page is:
+ * <pre>{@code
+ * ClientQuery query = ClientQuery.all().cityStartsWith("Lon").orderBy(ClientQuery.Sort.LAST_NAME).limit(50);
+ * ArrayList<Client> first = clientDAO.query(query);
+ * ArrayList<Client> second = clientDAO.query(query.after(first.get(first.size() - 1)));
+ * }</pre>
+ * Every value is bound as a parameter of a prepared statement, the SQL only ever holds the fixed names of the
+ * columns. A query is immutable, each method returns a new query and leaves this one unchanged.
+ */
+public final class ClientQuery {
+    /**
+     * The number of clients returned by a query without a limit
+     */
+    public static final int DEFAULT_LIMIT = 50;
+
+    private static final char ESCAPE = '!';
+
+    private final String afterValue;
+    private final int afterId;
+    private final boolean ascending;
+    private final String cityPrefix;
+    private final String firstNamePrefix;
+    private final String lastNamePrefix;
+    private final int limit;
+    private final int offset;
+    private final Sort sort;
+
+    private ClientQuery(String lastNamePrefix, String firstNamePrefix, String cityPrefix, Sort sort, boolean ascending,
+                        int limit, int offset, int afterId, String afterValue) {
+        this.afterValue = afterValue;
+        this.afterId = afterId;
+        this.ascending = ascending;
+        this.cityPrefix = cityPrefix;
+        this.firstNamePrefix = firstNamePrefix;
+        this.lastNamePrefix = lastNamePrefix;
+        this.limit = limit;
+        this.offset = offset;
+        this.sort = sort;
+    }
+
+    /**
+     * Starts a query of every client, ordered by id
+     *
+     * @return The query
+     */
+    public static ClientQuery all() {
+        return new ClientQuery(null, null, null, Sort.ID, true, DEFAULT_LIMIT, 0, 0, null);
+    }
+
+    /**
+     * @param prefix The start of the last names, null or empty to keep every client
+     * @return The new query
+     */
+    public ClientQuery lastNameStartsWith(String prefix) {
+        return new ClientQuery(prefix, firstNamePrefix, cityPrefix, sort, ascending, limit, offset, afterId, afterValue);
+    }
+
+    /**
+     * @param prefix The start of the first names, null or empty to keep every client
+     * @return The new query
+     */
+    public ClientQuery firstNameStartsWith(String prefix) {
+        return new ClientQuery(lastNamePrefix, prefix, cityPrefix, sort, ascending, limit, offset, afterId, afterValue);
+    }
+
+    /**
+     * @param prefix The start of the cities, null or empty to keep every client
+     * @return The new query
+     */
+    public ClientQuery cityStartsWith(String prefix) {
+        return new ClientQuery(lastNamePrefix, firstNamePrefix, prefix, sort, ascending, limit, offset, afterId, afterValue);
+    }
+
+    /**
+     * Sorts the clients in ascending order, then by id
+     *
+     * @param sort The column to sort by
+     * @return The new query, which starts from the first page
+     */
+    public ClientQuery orderBy(Sort sort) {
+        return orderBy(sort, true);
+    }
+
+    /**
+     * Sorts the clients, then by id in the same direction
+     *
+     * @param sort      The column to sort by
+     * @param ascending {@code false} to sort in descending order
+     * @return The new query, which starts from the first page
+     */
+    public ClientQuery orderBy(Sort sort, boolean ascending) {
+        return new ClientQuery(lastNamePrefix, firstNamePrefix, cityPrefix, sort, ascending, limit, 0, 0, null);
+    }
+
+    /**
+     * @param limit The maximum number of clients returned
+     * @return The new query
+     */
+    public ClientQuery limit(int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("The limit must be positive");
+
+        return new ClientQuery(lastNamePrefix, firstNamePrefix, cityPrefix, sort, ascending, limit, offset, afterId, afterValue);
+    }
+
+    /**
+     * Skips clients, the database still reads the skipped rows so prefer {@link #after(Client)} for deep pages
+     *
+     * @param offset The number of clients to skip
+     * @return The new query, which no longer follows a client
+     */
+    public ClientQuery offset(int offset) {
+        if (offset < 0) throw new IllegalArgumentException("The offset can't be negative");
+
+        return new ClientQuery(lastNamePrefix, firstNamePrefix, cityPrefix, sort, ascending, limit, offset, 0, null);
+    }
+
+    /**
+     * Returns the clients following a client in the order of the query, with keyset pagination
+     *
+     * @param last The last client of the previous page, as returned by the query
+     * @return The new query, without offset
+     */
+    public ClientQuery after(Client last) {
+        return new ClientQuery(lastNamePrefix, firstNamePrefix, cityPrefix, sort, ascending, limit, 0, last.getId(), sort.value(last));
+    }
+
+    /**
+     * @return The maximum number of clients returned
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The column the clients are sorted by
+     */
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Returns the parameterized statement of the query, to prepare or to explain it
+     *
+     * @param columns The columns to select
+     * @return The SQL, its parameters are bound by {@link #bind(PreparedStatement)}
+     */
+    public String sql(String columns) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM client").append(where());
+        String direction = ascending ? " ASC" : " DESC";
+
+        sql.append(" ORDER BY ");
+
+        if (sort != Sort.ID) sql.append(sort.column).append(direction).append(", ");
+
+        sql.append("cli_id").append(direction).append(" LIMIT ?");
+
+        if (offset > 0) sql.append(" OFFSET ?");
+
+        return sql.toString();
+    }
+
+    /**
+     * Returns the parameterized statement counting the clients kept by the filters, whatever the sort and the page
+     *
+     * @return The SQL, its parameters are bound by {@link #bindFilters(PreparedStatement)}
+     */
+    public String countSql() {
+        return "SELECT COUNT(*) FROM client" + filters();
+    }
+
+    /**
+     * Binds the values of the query to the statement of {@link #sql(String)}
+     *
+     * @param ps The prepared statement
+     * @throws SQLException If a parameter can't be bound
+     */
+    public void bind(PreparedStatement ps) throws SQLException {
+        int index = bindFilters(ps);
+
+        for (Object parameter : keysetParameters()) {
+            ps.setObject(++index, parameter);
+        }
+
+        ps.setInt(++index, limit);
+
+        if (offset > 0) ps.setInt(++index, offset);
+    }
+
+    /**
+     * Binds the prefixes of the query to the statement of {@link #countSql()}
+     *
+     * @param ps The prepared statement
+     * @return The number of parameters bound
+     * @throws SQLException If a parameter can't be bound
+     */
+    public int bindFilters(PreparedStatement ps) throws SQLException {
+        int index = 0;
+
+        for (String prefix : new String[]{lastNamePrefix, firstNamePrefix, cityPrefix}) {
+            if (isSet(prefix)) ps.setString(++index, escape(prefix) + "%");
+        }
+
+        return index;
+    }
+
+    /**
+     * @return The conditions on the prefixes, empty if there are none
+     */
+    private String filters() {
+        List<String> conditions = new ArrayList<>(3);
+
+        if (isSet(lastNamePrefix)) conditions.add(like("cli_nom"));
+        if (isSet(firstNamePrefix)) conditions.add(like("cli_prenom"));
+        if (isSet(cityPrefix)) conditions.add(like("cli_ville"));
+
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * @return The conditions on the prefixes and the keyset, empty if there are none
+     */
+    private String where() {
+        String filters = filters();
+        String keyset = keyset();
+
+        if (keyset == null) return filters;
+
+        return (filters.isEmpty() ? " WHERE " : filters + " AND ") + keyset;
+    }
+
+    /**
+     * Returns the condition keeping the clients after the last one, nulls come first in ascending order
+     *
+     * @return The condition or null if the query does not follow a client
+     */
+    private String keyset() {
+        if (afterId <= 0) return null;
+
+        String after = ascending ? " > ?" : " < ?";
+
+        if (sort == Sort.ID) return "cli_id" + after;
+
+        String column = sort.column;
+
+        if (afterValue == null) {
+            return ascending
+                    ? "(" + column + " IS NOT NULL OR cli_id" + after + ")"
+                    : "(" + column + " IS NULL AND cli_id" + after + ")";
+        }
+
+        return "(" + column + after + " OR (" + column + " = ? AND cli_id" + after + ")"
+                + (ascending ? "" : " OR " + column + " IS NULL") + ")";
+    }
+
+    /**
+     * @return The values of the keyset condition, in the order of {@link #keyset()}
+     */
+    private List<Object> keysetParameters() {
+        if (afterId <= 0) return List.of();
+
+        if (sort == Sort.ID || afterValue == null) return List.of(afterId);
+
+        return List.of(afterValue, afterValue, afterId);
+    }
+
+    private static String like(String column) {
+        return column + " LIKE ? ESCAPE '" + ESCAPE + "'";
+    }
+
+    /**
+     * Escapes the wildcards of a prefix, so it only matches itself
+     */
+    private static String escape(String prefix) {
+        StringBuilder escaped = new StringBuilder(prefix.length() + 4);
+
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+
+            if (c == ESCAPE || c == '%' || c == '_') escaped.append(ESCAPE);
+
+            escaped.append(c);
+        }
+
+        return escaped.toString();
+    }
+
+    private static boolean isSet(String prefix) {
+        return prefix != null && !prefix.isEmpty();
+    }
+
+    /**
+     * The columns the clients can be sorted by, each but the id has an index on it and the id
+     */
+    public enum Sort {
+        CITY("cli_ville", Client::getCity),
+        FIRST_NAME("cli_prenom", Client::getFirstName),
+        ID("cli_id", client -> null),
+        LAST_NAME("cli_nom", Client::getLastName);
+
+        private final String column;
+        private final Function<Client, String> value;
+
+        Sort(String column, Function<Client, String> value) {
+            this.column = column;
+            this.value = value;
+        }
+
+        private String value(Client client) {
+            return value.apply(client);
+        }
+    }
+}
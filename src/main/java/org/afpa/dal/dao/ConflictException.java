@@ -0,0 +1,31 @@
+package org.afpa.dal.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a row can't be updated because it was modified or deleted since it was read
+ * <p>
+ * The DAOs let it through instead of printing it, so the caller can tell the user and read the row again.
+ */
+public final class ConflictException extends SQLException {
+    private final int id;
+
+    /**
+     * Primary constructor
+     *
+     * @param id      The id of the row
+     * @param version The version of the row the update expected
+     */
+    public ConflictException(int id, int version) {
+        super(String.format("The row %d was modified or deleted since version %d", id, version));
+
+        this.id = id;
+    }
+
+    /**
+     * @return The id of the row
+     */
+    public int getId() {
+        return id;
+    }
+}
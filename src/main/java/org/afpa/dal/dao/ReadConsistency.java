@@ -0,0 +1,18 @@
+package org.afpa.dal.dao;
+
+/**
+ * How up to date the clients read by a DAO must be, chosen per call where the DAO offers it
+ * <p>
+ * Without read replicas, both read from the primary and see every committed write.
+ */
+public enum ReadConsistency {
+    /**
+     * Reads from a replica, which may not have applied the latest writes yet
+     */
+    EVENTUAL,
+
+    /**
+     * Reads from the primary, so the writes committed before the read are seen
+     */
+    READ_YOUR_WRITES
+}
@@ -0,0 +1,148 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.snapshot.ClientSnapshot;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Serves the paged reads of the clients from a local snapshot until it is detached, then from the DAO
+ * <p>
+ * Used at startup, the TableView is filled from the snapshot without waiting for the database, and the snapshot is
+ * detached once the changes made since it was written are applied. The writes, the lists and the streams always go
+ * to the DAO.
+ *
+ * @see ClientSnapshot
+ */
+public final class SnapshotClientDAO implements CRUD<Client> {
+    private final CRUD<Client> dao;
+    private volatile ClientSnapshot snapshot;
+
+    /**
+     * Primary constructor
+     *
+     * @param dao      The DAO to read from once detached and to write to
+     * @param snapshot The snapshot to read from, or null to read from the DAO right away
+     */
+    public SnapshotClientDAO(CRUD<Client> dao, ClientSnapshot snapshot) {
+        this.dao = dao;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int count() throws SQLException {
+        ClientSnapshot snapshot = this.snapshot;
+
+        return snapshot == null ? dao.count() : snapshot.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(int id) throws SQLException {
+        dao.delete(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(int id) throws SQLException {
+        return dao.remove(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Client find(int id) throws SQLException {
+        ClientSnapshot snapshot = this.snapshot;
+        Client client = snapshot == null ? null : snapshot.find(id);
+
+        return client == null ? dao.find(id) : client;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int idAt(int position) throws SQLException {
+        ClientSnapshot snapshot = this.snapshot;
+
+        if (snapshot == null) return dao.idAt(position);
+
+        return position >= 0 && position < snapshot.size() ? snapshot.idAt(position) : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert(Client client) throws SQLException {
+        dao.insert(client);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Client> list() throws SQLException {
+        return dao.list();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Client> page(int afterId, int size) throws SQLException {
+        ClientSnapshot snapshot = this.snapshot;
+
+        return snapshot == null ? dao.page(afterId, size) : snapshot.page(afterId, size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Client> stream() throws SQLException {
+        return dao.stream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(Client client) throws SQLException {
+        dao.update(client);
+    }
+
+    /**
+     * Reads from a snapshot from now on
+     *
+     * @param snapshot The snapshot to read from
+     */
+    public void attach(ClientSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Reads from the DAO from now on
+     */
+    public void detach() {
+        snapshot = null;
+    }
+
+    /**
+     * @return True while the reads are served from a snapshot
+     */
+    public boolean isAttached() {
+        return snapshot != null;
+    }
+}
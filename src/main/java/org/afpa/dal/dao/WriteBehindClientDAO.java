@@ -0,0 +1,390 @@
+package org.afpa.dal.dao;
+
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.metrics.Metrics;
+import org.afpa.dal.metrics.OperationMetrics;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.ExceptionPrinter;
+import org.afpa.dal.shared.UnitOfWork;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Queues the writes of the clients in memory and commits them in batches from a background thread
+ * <p>
+ * The inserts, updates and deletes return as soon as they are queued. The queued updates and deletes are coalesced
+ * per client, so a client modified many times is only written once, with its last values. The writer flushes the
+ * queue every {@code flushInterval} milliseconds, or sooner once {@code flushOperations} writes are queued, in a
+ * single transaction using the batch operations of the {@link ClientDAO}. At most {@code capacity} writes are
+ * queued, the callers wait for the next flush beyond.
+ * <p>
+ * The queued writes are lost if the process dies before they are flushed, {@link #close()} must be called on exit.
+ * A flush which fails is queued again and retried, except for the updates conflicting with a newer version of their
+ * client which are dropped and reported to the conflict handler. Inserted clients get their id once flushed. The
+ * finds see the queued writes, the other reads only once they are flushed.
+ *
+ * @see ClientDAO
+ */
+public final class WriteBehindClientDAO implements CRUD<Client>, AutoCloseable {
+    private static final OperationMetrics FLUSH_METRICS = Metrics.operation("WriteBehindClientDAO.flush");
+
+    private final int capacity;
+    private final Consumer<ConflictException> conflictHandler;
+    private final ClientDAO dao;
+    private final Set<Integer> deletes = new LinkedHashSet<>();
+    private final int flushOperations;
+    private final List<Client> inserts = new ArrayList<>();
+    private final Object lock = new Object();
+    private final UnitOfWork unitOfWork;
+    private final Map<Integer, Client> updates = new LinkedHashMap<>();
+    private final ScheduledExecutorService writer;
+    private boolean closed;
+    private boolean flushRequested;
+
+    /**
+     * Primary constructor
+     *
+     * @param dao             The DAO writing the batches
+     * @param unitOfWork      The unit of work of the DAO, each flush runs in one transaction of it
+     * @param capacity        The maximum number of queued writes
+     * @param flushInterval   The milliseconds between two flushes
+     * @param flushOperations The number of queued writes which triggers a flush before the interval
+     * @param conflictHandler Receives the conflicts of the dropped updates, on the writer thread
+     */
+    public WriteBehindClientDAO(ClientDAO dao, UnitOfWork unitOfWork, int capacity, long flushInterval, int flushOperations,
+                                Consumer<ConflictException> conflictHandler) {
+        if (capacity <= 0 || flushInterval <= 0 || flushOperations <= 0) {
+            throw new IllegalArgumentException("The capacity, the flush interval and the flush operations must be positive");
+        }
+
+        this.capacity = capacity;
+        this.conflictHandler = conflictHandler;
+        this.dao = dao;
+        this.flushOperations = flushOperations;
+        this.unitOfWork = unitOfWork;
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "client-write-behind");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        writer.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+
+        Metrics.gauge("WriteBehindClientDAO.queueDepth", this::getQueueDepth);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int count() throws SQLException {
+        return dao.count();
+    }
+
+    /**
+     * Queues the delete of a client, its queued update is dropped
+     *
+     * @param id The id of the client to delete
+     * @throws SQLException If the DAO is closed or the thread is interrupted while the queue is full
+     */
+    @Override
+    public void delete(int id) throws SQLException {
+        synchronized (lock) {
+            awaitCapacity(updates.containsKey(id) || deletes.contains(id) ? 0 : 1);
+
+            updates.remove(id);
+            deletes.add(id);
+
+            signal();
+        }
+    }
+
+    /**
+     * Finds a client through the DAO then applies its queued writes
+     *
+     * @param id The id of the client to find
+     * @return The client, empty if it is queued for deletion
+     * @throws SQLException If any database error occurs
+     */
+    @Override
+    public Client find(int id) throws SQLException {
+        synchronized (lock) {
+            if (deletes.contains(id)) return new Client();
+
+            Client queued = updates.get(id);
+
+            if (queued != null) return new Client(queued);
+        }
+
+        return dao.find(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int idAt(int position) throws SQLException {
+        return dao.idAt(position);
+    }
+
+    /**
+     * Queues the insert of a client, its id is set once it is flushed
+     *
+     * @param client The client to insert
+     * @throws SQLException If the DAO is closed or the thread is interrupted while the queue is full
+     */
+    @Override
+    public void insert(Client client) throws SQLException {
+        synchronized (lock) {
+            awaitCapacity(1);
+
+            inserts.add(client);
+
+            signal();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Client> list() throws SQLException {
+        return dao.list();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Client> page(int afterId, int size) throws SQLException {
+        return dao.page(afterId, size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Client> stream() throws SQLException {
+        return dao.stream();
+    }
+
+    /**
+     * Queues the update of a client, replacing the values of its queued update
+     * <p>
+     * The queued update keeps the version of the first one, the one the row has until the flush. The version of the
+     * given client is incremented right away, as it will be once flushed, so it can be updated again.
+     *
+     * @param client The client to update, as read with its version
+     * @throws ConflictException If the client is queued for deletion
+     * @throws SQLException      If the DAO is closed or the thread is interrupted while the queue is full
+     */
+    @Override
+    public void update(Client client) throws SQLException {
+        synchronized (lock) {
+            // Lets the caller tell the user right away, the update would only conflict once flushed
+            if (deletes.contains(client.getId())) throw new ConflictException(client.getId(), client.getVersion());
+
+            Client queued = updates.get(client.getId());
+            Client copy = new Client(client);
+
+            // Replacing a queued update takes no room
+            awaitCapacity(queued == null ? 1 : 0);
+
+            if (queued != null) copy.setVersion(queued.getVersion());
+
+            updates.put(client.getId(), copy);
+            client.setVersion(copy.getVersion() + 1);
+
+            signal();
+        }
+    }
+
+    /**
+     * Flushes the queued writes then stops the writer, the following writes are rejected
+     * <p>
+     * The writes which still can't be flushed are printed, they are lost.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+
+            closed = true;
+            lock.notifyAll();
+        }
+
+        writer.shutdown();
+
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Runs on the calling thread once the writer is done
+        flush();
+
+        synchronized (lock) {
+            if (getQueueDepth() > 0) {
+                new ExceptionPrinter<>(new SQLException(getQueueDepth() + " client writes could not be flushed")).print();
+            }
+        }
+    }
+
+    /**
+     * @return The number of queued writes
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return deletes.size() + inserts.size() + updates.size();
+        }
+    }
+
+    /**
+     * Writes the queued writes in one transaction, or queues them again if it fails
+     */
+    private void flush() {
+        List<Client> inserted;
+        Map<Integer, Client> updated;
+        Set<Integer> deleted;
+
+        synchronized (lock) {
+            flushRequested = false;
+
+            if (getQueueDepth() == 0) return;
+
+            inserted = new ArrayList<>(inserts);
+            updated = new LinkedHashMap<>(updates);
+            deleted = new LinkedHashSet<>(deletes);
+
+            inserts.clear();
+            updates.clear();
+            deletes.clear();
+
+            // Wakes up the writers waiting for room
+            lock.notifyAll();
+        }
+
+        long start = Metrics.start();
+
+        try {
+            while (true) {
+                try {
+                    write(inserted, updated, deleted);
+
+                    break;
+                } catch (ConflictException e) {
+                    // Drops the update which lost against a newer version, then writes the others again
+                    updated.remove(e.getId());
+                    conflictHandler.accept(e);
+                }
+            }
+
+            FLUSH_METRICS.success(start);
+        } catch (SQLException e) {
+            FLUSH_METRICS.failure(start);
+
+            // Pretty prints the exception, the unit of work already rolled back the changes
+            new ExceptionPrinter<>(e).print();
+
+            requeue(inserted, updated, deleted);
+        }
+    }
+
+    /**
+     * Writes a batch in a single transaction
+     *
+     * @throws ConflictException If an update conflicts, the whole batch is rolled back
+     * @throws SQLException      If any database error occurs, the whole batch is rolled back
+     */
+    private void write(List<Client> inserted, Map<Integer, Client> updated, Set<Integer> deleted) throws SQLException {
+        // The DAO increments the versions it updates, the batch keeps its own in case it is rolled back
+        List<Client> copies = new ArrayList<>(updated.size());
+
+        for (Client client : updated.values()) {
+            copies.add(new Client(client));
+        }
+
+        unitOfWork.run(connection -> {
+            if (!deleted.isEmpty()) dao.deleteAll(deleted.stream().mapToInt(Integer::intValue).toArray());
+            if (!inserted.isEmpty()) dao.insertAll(inserted);
+            if (!copies.isEmpty()) dao.updateAll(copies);
+        });
+    }
+
+    /**
+     * Puts back a batch which could not be written before the writes queued since
+     */
+    private void requeue(List<Client> inserted, Map<Integer, Client> updated, Set<Integer> deleted) {
+        synchronized (lock) {
+            inserts.addAll(0, inserted);
+
+            for (Map.Entry<Integer, Client> entry : updated.entrySet()) {
+                if (deleted.contains(entry.getKey()) || deletes.contains(entry.getKey())) continue;
+
+                // A newer update keeps its values with the version the row still has
+                Client newer = updates.get(entry.getKey());
+
+                if (newer == null) {
+                    updates.put(entry.getKey(), entry.getValue());
+                } else {
+                    newer.setVersion(entry.getValue().getVersion());
+                }
+            }
+
+            for (int id : deleted) {
+                updates.remove(id);
+                deletes.add(id);
+            }
+        }
+    }
+
+    /**
+     * Waits until the queue has room for more writes, holding the lock
+     *
+     * @param writes The number of writes to make room for
+     * @throws SQLException If the DAO is closed or the thread is interrupted
+     */
+    private void awaitCapacity(int writes) throws SQLException {
+        while (!closed && getQueueDepth() + writes > capacity) {
+            // Flushes right away rather than on the next interval
+            signal();
+
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new SQLException("Interrupted while waiting for the write-behind queue", e);
+            }
+        }
+
+        if (closed) {
+            throw new SQLException("The write-behind DAO is closed");
+        }
+    }
+
+    /**
+     * Flushes before the interval once enough writes are queued, holding the lock
+     */
+    private void signal() {
+        if (!flushRequested && getQueueDepth() >= Math.min(flushOperations, capacity)) {
+            flushRequested = true;
+            writer.execute(this::flush);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.afpa.dal.duplicate;
+
+import java.util.Arrays;
+
+/**
+ * The ids of the clients grouped by blocking key, in arrays of primitives
+ * <p>
+ * Each key of an open addressing table heads a linked list of entries, so a client costs a few ints per key rather
+ * than a boxed id in a collection. The keys of the emptied blocks stay in the table. The index is not thread safe.
+ */
+final class BlockIndex {
+    private int blocks;
+    private int free;
+    // The entry heading each block plus one, so that the zero of a new array is an empty block
+    private int[] heads = new int[64];
+    private int[] ids = new int[64];
+    private long[] keys = new long[64];
+    private int[] next = new int[64];
+    private int size;
+    private int[] sizes = new int[64];
+    private boolean[] used = new boolean[64];
+
+    /**
+     * Adds a client to a block
+     */
+    void add(long key, int id) {
+        int slot = slot(key);
+
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            blocks++;
+        }
+
+        int entry;
+
+        if (free > 0) {
+            entry = free - 1;
+            free = next[entry];
+        } else {
+            entry = size++;
+
+            if (entry == ids.length) {
+                ids = Arrays.copyOf(ids, entry * 2);
+                next = Arrays.copyOf(next, entry * 2);
+            }
+        }
+
+        ids[entry] = id;
+        next[entry] = heads[slot];
+        heads[slot] = entry + 1;
+        sizes[slot]++;
+
+        if (blocks * 4 > keys.length * 3) rehash(keys.length * 2);
+    }
+
+    /**
+     * Removes a client from a block
+     */
+    void remove(long key, int id) {
+        int slot = slot(key);
+
+        if (!used[slot]) return;
+
+        for (int entry = heads[slot] - 1, previous = -1; entry >= 0; previous = entry, entry = next[entry] - 1) {
+            if (ids[entry] != id) continue;
+
+            if (previous < 0) heads[slot] = next[entry];
+            else next[previous] = next[entry];
+
+            next[entry] = free;
+            free = entry + 1;
+            sizes[slot]--;
+
+            return;
+        }
+    }
+
+    /**
+     * @return The ids of a block, empty if there is none
+     */
+    int[] block(long key) {
+        int slot = slot(key);
+
+        return used[slot] ? block(slot) : new int[0];
+    }
+
+    /**
+     * @param minimum The minimum number of clients of the blocks
+     * @return The keys of the blocks holding at least that many clients
+     */
+    long[] keys(int minimum) {
+        long[] found = new long[blocks];
+        int count = 0;
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot] && sizes[slot] >= minimum) found[count++] = keys[slot];
+        }
+
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return The number of clients of a block
+     */
+    int size(long key) {
+        int slot = slot(key);
+
+        return used[slot] ? sizes[slot] : 0;
+    }
+
+    void clear() {
+        blocks = free = size = 0;
+        Arrays.fill(heads, 0);
+        Arrays.fill(sizes, 0);
+        Arrays.fill(used, false);
+    }
+
+    private int[] block(int slot) {
+        int[] block = new int[sizes[slot]];
+        int count = 0;
+
+        for (int entry = heads[slot] - 1; entry >= 0; entry = next[entry] - 1) {
+            block[count++] = ids[entry];
+        }
+
+        return block;
+    }
+
+    /**
+     * @return The slot of the key, else the free slot ending its probe sequence
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ key >>> 32) * 0x9E3779B9 >>> 1 & mask;
+
+        while (used[slot] && keys[slot] != key) {
+            slot = slot + 1 & mask;
+        }
+
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldHeads = heads;
+        long[] oldKeys = keys;
+        int[] oldSizes = sizes;
+        boolean[] oldUsed = used;
+
+        heads = new int[capacity];
+        keys = new long[capacity];
+        sizes = new int[capacity];
+        used = new boolean[capacity];
+
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (!oldUsed[old]) continue;
+
+            int slot = slot(oldKeys[old]);
+
+            used[slot] = true;
+            keys[slot] = oldKeys[old];
+            heads[slot] = oldHeads[old];
+            sizes[slot] = oldSizes[old];
+        }
+    }
+}
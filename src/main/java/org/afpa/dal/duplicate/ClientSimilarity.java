@@ -0,0 +1,239 @@
+package org.afpa.dal.duplicate;
+
+import org.afpa.dal.models.Client;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Compares clients to tell the ones which are likely the same person typed twice
+ * <p>
+ * The fields are compared once normalized, in lower case, without accents and with single spaces between words.
+ * Two clients are only compared when they share a blocking key, either their last name and city, or the Soundex
+ * codes of their names, so a typo in one of them still finds the other.
+ */
+public final class ClientSimilarity {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // The Soundex digit of each letter from a to z, 0 for the vowels and the letters it ignores
+    private static final String SOUNDEX_DIGITS = "01230120022455012623010202";
+
+    // The weights of the last name, the first name, the city and the address in the score
+    private static final double[] WEIGHTS = {0.35, 0.30, 0.20, 0.15};
+
+    private ClientSimilarity() {
+    }
+
+    /**
+     * Scores how much two clients look alike
+     * <p>
+     * Each field is compared with the Jaro-Winkler similarity, then weighted, the last name weighing the most and the
+     * address the least. The fields empty in both clients are left out of the score.
+     *
+     * @param first  A client
+     * @param second Another client
+     * @return The score, from 0 for clients which have nothing in common to 1 for the same normalized values
+     */
+    public static double score(Client first, Client second) {
+        return score(fields(first), fields(second));
+    }
+
+    /**
+     * Scores how much two clients look alike from their normalized fields, to normalize each client once when it is
+     * compared with many others
+     *
+     * @param firstFields  The fields of a client, as returned by {@link #fields(Client)}
+     * @param secondFields The fields of another client
+     * @return The score, from 0 for clients which have nothing in common to 1 for the same normalized values
+     */
+    public static double score(String[] firstFields, String[] secondFields) {
+        double score = 0;
+        double weights = 0;
+
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            if (firstFields[i].isEmpty() && secondFields[i].isEmpty()) continue;
+
+            score += WEIGHTS[i] * jaroWinkler(firstFields[i], secondFields[i]);
+            weights += WEIGHTS[i];
+        }
+
+        return weights == 0 ? 0 : score / weights;
+    }
+
+    /**
+     * Returns the blocking keys of a client, the clients sharing none of them are never compared
+     *
+     * @param client The client
+     * @return The hash of its last name and city and the one of the Soundex codes of its names, none if it has no
+     * last name
+     */
+    public static long[] blockingKeys(Client client) {
+        String lastName = normalize(client.getLastName());
+
+        if (lastName.isEmpty()) return new long[0];
+
+        return new long[]{
+                hash('N', lastName + '|' + normalize(client.getCity())),
+                hash('P', soundex(lastName) + '|' + soundex(normalize(client.getFirstName())))
+        };
+    }
+
+    /**
+     * Normalizes a field
+     *
+     * @param value The value, may be null
+     * @return The lower case words without accents separated by single spaces, empty for null
+     */
+    public static String normalize(String value) {
+        if (value == null) return "";
+
+        String ascii = normalizeAscii(value);
+
+        if (ascii != null) return ascii;
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("").toLowerCase();
+
+        return SEPARATORS.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * Encodes a normalized value with the Soundex algorithm, its first letter followed by three digits
+     *
+     * @param value A normalized value
+     * @return The code, empty if the value has no letter
+     */
+    public static String soundex(String value) {
+        StringBuilder code = new StringBuilder(4);
+        char previous = 0;
+
+        for (int i = 0; i < value.length() && code.length() < 4; i++) {
+            char c = value.charAt(i);
+
+            if (c < 'a' || c > 'z') continue;
+
+            char digit = SOUNDEX_DIGITS.charAt(c - 'a');
+
+            if (code.length() == 0) {
+                code.append(Character.toUpperCase(c));
+            } else if (digit != '0' && digit != previous) {
+                code.append(digit);
+            }
+
+            // H and W do not separate two letters with the same code, the vowels do
+            if (c != 'h' && c != 'w') previous = digit;
+        }
+
+        if (code.length() == 0) return "";
+
+        while (code.length() < 4) code.append('0');
+
+        return code.toString();
+    }
+
+    /**
+     * Returns the Jaro-Winkler similarity of two strings, which favors the strings starting alike
+     *
+     * @param first  A string
+     * @param second Another string
+     * @return The similarity, from 0 to 1 for equal strings
+     */
+    public static double jaroWinkler(String first, String second) {
+        if (first.equals(second)) return 1;
+        if (first.isEmpty() || second.isEmpty()) return 0;
+
+        int window = Math.max(0, Math.max(first.length(), second.length()) / 2 - 1);
+        boolean[] firstMatched = new boolean[first.length()];
+        boolean[] secondMatched = new boolean[second.length()];
+        int matches = 0;
+
+        for (int i = 0; i < first.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(second.length() - 1, i + window);
+
+            for (int j = from; j <= to; j++) {
+                if (!secondMatched[j] && first.charAt(i) == second.charAt(j)) {
+                    firstMatched[i] = secondMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+
+        if (matches == 0) return 0;
+
+        // Half the matched characters which are not in the same order
+        int transpositions = 0;
+
+        for (int i = 0, j = 0; i < first.length(); i++) {
+            if (!firstMatched[i]) continue;
+
+            while (!secondMatched[j]) j++;
+
+            if (first.charAt(i) != second.charAt(j++)) transpositions++;
+        }
+
+        double jaro = ((double) matches / first.length() + (double) matches / second.length()
+                + (matches - transpositions / 2.0) / matches) / 3;
+
+        int prefix = 0;
+
+        while (prefix < Math.min(4, Math.min(first.length(), second.length())) && first.charAt(prefix) == second.charAt(prefix)) {
+            prefix++;
+        }
+
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    /**
+     * @param client A client
+     * @return The normalized last name, first name, city and address of the client
+     */
+    public static String[] fields(Client client) {
+        return new String[]{normalize(client.getLastName()), normalize(client.getFirstName()), normalize(client.getCity()),
+                normalize(client.getAddress())};
+    }
+
+    /**
+     * Normalizes an ASCII value without going through the regular expressions, most values are
+     *
+     * @return The normalized value, or null if the value is not ASCII
+     */
+    private static String normalizeAscii(String value) {
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean separator = false;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c >= 0x80) return null;
+
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
+                if (separator && normalized.length() > 0) normalized.append(' ');
+
+                normalized.append(c);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+
+        return normalized.toString();
+    }
+
+    /**
+     * Hashes a key on 64 bits with FNV-1a, a collision only makes two more clients compared
+     */
+    private static long hash(char kind, String key) {
+        long hash = 0xcbf29ce484222325L;
+
+        hash = (hash ^ kind) * 0x100000001b3L;
+
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,39 @@
+package org.afpa.dal.duplicate;
+
+import org.afpa.dal.models.Client;
+
+/**
+ * Two clients which are likely the same person
+ */
+public final class Duplicate {
+    private final Client client;
+    private final Client other;
+    private final double score;
+
+    public Duplicate(Client client, Client other, double score) {
+        this.client = client;
+        this.other = other;
+        this.score = score;
+    }
+
+    /**
+     * @return The client checked, or the one with the lowest id in a batch
+     */
+    public Client getClient() {
+        return client;
+    }
+
+    /**
+     * @return The client it looks like
+     */
+    public Client getOther() {
+        return other;
+    }
+
+    /**
+     * @return The similarity of the clients, from 0 to 1
+     */
+    public double getScore() {
+        return score;
+    }
+}
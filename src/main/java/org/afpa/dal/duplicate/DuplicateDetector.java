@@ -0,0 +1,164 @@
+package org.afpa.dal.duplicate;
+
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.store.ClientStore;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds the likely duplicates among all the clients in one pass
+ * <p>
+ * The clients are streamed once into a {@link ClientStore} and grouped by blocking key, then the blocks are compared
+ * in parallel over the common fork-join pool, every pair of a block being scored. A pair sharing both its keys is
+ * only scored in one of their blocks. The blocks larger than {@code maxBlockSize}, such as a very common name
+ * in a big city, are skipped and counted in the report rather than compared in quadratic time.
+ *
+ * @see ClientSimilarity
+ */
+public final class DuplicateDetector {
+    /**
+     * The number of clients of a block beyond which it is skipped
+     */
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 1000;
+
+    private final int maxBlockSize;
+    private final double threshold;
+
+    public DuplicateDetector() {
+        this(DuplicateIndex.DEFAULT_THRESHOLD, DEFAULT_MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Primary constructor
+     *
+     * @param threshold    The score from which two clients are reported as duplicates
+     * @param maxBlockSize The number of clients of a block beyond which it is skipped
+     */
+    public DuplicateDetector(double threshold, int maxBlockSize) {
+        if (maxBlockSize < 2) throw new IllegalArgumentException("The blocks must be able to hold a pair");
+
+        this.maxBlockSize = maxBlockSize;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Finds the duplicates among the clients streamed from a DAO
+     *
+     * @param dao The DAO to stream the clients from
+     * @return The report
+     * @throws SQLException If the clients can't be read
+     */
+    public DuplicateReport findAll(CRUD<Client> dao) throws SQLException {
+        try (Stream<Client> clients = dao.stream()) {
+            return findAll(clients);
+        }
+    }
+
+    /**
+     * Finds the duplicates among clients
+     *
+     * @param clients The saved clients, read once
+     * @return The report
+     */
+    public DuplicateReport findAll(Stream<Client> clients) {
+        ClientStore store = new ClientStore();
+        BlockIndex blocks = new BlockIndex();
+        long[] read = {0};
+
+        clients.forEach(client -> {
+            if (client.getId() <= 0) return;
+
+            store.put(client);
+
+            for (long key : ClientSimilarity.blockingKeys(client)) {
+                blocks.add(key, client.getId());
+            }
+
+            read[0]++;
+        });
+
+        AtomicLong comparisons = new AtomicLong();
+        AtomicInteger oversized = new AtomicInteger();
+
+        // Only read from now on, which the store and the blocks allow from several threads
+        List<Duplicate> duplicates = Arrays.stream(blocks.keys(2)).parallel()
+                .mapToObj(key -> {
+                    if (blocks.size(key) > maxBlockSize) {
+                        oversized.incrementAndGet();
+
+                        return List.<Duplicate>of();
+                    }
+
+                    return compare(key, blocks, store, comparisons);
+                })
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble(Duplicate::getScore).reversed())
+                .collect(Collectors.toList());
+
+        return new DuplicateReport(duplicates, read[0], comparisons.get(), oversized.get());
+    }
+
+    /**
+     * Scores every pair of a block
+     */
+    private List<Duplicate> compare(long key, BlockIndex blocks, ClientStore store, AtomicLong comparisons) {
+        int[] block = blocks.block(key);
+        Client[] clients = new Client[block.length];
+        String[][] fields = new String[block.length][];
+        long[][] keys = new long[block.length][];
+
+        // Normalizes each client once rather than for each pair
+        for (int i = 0; i < block.length; i++) {
+            clients[i] = store.get(block[i]);
+            fields[i] = ClientSimilarity.fields(clients[i]);
+            keys[i] = ClientSimilarity.blockingKeys(clients[i]);
+        }
+
+        List<Duplicate> duplicates = new ArrayList<>();
+        long compared = 0;
+
+        for (int i = 0; i < clients.length; i++) {
+            for (int j = i + 1; j < clients.length; j++) {
+                if (lowestSharedKey(keys[i], keys[j], blocks) != key) continue;
+
+                compared++;
+
+                double score = ClientSimilarity.score(fields[i], fields[j]);
+
+                if (score >= threshold) {
+                    boolean ordered = clients[i].getId() < clients[j].getId();
+
+                    duplicates.add(new Duplicate(ordered ? clients[i] : clients[j], ordered ? clients[j] : clients[i], score));
+                }
+            }
+        }
+
+        comparisons.addAndGet(compared);
+
+        return duplicates;
+    }
+
+    /**
+     * @return The lowest key of both clients whose block is compared, the pair is scored in that block only
+     */
+    private long lowestSharedKey(long[] first, long[] second, BlockIndex blocks) {
+        long lowest = Long.MAX_VALUE;
+
+        for (long key : first) {
+            for (long other : second) {
+                if (key == other && key < lowest && blocks.size(key) <= maxBlockSize) lowest = key;
+            }
+        }
+
+        return lowest;
+    }
+}
@@ -0,0 +1,114 @@
+package org.afpa.dal.duplicate;
+
+import org.afpa.dal.models.Client;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Finds the likely duplicates of a client among the known clients, as it is added or modified
+ * <p>
+ * The index only keeps the ids of the clients by blocking key, the clients themselves are read through a lookup,
+ * such as the {@link org.afpa.dal.search.ClientSearchIndex} which already holds them. A check scores the clients
+ * sharing a blocking key with the checked one, so it costs the same whatever the number of clients. The index is
+ * safe to use from several threads.
+ *
+ * @see ClientSimilarity
+ */
+public final class DuplicateIndex {
+    /**
+     * The score from which two clients are reported as duplicates
+     */
+    public static final double DEFAULT_THRESHOLD = 0.9;
+
+    private final BlockIndex blocks = new BlockIndex();
+    private final IntFunction<Client> clients;
+    private final double threshold;
+
+    /**
+     * @param clients Finds a known client by id, null if it is unknown
+     */
+    public DuplicateIndex(IntFunction<Client> clients) {
+        this(clients, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Primary constructor
+     *
+     * @param clients   Finds a known client by id, null if it is unknown
+     * @param threshold The score from which two clients are reported as duplicates
+     */
+    public DuplicateIndex(IntFunction<Client> clients, double threshold) {
+        this.clients = clients;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Adds a saved client to the blocks of its keys
+     *
+     * @param client The client
+     */
+    public synchronized void add(Client client) {
+        if (client.getId() <= 0) return;
+
+        for (long key : ClientSimilarity.blockingKeys(client)) {
+            blocks.add(key, client.getId());
+        }
+    }
+
+    /**
+     * Removes a client from the blocks of its keys
+     *
+     * @param client The client, with the values it was added with
+     */
+    public synchronized void remove(Client client) {
+        for (long key : ClientSimilarity.blockingKeys(client)) {
+            blocks.remove(key, client.getId());
+        }
+    }
+
+    /**
+     * Removes every client
+     */
+    public synchronized void clear() {
+        blocks.clear();
+    }
+
+    /**
+     * Finds the likely duplicates of a client
+     *
+     * @param client The client to check, new or modified, it is never reported as its own duplicate
+     * @return The duplicates, the best scores first, empty if there are none
+     */
+    public List<Duplicate> check(Client client) {
+        Set<Integer> candidates = new HashSet<>();
+
+        synchronized (this) {
+            for (long key : ClientSimilarity.blockingKeys(client)) {
+                for (int id : blocks.block(key)) {
+                    if (id != client.getId()) candidates.add(id);
+                }
+            }
+        }
+
+        List<Duplicate> duplicates = new ArrayList<>();
+
+        for (int id : candidates) {
+            Client candidate = clients.apply(id);
+
+            if (candidate == null) continue;
+
+            double score = ClientSimilarity.score(client, candidate);
+
+            if (score >= threshold) duplicates.add(new Duplicate(client, candidate, score));
+        }
+
+        duplicates.sort(Comparator.comparingDouble(Duplicate::getScore).reversed());
+
+        return duplicates;
+    }
+}
@@ -0,0 +1,48 @@
+package org.afpa.dal.duplicate;
+
+import java.util.List;
+
+/**
+ * The result of a full pass of duplicate detection
+ */
+public final class DuplicateReport {
+    private final long clients;
+    private final long comparisons;
+    private final List<Duplicate> duplicates;
+    private final int oversizedBlocks;
+
+    public DuplicateReport(List<Duplicate> duplicates, long clients, long comparisons, int oversizedBlocks) {
+        this.clients = clients;
+        this.comparisons = comparisons;
+        this.duplicates = duplicates;
+        this.oversizedBlocks = oversizedBlocks;
+    }
+
+    /**
+     * @return The number of clients read
+     */
+    public long getClients() {
+        return clients;
+    }
+
+    /**
+     * @return The number of pairs of clients scored
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * @return The pairs of likely duplicates, the best scores first
+     */
+    public List<Duplicate> getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return The number of blocks skipped because they held too many clients to compare them all
+     */
+    public int getOversizedBlocks() {
+        return oversizedBlocks;
+    }
+}
@@ -0,0 +1,22 @@
+package org.afpa.dal.interfaces;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncCRUD<T> {
+    CompletableFuture<Integer> count();
+
+    CompletableFuture<Void> delete(int id);
+
+    CompletableFuture<T> find(int id);
+
+    CompletableFuture<Integer> idAt(int position);
+
+    CompletableFuture<Void> insert(T object);
+
+    CompletableFuture<ArrayList<T>> list();
+
+    CompletableFuture<ArrayList<T>> page(int afterId, int size);
+
+    CompletableFuture<Void> update(T object);
+}
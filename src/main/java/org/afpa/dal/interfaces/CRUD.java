@@ -2,16 +2,38 @@ package org.afpa.dal.interfaces;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 
 public interface CRUD<T> {
     void delete(int id) throws SQLException;
 
+    /**
+     * Deletes a model and tells whether it worked, where {@link #delete(int)} only prints the failures of some DAOs
+     *
+     * @param id The id of the model to delete
+     * @return False if the delete failed and was rolled back
+     * @throws SQLException If any database error occurs and the DAO throws it
+     */
+    default boolean remove(int id) throws SQLException {
+        delete(id);
+
+        return true;
+    }
+
     T find(int id) throws SQLException;
 
+    int count() throws SQLException;
+
+    int idAt(int position) throws SQLException;
+
     void insert(T object) throws SQLException;
 
     ArrayList<T> list() throws SQLException;
 
+    ArrayList<T> page(int afterId, int size) throws SQLException;
+
+    Stream<T> stream() throws SQLException;
+
     void update(T object) throws SQLException;
 }
 
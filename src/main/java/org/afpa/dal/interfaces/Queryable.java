@@ -0,0 +1,10 @@
+package org.afpa.dal.interfaces;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+public interface Queryable<T, Q> {
+    int count(Q query) throws SQLException;
+
+    ArrayList<T> query(Q query) throws SQLException;
+}
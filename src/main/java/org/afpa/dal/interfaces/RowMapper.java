@@ -0,0 +1,28 @@
+package org.afpa.dal.interfaces;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+
+    /**
+     * Maps every remaining row of a result set
+     *
+     * @param rs       The result set, positioned before its first remaining row
+     * @param capacity The expected number of rows
+     * @return The mapped rows
+     * @throws SQLException If any database error occurs
+     */
+    default ArrayList<T> mapAll(ResultSet rs, int capacity) throws SQLException {
+        ArrayList<T> rows = new ArrayList<>(capacity);
+
+        while (rs.next()) {
+            rows.add(map(rs));
+        }
+
+        return rows;
+    }
+}
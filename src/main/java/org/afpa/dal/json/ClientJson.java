@@ -0,0 +1,334 @@
+package org.afpa.dal.json;
+
+import org.afpa.dal.models.Client;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * Writes the clients as JSON objects and reads them back, without a JSON library
+ * <p>
+ * A client is the flat object {@code {"id":1,"version":0,"lastName":"...","firstName":"...","address":"...",
+ * "city":"..."}}. The arrays are written one client at a time, so a list streamed from the database is never held in
+ * memory. The reader only accepts such flat objects and ignores the keys it does not know.
+ */
+public final class ClientJson {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ClientJson() { }
+
+    /**
+     * Writes a client as a JSON object
+     *
+     * @param client The client
+     * @param out    The destination, buffered by the caller
+     * @throws IOException If the output can't be written
+     */
+    public static void write(Client client, Writer out) throws IOException {
+        out.write("{\"id\":");
+        out.write(Integer.toString(client.getId()));
+        out.write(",\"version\":");
+        out.write(Integer.toString(client.getVersion()));
+        out.write(",\"lastName\":");
+        string(client.getLastName(), out);
+        out.write(",\"firstName\":");
+        string(client.getFirstName(), out);
+        out.write(",\"address\":");
+        string(client.getAddress(), out);
+        out.write(",\"city\":");
+        string(client.getCity(), out);
+        out.write('}');
+    }
+
+    /**
+     * Writes clients as a JSON array, as they come
+     *
+     * @param clients The clients
+     * @param out     The destination, buffered by the caller
+     * @return The number of clients written
+     * @throws IOException If the output can't be written
+     */
+    public static long writeAll(Iterator<Client> clients, Writer out) throws IOException {
+        long written = 0;
+
+        out.write('[');
+
+        while (clients.hasNext()) {
+            if (written++ > 0) out.write(',');
+
+            write(clients.next(), out);
+        }
+
+        out.write(']');
+
+        return written;
+    }
+
+    /**
+     * Writes a value as a JSON string
+     *
+     * @param value The value, written as null when null
+     * @param out   The destination
+     * @throws IOException If the output can't be written
+     */
+    public static void string(String value, Writer out) throws IOException {
+        if (value == null) {
+            out.write("null");
+
+            return;
+        }
+
+        out.write('"');
+
+        int from = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            // Copies the run of plain characters before the escaped one
+            out.write(value, from, i - from);
+            from = i + 1;
+
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    out.write("\\u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+            }
+        }
+
+        out.write(value, from, value.length() - from);
+        out.write('"');
+    }
+
+    /**
+     * Reads a client from a JSON object
+     *
+     * @param json The object
+     * @return A new client, the missing keys leave their default values
+     * @throws IllegalArgumentException If the JSON is malformed or a value has the wrong type
+     */
+    public static Client read(String json) {
+        Parser parser = new Parser(json);
+        Client client = new Client();
+
+        parser.expect('{');
+
+        if (!parser.skip('}')) {
+            do {
+                String key = parser.string();
+
+                parser.expect(':');
+
+                switch (key) {
+                    case "id":
+                        client.setId(parser.integer());
+                        break;
+                    case "version":
+                        client.setVersion(parser.integer());
+                        break;
+                    case "lastName":
+                        client.setLastName(parser.nullableString());
+                        break;
+                    case "firstName":
+                        client.setFirstName(parser.nullableString());
+                        break;
+                    case "address":
+                        client.setAddress(parser.nullableString());
+                        break;
+                    case "city":
+                        client.setCity(parser.nullableString());
+                        break;
+                    default:
+                        parser.scalar();
+                }
+            } while (parser.skip(','));
+
+            parser.expect('}');
+        }
+
+        parser.end();
+
+        return client;
+    }
+
+    /**
+     * Reads the tokens of a flat JSON object
+     */
+    private static final class Parser {
+        private final String json;
+        private int position;
+
+        private Parser(String json) {
+            this.json = json;
+        }
+
+        private void expect(char c) {
+            if (!skip(c)) throw error("'" + c + "' expected");
+        }
+
+        /**
+         * @return True if the next character was the given one, which is then consumed
+         */
+        private boolean skip(char c) {
+            whitespace();
+
+            if (position < json.length() && json.charAt(position) == c) {
+                position++;
+
+                return true;
+            }
+
+            return false;
+        }
+
+        private void end() {
+            whitespace();
+
+            if (position < json.length()) throw error("End of the object expected");
+        }
+
+        private int integer() {
+            whitespace();
+
+            int start = position;
+
+            if (position < json.length() && json.charAt(position) == '-') position++;
+
+            while (position < json.length() && Character.isDigit(json.charAt(position))) position++;
+
+            try {
+                return Integer.parseInt(json.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Integer expected");
+            }
+        }
+
+        private String nullableString() {
+            whitespace();
+
+            return json.startsWith("null", position) ? literal("null") : string();
+        }
+
+        private String string() {
+            expect('"');
+
+            StringBuilder value = new StringBuilder();
+
+            while (position < json.length()) {
+                char c = json.charAt(position++);
+
+                if (c == '"') return value.toString();
+
+                if (c != '\\') {
+                    value.append(c);
+
+                    continue;
+                }
+
+                if (position >= json.length()) break;
+
+                char escaped = json.charAt(position++);
+
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append(escaped);
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > json.length()) throw error("Unicode escape expected");
+
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Unicode escape expected");
+                        }
+
+                        position += 4;
+                        break;
+                    default:
+                        throw error("Unknown escape");
+                }
+            }
+
+            throw error("Unterminated string");
+        }
+
+        /**
+         * Skips the value of an unknown key, which must be a string, a number, a boolean or null
+         */
+        private void scalar() {
+            whitespace();
+
+            if (position >= json.length()) throw error("Value expected");
+
+            char c = json.charAt(position);
+
+            if (c == '"') {
+                string();
+            } else if (c == 't') {
+                literal("true");
+            } else if (c == 'f') {
+                literal("false");
+            } else if (c == 'n') {
+                literal("null");
+            } else {
+                int start = position;
+
+                while (position < json.length() && "+-.eE0123456789".indexOf(json.charAt(position)) >= 0) position++;
+
+                if (start == position) throw error("Value expected");
+            }
+        }
+
+        private String literal(String literal) {
+            if (!json.startsWith(literal, position)) throw error(literal + " expected");
+
+            position += literal.length();
+
+            return null;
+        }
+
+        private void whitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) position++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of the JSON");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.afpa.dal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds
+ * <p>
+ * Values are counted in logarithmic buckets, each power of two being split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, so the percentiles are accurate to about 3% whatever the magnitude of the latencies.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Records a latency
+     *
+     * @param nanos The latency in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        total.increment();
+
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return The number of recorded latencies
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * @return The highest recorded latency in nanoseconds
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean recorded latency in nanoseconds
+     */
+    public double mean() {
+        long count = total.sum();
+
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns the latency under which the given fraction of the recorded latencies fall
+     *
+     * @param fraction The fraction, between 0 and 1
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds
+     */
+    public long percentile(double fraction) {
+        long count = total.sum();
+
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded latency
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+
+        max.set(0);
+        sum.reset();
+        total.reset();
+    }
+
+    /**
+     * @param value A latency in nanoseconds
+     * @return The index of its bucket
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucket The index of a bucket
+     * @return The highest latency counted in the bucket
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
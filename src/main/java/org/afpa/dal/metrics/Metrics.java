@@ -0,0 +1,157 @@
+package org.afpa.dal.metrics;
+
+import org.afpa.dal.shared.ExceptionPrinter;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The registry of the DAO and connection pool metrics
+ * <p>
+ * Metrics are off unless the JVM runs with {@code -Dorg.afpa.metrics.enabled=true}, the DAOs then only pay for a
+ * constant check. Once enabled, they are exposed over JMX under {@code org.afpa:type=Metrics} and
+ * {@code org.afpa:type=PoolMetrics}, and a snapshot is printed every {@code org.afpa.metrics.dumpInterval} seconds
+ * (60 by default, 0 to never print).
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("org.afpa.metrics.enabled");
+
+    private static final long DUMP_INTERVAL = Long.getLong("org.afpa.metrics.dumpInterval", 60);
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentSkipListMap<>();
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentSkipListMap<>();
+    private static final PoolMetrics POOL = new PoolMetrics();
+
+    static {
+        if (ENABLED) {
+            register();
+            scheduleDumps();
+        }
+    }
+
+    private Metrics() { }
+
+    /**
+     * Returns the metrics of an operation, created on first use
+     *
+     * @param name The name of the operation, such as {@code ClientDAO.find}
+     * @return The metrics of the operation
+     */
+    public static OperationMetrics operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    /**
+     * Registers a value read each time the metrics are, such as the length of a queue
+     *
+     * @param name  The name of the value, such as {@code WriteBehindClientDAO.queueDepth}
+     * @param gauge Reads the current value
+     */
+    public static void gauge(String name, LongSupplier gauge) {
+        GAUGES.put(name, gauge);
+    }
+
+    /**
+     * @return The metrics of the connection pool, to set as its metrics tracker factory
+     */
+    public static PoolMetrics pool() {
+        return POOL;
+    }
+
+    /**
+     * Returns the start time of an operation
+     *
+     * @return The current time in nanoseconds, or 0 when the metrics are disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return The current values of all the metrics, one line each
+     */
+    public static String snapshot() {
+        StringBuilder snapshot = new StringBuilder("Metrics at ").append(LocalDateTime.now()).append('\n');
+
+        for (OperationMetrics operation : OPERATIONS.values()) {
+            snapshot.append(operation.snapshot()).append('\n');
+        }
+
+        for (Map.Entry<String, LongSupplier> gauge : GAUGES.entrySet()) {
+            snapshot.append(String.format("%-24s value=%d", gauge.getKey(), gauge.getValue().getAsLong())).append('\n');
+        }
+
+        return snapshot.append(POOL).append('\n').toString();
+    }
+
+    /**
+     * Registers the MBeans of the metrics
+     */
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMXBean() {
+                @Override
+                public Map<String, Long> getGauges() {
+                    Map<String, Long> values = new TreeMap<>();
+
+                    GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+
+                    return values;
+                }
+
+                @Override
+                public List<OperationSnapshot> getOperations() {
+                    List<OperationSnapshot> snapshots = new ArrayList<>();
+
+                    for (OperationMetrics operation : OPERATIONS.values()) {
+                        snapshots.add(operation.snapshot());
+                    }
+
+                    return snapshots;
+                }
+
+                @Override
+                public String getSnapshot() {
+                    return snapshot();
+                }
+
+                @Override
+                public void reset() {
+                    OPERATIONS.values().forEach(OperationMetrics::reset);
+                }
+            }, new ObjectName("org.afpa:type=Metrics"));
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(POOL, new ObjectName("org.afpa:type=PoolMetrics"));
+        } catch (JMException e) {
+            // Pretty prints the exception
+            new ExceptionPrinter<>(e).print();
+        }
+    }
+
+    /**
+     * Prints a snapshot of the metrics periodically on a daemon thread
+     */
+    private static void scheduleDumps() {
+        if (DUMP_INTERVAL <= 0) return;
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        scheduler.scheduleAtFixedRate(() -> System.out.print(snapshot()), DUMP_INTERVAL, DUMP_INTERVAL, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,17 @@
+package org.afpa.dal.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DAO metrics exposed over JMX
+ */
+public interface MetricsMXBean {
+    Map<String, Long> getGauges();
+
+    List<OperationSnapshot> getOperations();
+
+    String getSnapshot();
+
+    void reset();
+}
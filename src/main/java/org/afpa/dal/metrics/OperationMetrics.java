@@ -0,0 +1,67 @@
+package org.afpa.dal.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies, calls and errors of one DAO operation
+ */
+public final class OperationMetrics {
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final String name;
+    private volatile long startedAt = System.nanoTime();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a call which succeeded
+     *
+     * @param start The value returned by {@link Metrics#start()} when the call started
+     */
+    public void success(long start) {
+        if (!Metrics.ENABLED) return;
+
+        latencies.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a call which failed
+     *
+     * @param start The value returned by {@link Metrics#start()} when the call started
+     */
+    public void failure(long start) {
+        if (!Metrics.ENABLED) return;
+
+        latencies.record(System.nanoTime() - start);
+        errors.increment();
+    }
+
+    /**
+     * @return The name of the operation
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Forgets the recorded calls
+     */
+    public void reset() {
+        errors.reset();
+        latencies.reset();
+        startedAt = System.nanoTime();
+    }
+
+    /**
+     * @return The current values of the metrics
+     */
+    public OperationSnapshot snapshot() {
+        long calls = latencies.count();
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        return new OperationSnapshot(name, calls, errors.sum(), seconds > 0 ? calls / seconds : 0,
+                latencies.percentile(0.5) / 1000, latencies.percentile(0.99) / 1000, latencies.max() / 1000);
+    }
+}
@@ -0,0 +1,64 @@
+package org.afpa.dal.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The values of the metrics of one operation at a point in time, exposed over JMX
+ */
+public final class OperationSnapshot {
+    private final long calls;
+    private final long errors;
+    private final long maxMicros;
+    private final String name;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final double throughput;
+
+    @ConstructorProperties({"name", "calls", "errors", "throughput", "p50Micros", "p99Micros", "maxMicros"})
+    public OperationSnapshot(String name, long calls, long errors, double throughput, long p50Micros, long p99Micros, long maxMicros) {
+        this.calls = calls;
+        this.errors = errors;
+        this.maxMicros = maxMicros;
+        this.name = name;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.throughput = throughput;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * @return The mean number of calls per second since the application started
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s calls=%d errors=%d throughput=%.1f/s p50=%dµs p99=%dµs max=%dµs",
+                name, calls, errors, throughput, p50Micros, p99Micros, maxMicros);
+    }
+}
@@ -0,0 +1,98 @@
+package org.afpa.dal.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the statistics of a HikariCP pool through its metrics tracker
+ * <p>
+ * Set it as the {@link MetricsTrackerFactory} of the pool configuration, Hikari then reports every connection
+ * acquisition, usage and timeout to it.
+ */
+public final class PoolMetrics implements MetricsTrackerFactory, PoolMetricsMXBean {
+    private final LatencyHistogram acquisitions = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LatencyHistogram usages = new LatencyHistogram();
+    private volatile PoolStats stats;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.stats = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usages.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    @Override
+    public long getAcquisitionMaxMicros() {
+        return acquisitions.max() / 1000;
+    }
+
+    @Override
+    public long getAcquisitionP50Micros() {
+        return acquisitions.percentile(0.5) / 1000;
+    }
+
+    @Override
+    public long getAcquisitionP99Micros() {
+        return acquisitions.percentile(0.99) / 1000;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return stats == null ? 0 : stats.getIdleConnections();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+
+    @Override
+    public long getUsageP99Millis() {
+        return TimeUnit.NANOSECONDS.toMillis(usages.percentile(0.99));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s active=%d idle=%d pending=%d total=%d timeouts=%d acquisition p50=%dµs p99=%dµs max=%dµs",
+                "pool", getActiveConnections(), getIdleConnections(), getPendingThreads(), getTotalConnections(),
+                getTimeouts(), getAcquisitionP50Micros(), getAcquisitionP99Micros(), getAcquisitionMaxMicros());
+    }
+}
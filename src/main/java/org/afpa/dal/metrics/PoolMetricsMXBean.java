@@ -0,0 +1,24 @@
+package org.afpa.dal.metrics;
+
+/**
+ * The connection pool metrics exposed over JMX
+ */
+public interface PoolMetricsMXBean {
+    long getAcquisitionMaxMicros();
+
+    long getAcquisitionP50Micros();
+
+    long getAcquisitionP99Micros();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getPendingThreads();
+
+    long getTimeouts();
+
+    int getTotalConnections();
+
+    long getUsageP99Millis();
+}
@@ -1,11 +1,28 @@
 package org.afpa.dal.models;
 
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+/**
+ * A client of the hotels
+ * <p>
+ * The names, the address and the city are exposed as JavaFX properties for the TableView. The properties are only
+ * created when first asked for, so the clients loaded by the DAOs cost no more than plain fields. Once a property
+ * exists it holds the value and must only be modified on the JavaFX application thread.
+ * <p>
+ * The version is the one of the row the client was read from, an update only succeeds against that same version.
+ */
 public final class Client {
     private String address;
+    private StringProperty addressProperty;
     private String city;
+    private StringProperty cityProperty;
     private String firstName;
+    private StringProperty firstNameProperty;
     private int id;
     private String lastName;
+    private StringProperty lastNameProperty;
+    private int version;
 
     public Client() {
     }
@@ -18,28 +35,55 @@ public final class Client {
         this.lastName = lastName;
     }
 
+    public Client(Client client) {
+        this(client.getAddress(), client.getCity(), client.getFirstName(), client.getId(), client.getLastName());
+
+        this.version = client.getVersion();
+    }
+
     public String getAddress() {
-        return address;
+        return addressProperty == null ? address : addressProperty.get();
     }
 
     public void setAddress(String address) {
-        this.address = address;
+        if (addressProperty == null) this.address = address;
+        else addressProperty.set(address);
+    }
+
+    public StringProperty addressProperty() {
+        if (addressProperty == null) addressProperty = new SimpleStringProperty(this, "address", address);
+
+        return addressProperty;
     }
 
     public String getCity() {
-        return city;
+        return cityProperty == null ? city : cityProperty.get();
     }
 
     public void setCity(String city) {
-        this.city = city;
+        if (cityProperty == null) this.city = city;
+        else cityProperty.set(city);
+    }
+
+    public StringProperty cityProperty() {
+        if (cityProperty == null) cityProperty = new SimpleStringProperty(this, "city", city);
+
+        return cityProperty;
     }
 
     public String getFirstName() {
-        return firstName;
+        return firstNameProperty == null ? firstName : firstNameProperty.get();
     }
 
     public void setFirstName(String firstName) {
-        this.firstName = firstName;
+        if (firstNameProperty == null) this.firstName = firstName;
+        else firstNameProperty.set(firstName);
+    }
+
+    public StringProperty firstNameProperty() {
+        if (firstNameProperty == null) firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+
+        return firstNameProperty;
     }
 
     public int getId() {
@@ -51,10 +95,39 @@ public final class Client {
     }
 
     public String getLastName() {
-        return lastName;
+        return lastNameProperty == null ? lastName : lastNameProperty.get();
     }
 
     public void setLastName(String lastName) {
-        this.lastName = lastName;
+        if (lastNameProperty == null) this.lastName = lastName;
+        else lastNameProperty.set(lastName);
+    }
+
+    public StringProperty lastNameProperty() {
+        if (lastNameProperty == null) lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+
+        return lastNameProperty;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Copies the values of another client into this one, notifying the observers of the properties which changed
+     *
+     * @param client The client to copy
+     */
+    public void copy(Client client) {
+        setAddress(client.getAddress());
+        setCity(client.getCity());
+        setFirstName(client.getFirstName());
+        setId(client.getId());
+        setLastName(client.getLastName());
+        setVersion(client.getVersion());
     }
 }
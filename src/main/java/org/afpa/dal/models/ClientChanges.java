@@ -0,0 +1,67 @@
+package org.afpa.dal.models;
+
+import java.util.List;
+
+/**
+ * The changes made to the clients since a token of the change log, one entry per client
+ * <p>
+ * A client inserted then modified is only reported as inserted, a client inserted then deleted is not reported.
+ */
+public final class ClientChanges {
+    private final List<Integer> deleted;
+    private final List<Client> inserted;
+    private final boolean overflow;
+    private final long token;
+    private final List<Client> updated;
+
+    public ClientChanges(List<Client> inserted, List<Client> updated, List<Integer> deleted, long token, boolean overflow) {
+        this.deleted = deleted;
+        this.inserted = inserted;
+        this.overflow = overflow;
+        this.token = token;
+        this.updated = updated;
+    }
+
+    /**
+     * @return The ids of the deleted clients
+     */
+    public List<Integer> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return The inserted clients, in the order they were inserted
+     */
+    public List<Client> getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return The modified clients
+     */
+    public List<Client> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return The token to ask the next changes with
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * @return Whether there were too many changes to read them at once, they are then left empty and the clients
+     * must be reloaded
+     */
+    public boolean isOverflow() {
+        return overflow;
+    }
+
+    /**
+     * @return Whether there is no change
+     */
+    public boolean isEmpty() {
+        return deleted.isEmpty() && inserted.isEmpty() && updated.isEmpty();
+    }
+}
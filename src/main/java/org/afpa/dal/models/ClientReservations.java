@@ -0,0 +1,26 @@
+package org.afpa.dal.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ClientReservations {
+    private final Client client;
+    private final List<Reservation> reservations;
+
+    public ClientReservations(Client client) {
+        this(client, new ArrayList<>());
+    }
+
+    public ClientReservations(Client client, List<Reservation> reservations) {
+        this.client = client;
+        this.reservations = reservations;
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    public List<Reservation> getReservations() {
+        return reservations;
+    }
+}
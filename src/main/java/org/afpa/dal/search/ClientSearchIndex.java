@@ -0,0 +1,287 @@
+package org.afpa.dal.search;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.store.ClientStore;
+import org.afpa.dal.store.StringDictionary;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory prefix index over the last name, first name and city of the clients
+ * <p>
+ * Every word of those fields is indexed under its first {@value #KEY_LENGTH} characters, normalized to lower case and
+ * without accents. A search looks up the shortest posting list of its terms, then keeps the candidates for which
+ * every term starts one of their words. The index is updated one client at a time and is safe to use from several
+ * threads.
+ * <p>
+ * The clients are held in a {@link ClientStore} and their words are encoded in a dictionary, so indexing the whole
+ * client table costs a few ints per client beyond the values it does not share with the other clients.
+ */
+public final class ClientSearchIndex {
+    private static final int KEY_LENGTH = 4;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ClientStore clients = new ClientStore();
+    private final StringDictionary dictionary = new StringDictionary();
+    private final Map<String, IntSet> postings = new HashMap<>();
+    private final Map<Integer, int[]> words = new HashMap<>();
+
+    /**
+     * Adds a saved client to the index, or replaces it if its id is already indexed
+     *
+     * @param client The client to index
+     */
+    public synchronized void add(Client client) {
+        // Clients which were never saved have no id to index them under
+        if (client.getId() <= 0) return;
+
+        remove(client.getId());
+
+        String[] clientWords = words(client);
+        int[] codes = new int[clientWords.length];
+
+        for (int i = 0; i < clientWords.length; i++) {
+            codes[i] = dictionary.add(clientWords[i]);
+        }
+
+        clients.put(client);
+        words.put(client.getId(), codes);
+
+        for (String word : clientWords) {
+            for (int length = 1; length <= Math.min(KEY_LENGTH, word.length()); length++) {
+                postings.computeIfAbsent(word.substring(0, length), key -> new IntSet()).add(client.getId());
+            }
+        }
+    }
+
+    /**
+     * Returns an indexed client
+     *
+     * @param id The id of the client
+     * @return A copy of the client or null if it is not indexed
+     */
+    public synchronized Client get(int id) {
+        return clients.get(id);
+    }
+
+    /**
+     * Removes every client from the index
+     */
+    public synchronized void clear() {
+        clients.clear();
+        dictionary.clear();
+        postings.clear();
+        words.clear();
+    }
+
+    /**
+     * Removes a client from the index
+     *
+     * @param id The id of the client
+     */
+    public synchronized void remove(int id) {
+        int[] codes = words.remove(id);
+
+        if (codes == null) return;
+
+        clients.remove(id);
+
+        for (int code : codes) {
+            String word = dictionary.get(code);
+
+            for (int length = 1; length <= Math.min(KEY_LENGTH, word.length()); length++) {
+                String key = word.substring(0, length);
+                IntSet ids = postings.get(key);
+
+                if (ids != null && ids.remove(id) && ids.size() == 0) {
+                    postings.remove(key);
+                }
+            }
+
+            dictionary.release(code);
+        }
+    }
+
+    /**
+     * Finds the clients for which every word of the query starts one of their words
+     *
+     * @param query The words to look for, in any case and with or without accents
+     * @param limit The maximum number of clients to return
+     * @return The matching clients sorted by last name then first name, or an empty list for a blank query
+     */
+    public synchronized List<Client> search(String query, int limit) {
+        String[] terms = split(query);
+        List<Client> results = new ArrayList<>();
+
+        if (terms.length == 0) return results;
+
+        // Walks the smallest posting list, the other terms are checked on each candidate
+        IntSet smallest = null;
+
+        for (String term : terms) {
+            IntSet ids = postings.get(term.length() > KEY_LENGTH ? term.substring(0, KEY_LENGTH) : term);
+
+            if (ids == null) return results;
+
+            if (smallest == null || ids.size() < smallest.size()) smallest = ids;
+        }
+
+        for (int i = 0; i < smallest.values.length; i++) {
+            // Skips the free and removed slots
+            if (smallest.values[i] <= 0) continue;
+
+            if (matches(words.get(smallest.values[i]), terms)) {
+                results.add(clients.get(smallest.values[i]));
+            }
+        }
+
+        results.sort(Comparator.comparing(Client::getLastName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(Client::getFirstName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * @return The number of indexed clients
+     */
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    /**
+     * Updates an indexed client
+     *
+     * @param client The client with its new values
+     */
+    public void update(Client client) {
+        add(client);
+    }
+
+    /**
+     * Normalizes then splits a text into words
+     *
+     * @param text The text to split
+     * @return The lower case words without accents
+     */
+    static String[] split(String text) {
+        if (text == null) return new String[0];
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase();
+
+        return Arrays.stream(SEPARATORS.split(normalized)).filter(word -> !word.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * @param codes The codes of the words of a client
+     * @param terms The normalized words of a query
+     * @return {@code true} if every term starts one of the words of the client
+     */
+    private boolean matches(int[] codes, String[] terms) {
+        for (String term : terms) {
+            boolean found = false;
+
+            for (int code : codes) {
+                if (dictionary.get(code).startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the indexed words of a client
+     *
+     * @param client The client
+     * @return The words of its last name, first name and city
+     */
+    private static String[] words(Client client) {
+        return Arrays.stream(new String[]{client.getLastName(), client.getFirstName(), client.getCity()})
+                .flatMap(field -> Arrays.stream(split(field)))
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    /**
+     * An open addressing set of positive ints, which avoids boxing the ids of the posting lists
+     */
+    private static final class IntSet {
+        private static final int FREE = 0;
+        private static final int REMOVED = -1;
+
+        private int size, used;
+        private int[] values = new int[4];
+
+        private boolean add(int value) {
+            if ((used + 1) * 4 > values.length * 3) rehash(size * 4 > values.length ? values.length * 2 : values.length);
+
+            int slot = slot(value);
+
+            if (values[slot] == value) return false;
+
+            if (values[slot] == FREE) used++;
+
+            values[slot] = value;
+            size++;
+
+            return true;
+        }
+
+        private boolean remove(int value) {
+            int slot = slot(value);
+
+            if (values[slot] != value) return false;
+
+            values[slot] = REMOVED;
+            size--;
+
+            return true;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        /**
+         * @return The slot holding the value, else the first reusable slot of its probe sequence
+         */
+        private int slot(int value) {
+            int mask = values.length - 1;
+            int slot = (value * 0x9E3779B9) >>> 1 & mask;
+            int reusable = -1;
+
+            while (values[slot] != FREE) {
+                if (values[slot] == value) return slot;
+
+                if (values[slot] == REMOVED && reusable < 0) reusable = slot;
+
+                slot = slot + 1 & mask;
+            }
+
+            return reusable >= 0 ? reusable : slot;
+        }
+
+        private void rehash(int capacity) {
+            int[] old = values;
+
+            values = new int[capacity];
+            size = used = 0;
+
+            for (int value : old) {
+                if (value != FREE && value != REMOVED) add(value);
+            }
+        }
+    }
+}
@@ -33,9 +33,20 @@ public final class AlertUtils {
      * @return The values from the confirmation
      */
     public static ButtonType confirm(ButtonType... buttons) {
+        return confirm("Êtes vous sûr ?", buttons);
+    }
+
+    /**
+     * Confirms an action through an alert explaining it
+     *
+     * @param contentText The question to display
+     * @param buttons     The buttons to use
+     * @return The values from the confirmation
+     */
+    public static ButtonType confirm(String contentText, ButtonType... buttons) {
         Alert alert = new Alert(AlertType.CONFIRMATION);
 
-        alert.setContentText("Êtes vous sûr ?");
+        alert.setContentText(contentText);
         alert.setTitle("Confirmation");
 
         alert.getButtonTypes().clear();
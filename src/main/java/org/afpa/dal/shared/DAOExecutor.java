@@ -0,0 +1,146 @@
+package org.afpa.dal.shared;
+
+import org.afpa.dal.metrics.Metrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bounded executor running the database work off the JavaFX application thread
+ * <p>
+ * At most {@code concurrency} tasks run at the same time and at most {@code queueCapacity} wait for their turn, the
+ * next ones are rejected with a {@link RejectedExecutionException}. Tasks run on virtual threads when the JDK
+ * supports them, else on a fixed pool of daemon threads.
+ */
+public final class DAOExecutor implements java.util.concurrent.Executor, AutoCloseable {
+    private final AtomicInteger active = new AtomicInteger();
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int queueCapacity;
+    private final Semaphore permits;
+
+    /**
+     * Primary constructor
+     *
+     * @param concurrency   The maximum number of tasks running at the same time
+     * @param queueCapacity The maximum number of tasks waiting to run
+     */
+    public DAOExecutor(int concurrency, int queueCapacity) {
+        if (concurrency <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("The concurrency must be positive and the queue capacity not negative");
+        }
+
+        this.concurrency = concurrency;
+        this.queueCapacity = queueCapacity;
+
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+
+        if (virtualThreads != null) {
+            // Virtual threads are cheap, the permits bound how many of them reach the database at once
+            this.executor = virtualThreads;
+            this.permits = new Semaphore(concurrency);
+        } else {
+            AtomicInteger threads = new AtomicInteger();
+
+            this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), task -> {
+                Thread thread = new Thread(task, "dao-" + threads.incrementAndGet());
+
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            this.permits = null;
+        }
+
+        Metrics.gauge("DAOExecutor.queueDepth", this::getQueueDepth);
+    }
+
+    /**
+     * Runs a task once a slot is free
+     *
+     * @param task The task to run
+     * @throws RejectedExecutionException If the queue is full or the executor is closed
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > concurrency + queueCapacity) {
+            pending.decrementAndGet();
+
+            throw new RejectedExecutionException("The database queue is full");
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    if (permits != null) permits.acquireUninterruptibly();
+
+                    active.incrementAndGet();
+
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+
+                        if (permits != null) permits.release();
+                    }
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of tasks currently running
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return The maximum number of tasks running at the same time
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return The number of tasks waiting for a free slot
+     */
+    public int getQueueDepth() {
+        return Math.max(0, pending.get() - active.get());
+    }
+
+    /**
+     * Stops accepting tasks, the queued ones still run
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates a virtual thread per task executor through reflection, so the code still runs on older JDKs
+     *
+     * @return The executor or null if the JDK has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -2,29 +2,278 @@ package org.afpa.dal.shared;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.afpa.dal.metrics.Metrics;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
 
 /**
  * DataSource used for the SQL Connection
+ * <p>
+ * The pool is created on a background thread as soon as this class is loaded, so the window is shown without
+ * waiting for the driver, the pool or the database. The connections asked for meanwhile wait for the pool, and the
+ * pool opens its connections in the background too: an unreachable database fails the operations, not the startup.
+ * <p>
+ * The properties configure the primary, which takes the writes. They may also name read replicas, each configured
+ * like the primary but for the properties prefixed by its name, the reads of the DAOs are then spread over them:
+ * <pre>
+ * replicas=replica1,replica2
+ * replicas.retryAfter=5000
+ * replica1.dataSource.serverName=replica1.hotel.local
+ * replica2.dataSource.serverName=replica2.hotel.local
+ * </pre>
+ * The replicas are read only and give up on a connection after one second unless configured otherwise, so the next
+ * replica is soon tried when one is down.
+ *
+ * @see ReadRouter
  */
 public final class DataSource {
-    private final static HikariConfig config = new HikariConfig("src/main/resources/org/afpa/datasource.properties");
-    private final static HikariDataSource dataSource;
+    private final static String PROPERTIES = "src/main/resources/org/afpa/datasource.properties";
+    private final static Properties properties = load();
+    private final static HikariConfig config = new HikariConfig(primaryProperties());
+    private final static CompletableFuture<HikariDataSource> dataSource;
+    private final static UnitOfWork readUnitOfWork;
+    private final static UnitOfWork unitOfWork;
+    // Creates the pool then opens the connections of the warm-ups, one at a time
+    private final static ExecutorService warmUp = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "datasource-warm-up");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
 
     static {
-        dataSource = new HikariDataSource(config);
+        if (Metrics.ENABLED) {
+            // Reports the pool statistics and the connection acquisition times
+            config.setMetricsTrackerFactory(Metrics.pool());
+            config.setRegisterMbeans(true);
+        }
+
+        // Starts the pool without a first connection, which would throw if the database can't be reached
+        config.setInitializationFailTimeout(-1);
+
+        dataSource = CompletableFuture.supplyAsync(() -> new HikariDataSource(config), warmUp);
+        unitOfWork = new UnitOfWork(new PendingDataSource(dataSource));
+
+        List<String> replicas = replicaNames();
+
+        if (replicas.isEmpty()) {
+            readUnitOfWork = unitOfWork;
+        } else {
+            // Created once the primary is, which the reads fall back to when no replica can be reached
+            CompletableFuture<ReadRouter> readDataSource = dataSource.thenApplyAsync(primary -> {
+                List<HikariDataSource> pools = new ArrayList<>(replicas.size());
+
+                for (String replica : replicas) {
+                    pools.add(new HikariDataSource(replicaConfig(replica)));
+                }
+
+                return new ReadRouter(pools, primary, Long.parseLong(properties.getProperty("replicas.retryAfter",
+                        String.valueOf(ReadRouter.DEFAULT_RETRY_AFTER))));
+            }, warmUp);
+            readUnitOfWork = new UnitOfWork(new PendingDataSource(readDataSource));
+        }
     }
 
     private DataSource() { }
 
     public static Connection getConnection() {
         try {
-            return dataSource.getConnection();
+            return pool(dataSource).getConnection();
         } catch (SQLException e) {
             new ExceptionPrinter<>(e).print();
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens a connection of the pool and gives it back, on the warm-up thread
+     *
+     * @return Completes once the database answered, or exceptionally with the {@link SQLException} when it can't be
+     * reached within the connection timeout of the pool, another warm-up may be started then
+     */
+    public static CompletableFuture<Void> warmUp() {
+        return CompletableFuture.runAsync(() -> {
+            try (Connection ignored = pool(dataSource).getConnection()) {
+                // The connection goes back to the pool, ready for the first operation
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, warmUp);
+    }
+
+    /**
+     * @return The unit of work borrowing its connections from the pool, shared by all the DAOs
+     */
+    public static UnitOfWork getUnitOfWork() {
+        return unitOfWork;
+    }
+
+    /**
+     * @return The unit of work borrowing its connections from the read replicas, or the one of the primary when no
+     * replica is configured
+     */
+    public static UnitOfWork getReadUnitOfWork() {
+        return readUnitOfWork;
+    }
+
+    /**
+     * @return The maximum number of connections of the pool, read from its configuration without waiting for it
+     */
+    public static int getMaximumPoolSize() {
+        return config.getMaximumPoolSize();
+    }
+
+    /**
+     * Waits for a pool to be created
+     *
+     * @param pending The pool being created
+     * @return The pool
+     * @throws SQLException If the pool could not be created
+     */
+    private static <T extends javax.sql.DataSource> T pool(CompletableFuture<T> pending) throws SQLException {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            throw new SQLException("The connection pool could not be created", e.getCause());
+        }
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+
+        try (InputStream in = Files.newInputStream(Paths.get(PROPERTIES))) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read the property file " + PROPERTIES, e);
+        }
+
+        return properties;
+    }
+
+    /**
+     * @return The names of the replicas, in the order they are listed
+     */
+    private static List<String> replicaNames() {
+        List<String> names = new ArrayList<>();
+
+        for (String name : properties.getProperty("replicas", "").split(",")) {
+            if (!name.isBlank()) names.add(name.strip());
+        }
+
+        return names;
+    }
+
+    /**
+     * @return The properties of the primary, without the ones of the replicas
+     */
+    private static Properties primaryProperties() {
+        Properties primary = new Properties();
+        List<String> replicas = replicaNames();
+
+        for (String key : properties.stringPropertyNames()) {
+            if (key.equals("replicas") || key.startsWith("replicas.")) continue;
+
+            if (replicas.stream().noneMatch(replica -> key.startsWith(replica + "."))) {
+                primary.setProperty(key, properties.getProperty(key));
+            }
+        }
+
+        return primary;
+    }
+
+    /**
+     * @param name The name of the replica
+     * @return The properties of the primary overridden by the ones prefixed by the name
+     */
+    private static HikariConfig replicaConfig(String name) {
+        Properties replica = primaryProperties();
+
+        replica.setProperty("connectionTimeout", "1000");
+        replica.setProperty("poolName", name);
+        replica.setProperty("readOnly", "true");
+
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(name + ".")) replica.setProperty(key.substring(name.length() + 1), properties.getProperty(key));
+        }
+
+        HikariConfig config = new HikariConfig(replica);
+
+        // Like the primary, an unreachable replica fails its connections rather than the startup
+        // Only the primary is reported by the pool metrics
+        config.setInitializationFailTimeout(-1);
+
+        return config;
+    }
+
+    /**
+     * Forwards to a pool once it is created, so the unit of work can be built before it
+     */
+    private static final class PendingDataSource implements javax.sql.DataSource {
+        private final CompletableFuture<? extends javax.sql.DataSource> pending;
+
+        private PendingDataSource(CompletableFuture<? extends javax.sql.DataSource> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return pool(pending).getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return pool(pending).getConnection(username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return pool(pending).getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            pool(pending).setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            pool(pending).setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return pool(pending).getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return pool(pending).unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return pool(pending).isWrapperFor(iface);
+        }
+    }
+}
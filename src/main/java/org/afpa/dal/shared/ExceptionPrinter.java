@@ -1,6 +1,7 @@
 package org.afpa.dal.shared;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletionException;
 
 /**
  * Used to pretty print exceptions
@@ -29,4 +30,16 @@ public final class ExceptionPrinter<T extends Exception> {
         System.err.printf("Cause: %s\n", exception.getCause());
         System.err.printf("Message: %s\n", exception.getMessage());
     }
+
+    /**
+     * Returns the exception which made a future fail
+     *
+     * @param error The error of the future
+     * @return The cause of a {@link CompletionException}, else the error itself
+     */
+    public static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+        return cause instanceof Exception ? (Exception) cause : new Exception(cause);
+    }
 }
@@ -0,0 +1,347 @@
+package org.afpa.dal.shared;
+
+import javafx.collections.ObservableListBase;
+import org.afpa.dal.interfaces.AsyncCRUD;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.ToIntFunction;
+
+/**
+ * An observable list which lazily loads its rows from a DAO, one page at a time
+ * <p>
+ * Pages are fetched with keyset pagination when the list is read, so a TableView only loads the rows it renders.
+ * At most {@code maxPages} pages are kept in memory, the least recently read ones are dropped first.
+ * <p>
+ * Reading a row whose page is not loaded yet returns null and loads the page in the background. Once loaded, the
+ * page is applied on the {@code applyExecutor}, which must be the thread owning the list, and its rows are reported
+ * as updated.
+ *
+ * @param <T> The model of the rows
+ * @see AsyncCRUD#page(int, int)
+ */
+public final class PagedList<T> extends ObservableListBase<T> {
+    private final Executor applyExecutor;
+    private final Map<Integer, Integer> boundaries = new HashMap<>();
+    private final AsyncCRUD<T> dao;
+    private final ToIntFunction<T> idExtractor;
+    private final Set<Integer> loading = new HashSet<>();
+    private final int pageSize;
+    private final LinkedHashMap<Integer, List<T>> pages;
+    private final int prefetchMargin;
+    private int generation;
+    private int size;
+
+    /**
+     * Primary constructor
+     *
+     * @param dao            The DAO to load the pages from
+     * @param idExtractor    Returns the id used as the key of a row
+     * @param pageSize       The number of rows in a page
+     * @param maxPages       The number of pages kept in memory
+     * @param prefetchMargin The number of rows before the end of a page from which the next page is loaded
+     * @param applyExecutor  Runs the updates of the list on the thread owning it
+     */
+    public PagedList(AsyncCRUD<T> dao, ToIntFunction<T> idExtractor, int pageSize, int maxPages, int prefetchMargin, Executor applyExecutor) {
+        if (pageSize <= 0 || maxPages < 2) {
+            throw new IllegalArgumentException("A page must hold at least one row and two pages must fit in memory");
+        }
+
+        this.applyExecutor = applyExecutor;
+        this.dao = dao;
+        this.idExtractor = idExtractor;
+        this.pageSize = pageSize;
+        this.prefetchMargin = prefetchMargin;
+
+        // Access ordered map which drops the least recently read page once full
+        this.pages = new LinkedHashMap<>(maxPages + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    /**
+     * Returns a row, or null while its page is loading
+     *
+     * @param index The index of the row
+     * @return The row or null
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int page = index / pageSize;
+        int offset = index % pageSize;
+
+        List<T> rows = pages.get(page);
+
+        if (rows == null) {
+            loadPage(page);
+        }
+
+        // Loads the next page ahead when the reader comes close to the end of this one
+        if (offset >= pageSize - prefetchMargin && (page + 1) * pageSize < size && !pages.containsKey(page + 1)) {
+            loadPage(page + 1);
+        }
+
+        // The table may have shrunk since the last refresh
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    /**
+     * Replaces a row which is currently loaded, without reloading its page
+     *
+     * @param index   The index of the row
+     * @param element The new row
+     * @return The previous row or null if its page is not loaded
+     */
+    @Override
+    public T set(int index, T element) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        List<T> rows = pages.get(index / pageSize);
+
+        if (rows == null || index % pageSize >= rows.size()) {
+            return null;
+        }
+
+        T old = rows.set(index % pageSize, element);
+
+        beginChange();
+        nextSet(index, old);
+        endChange();
+
+        return old;
+    }
+
+    /**
+     * Returns a row which is currently loaded, without loading anything
+     *
+     * @param id The id of the row
+     * @return The row or null if it is not loaded
+     */
+    public T getLoaded(int id) {
+        for (List<T> rows : pages.values()) {
+            for (T row : rows) {
+                if (idExtractor.applyAsInt(row) == id) return row;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the rows again in the background then drops the loaded pages
+     * <p>
+     * Only the pages read afterwards are reloaded.
+     *
+     * @return A future completed once the list has been refreshed
+     */
+    public CompletableFuture<Void> refresh() {
+        return dao.count().handleAsync((count, error) -> {
+            if (error != null) {
+                // Pretty prints the exception
+                new ExceptionPrinter<>(ExceptionPrinter.unwrap(error)).print();
+            }
+
+            reset(count == null ? 0 : count);
+
+            return null;
+        }, applyExecutor);
+    }
+
+    /**
+     * Drops the loaded pages and sets the number of rows, counted by the caller
+     * <p>
+     * Must be called on the thread owning the list.
+     *
+     * @param count The number of rows
+     */
+    public void reset(int count) {
+        int oldSize = size;
+
+        // The pages still loading belong to the previous generation and will be ignored
+        generation++;
+        pages.clear();
+        boundaries.clear();
+        loading.clear();
+
+        size = count;
+
+        beginChange();
+
+        if (oldSize > 0) {
+            nextRemove(0, Collections.nCopies(oldSize, null));
+        }
+
+        if (size > 0) {
+            nextAdd(0, size);
+        }
+
+        endChange();
+    }
+
+    /**
+     * Adds rows inserted after every other row, as the ids keep growing
+     * <p>
+     * Only the last page is dropped if it was not full, the new rows are loaded when read. Must be called on the
+     * thread owning the list.
+     *
+     * @param count The number of inserted rows
+     */
+    public void appendInserted(int count) {
+        if (count <= 0) return;
+
+        int oldSize = size;
+
+        // The last page gets the first new rows
+        if (oldSize % pageSize != 0) {
+            dropFrom(oldSize / pageSize);
+        }
+
+        size += count;
+
+        beginChange();
+        nextAdd(oldSize, size);
+        endChange();
+    }
+
+    /**
+     * Removes a deleted row without counting the rows again
+     * <p>
+     * The position of the row is only known when it is loaded, or when it comes after every loaded row. The pages
+     * from the one which held it are dropped and loaded again when read. Must be called on the thread owning the list.
+     *
+     * @param id The id of the deleted row
+     * @return Whether the row was removed, otherwise the list must be refreshed
+     */
+    public boolean removeDeleted(int id) {
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            List<T> rows = entry.getValue();
+
+            for (int offset = 0; offset < rows.size(); offset++) {
+                T row = rows.get(offset);
+
+                if (idExtractor.applyAsInt(row) == id) {
+                    dropFrom(entry.getKey());
+                    size--;
+
+                    beginChange();
+                    nextRemove(entry.getKey() * pageSize + offset, row);
+                    endChange();
+
+                    return true;
+                }
+            }
+        }
+
+        // Otherwise the row must come after every loaded row and every known start of page, which keep their
+        // positions, and the last page must not be loaded as it would have held it
+        if (size == 0 || pages.containsKey((size - 1) / pageSize)) return false;
+
+        for (List<T> rows : pages.values()) {
+            if (!rows.isEmpty() && idExtractor.applyAsInt(rows.get(rows.size() - 1)) > id) return false;
+        }
+
+        for (int boundary : boundaries.values()) {
+            if (boundary >= id) return false;
+        }
+
+        size--;
+
+        // The row was not loaded, the readers only learn the list got shorter
+        beginChange();
+        nextRemove(size, (T) null);
+        endChange();
+
+        return true;
+    }
+
+    /**
+     * Drops the pages from the given one, and where they start, as their rows moved
+     *
+     * @param page The index of the first page to drop
+     */
+    private void dropFrom(int page) {
+        pages.keySet().removeIf(loaded -> loaded >= page);
+        boundaries.keySet().removeIf(next -> next > page);
+
+        // The pages still loading may hold moved rows, they are ignored and loaded again when read
+        generation++;
+        loading.clear();
+    }
+
+    /**
+     * Loads a page in the background unless it is already loading
+     *
+     * @param page The index of the page
+     */
+    private void loadPage(int page) {
+        if (!loading.add(page)) return;
+
+        int loadGeneration = generation;
+        Integer afterId = boundaries.get(page);
+
+        // Id of the last row of the previous page, seeked by position when that page was never loaded
+        CompletableFuture<Integer> key = afterId != null || page == 0
+                ? CompletableFuture.completedFuture(afterId == null ? 0 : afterId)
+                : dao.idAt(page * pageSize - 1);
+
+        key.thenCompose(id -> dao.page(id, pageSize)).whenCompleteAsync((rows, error) -> {
+            // Ignores the pages requested before the last refresh
+            if (loadGeneration != generation) return;
+
+            loading.remove(page);
+
+            if (error != null) {
+                // Pretty prints the exception
+                new ExceptionPrinter<>(ExceptionPrinter.unwrap(error)).print();
+            }
+
+            List<T> loaded = rows == null ? new ArrayList<>() : rows;
+
+            // Remembers where the next page starts so scrolling down never seeks by position
+            if (loaded.size() == pageSize) {
+                boundaries.put(page + 1, idExtractor.applyAsInt(loaded.get(loaded.size() - 1)));
+            }
+
+            pages.put(page, loaded);
+
+            // Tells the readers the placeholders of the page now have a value
+            int from = page * pageSize;
+            int to = Math.min(from + pageSize, size);
+
+            if (from < to) {
+                beginChange();
+
+                for (int i = from; i < to; i++) {
+                    nextUpdate(i);
+                }
+
+                endChange();
+            }
+        }, applyExecutor);
+    }
+}
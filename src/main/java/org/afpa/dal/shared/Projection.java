@@ -0,0 +1,179 @@
+package org.afpa.dal.shared;
+
+import org.afpa.dal.interfaces.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The columns a DAO selects from a table and how they are mapped to a model
+ * <p>
+ * The queries select the columns of the projection in its order, so each column is read by its index and the
+ * result set never looks a name up for each row:
+ * <pre>{@code
+ * static final Projection<Client> PROJECTION = Projection.of(Client::new)
+ *         .column("cli_id", (client, rs, i) -> client.setId(rs.getInt(i)))
+ *         .column("cli_nom", (client, rs, i) -> client.setLastName(rs.getString(i)));
+ *
+ * String sql = "SELECT " + PROJECTION.columns() + " FROM client";
+ * }</pre>
+ * A projection may also be selected after other columns, in a join, with {@link #mapper(int)}, or be resolved by
+ * name once per result set with {@link #mapper(ResultSetMetaData)}.
+ *
+ * @param <T> The model of the rows
+ */
+public final class Projection<T> {
+    private final List<String> columns;
+    private final Supplier<T> factory;
+    private final RowMapper<T> mapper;
+    private final List<Reader<T>> readers;
+
+    private Projection(Supplier<T> factory, List<String> columns, List<Reader<T>> readers) {
+        this.columns = columns;
+        this.factory = factory;
+        this.readers = readers;
+        this.mapper = mapper(0);
+    }
+
+    /**
+     * Starts a projection without any column
+     *
+     * @param factory Creates the empty model filled by each row
+     * @param <T>     The model of the rows
+     * @return The projection
+     */
+    public static <T> Projection<T> of(Supplier<T> factory) {
+        return new Projection<>(factory, List.of(), List.of());
+    }
+
+    /**
+     * Returns a projection selecting one more column
+     *
+     * @param name   The name of the column
+     * @param reader Reads the column at the given index into the model
+     * @return The new projection, this one is left unchanged
+     */
+    public Projection<T> column(String name, Reader<T> reader) {
+        List<String> columns = new ArrayList<>(this.columns);
+        List<Reader<T>> readers = new ArrayList<>(this.readers);
+
+        columns.add(name);
+        readers.add(reader);
+
+        return new Projection<>(factory, List.copyOf(columns), List.copyOf(readers));
+    }
+
+    /**
+     * @return The columns separated by commas, to put after a SELECT
+     */
+    public String columns() {
+        return String.join(", ", columns);
+    }
+
+    /**
+     * @param alias The alias of the table in the query
+     * @return The columns prefixed by the alias and separated by commas, to put after a SELECT
+     */
+    public String columns(String alias) {
+        StringBuilder sql = new StringBuilder();
+
+        for (String column : columns) {
+            if (sql.length() > 0) sql.append(", ");
+
+            sql.append(alias).append('.').append(column);
+        }
+
+        return sql.toString();
+    }
+
+    /**
+     * @return The number of columns
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * @return The mapper of the rows of a query selecting the columns of this projection first
+     */
+    public RowMapper<T> mapper() {
+        return mapper;
+    }
+
+    /**
+     * Returns the mapper of the rows of a query selecting other columns before the ones of this projection
+     *
+     * @param offset The number of columns selected before the projection
+     * @return The mapper
+     */
+    public RowMapper<T> mapper(int offset) {
+        int[] indexes = new int[readers.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = offset + i + 1;
+        }
+
+        return mapper(indexes);
+    }
+
+    /**
+     * Returns the mapper of the rows of a query selecting the columns of this projection in any order
+     * <p>
+     * The indexes are resolved by name once, the mapper is then valid for every result set of the same query.
+     *
+     * @param metaData The description of the columns of the result set
+     * @return The mapper
+     * @throws SQLException If a column of the projection is missing from the result set
+     */
+    public RowMapper<T> mapper(ResultSetMetaData metaData) throws SQLException {
+        int[] indexes = new int[columns.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            for (int column = 1; column <= metaData.getColumnCount() && indexes[i] == 0; column++) {
+                if (columns.get(i).equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                    indexes[i] = column;
+                }
+            }
+
+            if (indexes[i] == 0) {
+                throw new SQLException("The column " + columns.get(i) + " is missing from the result set");
+            }
+        }
+
+        return mapper(indexes);
+    }
+
+    /**
+     * @param indexes The index of each column in the result set
+     * @return The mapper reading each column at its index
+     */
+    private RowMapper<T> mapper(int[] indexes) {
+        // Copied to arrays so mapping a row only walks them
+        @SuppressWarnings("unchecked")
+        Reader<T>[] readers = this.readers.toArray(new Reader[0]);
+
+        return rs -> {
+            T row = factory.get();
+
+            for (int i = 0; i < readers.length; i++) {
+                readers[i].read(row, rs, indexes[i]);
+            }
+
+            return row;
+        };
+    }
+
+    /**
+     * Reads a column into a model
+     *
+     * @param <T> The model
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+        void read(T row, ResultSet rs, int index) throws SQLException;
+    }
+}
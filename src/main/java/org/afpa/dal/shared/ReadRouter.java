@@ -0,0 +1,154 @@
+package org.afpa.dal.shared;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Lends the connections of the read replicas in turn, and fails over to the next one when a replica can't be reached
+ * <p>
+ * A replica which failed to lend a connection is skipped for a while then tried again. When every replica is down,
+ * the connections are borrowed from the primary so the reads go on. Build a {@link UnitOfWork} on it to run the
+ * reads, the replicas may lag behind the primary so the reads which must see the writes go to the primary.
+ */
+public final class ReadRouter implements javax.sql.DataSource {
+    /**
+     * The milliseconds a replica is skipped for once it failed, unless set in the replica configuration
+     */
+    public static final long DEFAULT_RETRY_AFTER = 5000;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final javax.sql.DataSource primary;
+    private final List<? extends javax.sql.DataSource> replicas;
+    private final long retryAfterNanos;
+    // The nano time until which each replica is skipped, 0 while it is up
+    private final AtomicLongArray skippedUntil;
+
+    /**
+     * Primary constructor
+     *
+     * @param replicas   The pools of the replicas, at least one
+     * @param primary    The pool of the primary, borrowed from when no replica can be reached
+     * @param retryAfter The milliseconds a failed replica is skipped for
+     */
+    public ReadRouter(List<? extends javax.sql.DataSource> replicas, javax.sql.DataSource primary, long retryAfter) {
+        if (replicas.isEmpty()) throw new IllegalArgumentException("At least one replica is required");
+
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.retryAfterNanos = retryAfter * 1_000_000;
+        this.skippedUntil = new AtomicLongArray(replicas.size());
+    }
+
+    /**
+     * Borrows a connection of the next replica which is up, else of the primary
+     *
+     * @return The connection
+     * @throws SQLException If neither a replica nor the primary could lend a connection
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return borrow(javax.sql.DataSource::getConnection);
+    }
+
+    /**
+     * Borrows a connection as another user, from the next replica which is up, else from the primary
+     *
+     * @param username The user
+     * @param password Its password
+     * @return The connection
+     * @throws SQLException If neither a replica nor the primary could lend a connection
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return borrow(source -> source.getConnection(username, password));
+    }
+
+    /**
+     * @param replica The index of a replica, in the order of the constructor
+     * @return True while the replica is skipped because it failed
+     */
+    public boolean isSkipped(int replica) {
+        long until = skippedUntil.get(replica);
+
+        return until != 0 && System.nanoTime() - until < 0;
+    }
+
+    /**
+     * Tries the replicas in turn from the next one, then the primary
+     */
+    private Connection borrow(Borrow borrow) throws SQLException {
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (first + i) % replicas.size();
+
+            if (isSkipped(replica)) continue;
+
+            try {
+                Connection connection = borrow.from(replicas.get(replica));
+
+                skippedUntil.set(replica, 0);
+
+                return connection;
+            } catch (SQLException e) {
+                // Pretty prints the exception, the next replica is tried
+                new ExceptionPrinter<>(e).print();
+
+                skippedUntil.set(replica, System.nanoTime() + retryAfterNanos);
+            }
+        }
+
+        return borrow.from(primary);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Borrows a connection from a pool
+     */
+    @FunctionalInterface
+    private interface Borrow {
+        Connection from(javax.sql.DataSource source) throws SQLException;
+    }
+}
@@ -0,0 +1,157 @@
+package org.afpa.dal.shared;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Borrows a pooled connection for each unit of work and gives it back once the work is committed or rolled back
+ * <p>
+ * A unit of work is either a single DAO operation or an explicit transaction grouping several of them. The
+ * connection of the running unit of work is bound to the current thread, so the DAO operations called inside an
+ * explicit transaction join it instead of borrowing their own connection:
+ * <pre>{@code
+ * unitOfWork.run(connection -> {
+ *     clientDAO.insert(first);
+ *     clientDAO.insert(second);
+ * });
+ * }</pre>
+ * When a joined operation fails, the whole transaction is rolled back once it ends, even if the DAO swallowed the
+ * exception. A unit of work holds no state between two calls, so one instance can be shared by any number of
+ * threads, each of them only ever sees its own connection.
+ */
+public final class UnitOfWork {
+    private final ThreadLocal<Transaction> current = new ThreadLocal<>();
+    private final javax.sql.DataSource dataSource;
+
+    /**
+     * Primary constructor
+     *
+     * @param dataSource The pool to borrow the connections from
+     */
+    public UnitOfWork(javax.sql.DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Runs a work in a transaction and returns its result
+     * <p>
+     * The work joins the transaction already running on the current thread, else it gets a connection of its own
+     * which is committed when the work returns, rolled back when it throws, then given back to the pool.
+     *
+     * @param work The work to run
+     * @param <R>  The result of the work
+     * @return The result of the work
+     * @throws SQLException If any database error occurs, or if an operation joined to the transaction failed
+     */
+    public <R> R call(Work<R> work) throws SQLException {
+        Transaction transaction = current.get();
+
+        if (transaction != null) {
+            try {
+                return work.run(transaction.connection);
+            } catch (SQLException | RuntimeException e) {
+                // The outermost unit of work rolls back everything when it ends
+                transaction.rollbackOnly = true;
+
+                throw e;
+            }
+        }
+
+        try (Connection connection = borrow()) {
+            transaction = new Transaction(connection);
+            current.set(transaction);
+
+            try {
+                R result = work.run(connection);
+
+                if (transaction.rollbackOnly) {
+                    throw new SQLException("The transaction was rolled back because one of its operations failed");
+                }
+
+                // Commits the changes to the database
+                connection.commit();
+
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                // Rollbacks the changes to the database
+                connection.rollback();
+
+                throw e;
+            } finally {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs a work without result in a transaction
+     *
+     * @param work The work to run
+     * @throws SQLException If any database error occurs, or if an operation joined to the transaction failed
+     * @see #call(Work)
+     */
+    public void run(VoidWork work) throws SQLException {
+        call(connection -> {
+            work.run(connection);
+
+            return null;
+        });
+    }
+
+    /**
+     * Borrows a connection which is not bound to any unit of work, used for the long reads like streams
+     *
+     * @return A connection which does not auto commit, the caller gives it back to the pool by closing it
+     * @throws SQLException If no connection could be borrowed
+     */
+    public Connection borrow() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        if (connection == null) {
+            throw new SQLException("No connection available");
+        }
+
+        if (connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+        }
+
+        return connection;
+    }
+
+    /**
+     * @return True if a unit of work is running on the current thread
+     */
+    public boolean inTransaction() {
+        return current.get() != null;
+    }
+
+    /**
+     * A work run on the connection of a unit of work
+     *
+     * @param <R> The result of the work
+     */
+    @FunctionalInterface
+    public interface Work<R> {
+        R run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * A work without result run on the connection of a unit of work
+     */
+    @FunctionalInterface
+    public interface VoidWork {
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * The connection of the unit of work running on a thread
+     */
+    private static final class Transaction {
+        private final Connection connection;
+        private boolean rollbackOnly;
+
+        private Transaction(Connection connection) {
+            this.connection = connection;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package org.afpa.dal.shared;
 
 import org.afpa.dal.models.Client;
+import org.afpa.dal.validation.ClientValidator;
 
 /**
  * The class used to validate models
+ *
+ * @see ClientValidator
  */
 public final class Validator {
     /**
@@ -11,18 +14,6 @@ public final class Validator {
      * @return {@code true} if valide else {@code false}
      */
     public static boolean validateClient(Client client) {
-        String[] isRequired = {client.getCity(), client.getFirstName(), client.getLastName()};
-        String[] isValidString = {client.getAddress(), client.getCity(), client.getFirstName(), client.getLastName()};
-
-        for (String value : isRequired) {
-            if (value == null || value.isEmpty()) return false;
-        }
-
-        for (String value : isValidString) {
-            if (value.matches("[^\\w\\s]")) return false;
-        }
-
-        // Everything is valid return true
-        return true;
+        return ClientValidator.DEFAULT.isValid(client);
     }
 }
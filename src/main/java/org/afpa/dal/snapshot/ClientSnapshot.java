@@ -0,0 +1,404 @@
+package org.afpa.dal.snapshot;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.models.ClientChanges;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A read-only copy of the client table kept on the local disk, read through a memory-mapped file
+ * <p>
+ * The file starts with a header holding the format version, the change token the copy is current at and a CRC32C
+ * of the rest of the file. The clients follow, ordered by id, then an index of their ids and offsets so a client is
+ * only decoded when read:
+ * <pre>
+ * header  int magic, int format, long token, int count, int recordsLength, long checksum
+ * records int version, then the last name, first name, address and city, each a short length and UTF-8 bytes
+ * index   count times int id, int offset of the record
+ * </pre>
+ * Two slots are kept in the directory and each write goes to the slot which is not mapped, so a snapshot can be
+ * rebuilt while the previous one is read, even on systems which can't replace a mapped file. The slot with the
+ * greatest token wins when opening.
+ */
+public final class ClientSnapshot {
+    /**
+     * The version of the file format, a file of another version is ignored
+     */
+    public static final int FORMAT = 1;
+
+    private static final int HEADER_LENGTH = 32;
+    private static final int MAGIC = 0x41464350;
+    private static final String[] SLOTS = {"clients.0.snapshot", "clients.1.snapshot"};
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexStart;
+    private final int slot;
+    private final long token;
+
+    private ClientSnapshot(MappedByteBuffer buffer, int slot) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(16);
+        this.indexStart = HEADER_LENGTH + buffer.getInt(20);
+        this.slot = slot;
+        this.token = buffer.getLong(8);
+    }
+
+    /**
+     * Opens the most recent valid snapshot of a directory
+     *
+     * @param directory The directory of the snapshots
+     * @return The snapshot or null if there is none, or if they are corrupted or of another format
+     * @throws IOException If a snapshot can't be read
+     */
+    public static ClientSnapshot open(Path directory) throws IOException {
+        ClientSnapshot latest = null;
+
+        for (int slot = 0; slot < SLOTS.length; slot++) {
+            ClientSnapshot snapshot = open(directory.resolve(SLOTS[slot]), slot);
+
+            if (snapshot != null && (latest == null || snapshot.token > latest.token)) {
+                latest = snapshot;
+            }
+        }
+
+        return latest;
+    }
+
+    /**
+     * Writes a snapshot to the slot of a directory which is not mapped by the previous snapshot
+     * <p>
+     * The file is written aside then moved in place once synced to the disk, so a crash leaves the previous file.
+     *
+     * @param directory The directory of the snapshots, created if missing
+     * @param previous  The snapshot currently read, or null
+     * @param token     The change token the clients are current at
+     * @param clients   The clients, in any order
+     * @return The number of clients written
+     * @throws IOException If the snapshot can't be written
+     */
+    public static int write(Path directory, ClientSnapshot previous, long token, Iterator<Client> clients) throws IOException {
+        Files.createDirectories(directory);
+
+        Path target = directory.resolve(SLOTS[previous == null || previous.slot == 1 ? 0 : 1]);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32C checksum = new CRC32C();
+        // The id in the high half and the offset of the record in the low half, so sorting orders them by id
+        long[] index = new long[1024];
+        int count = 0;
+        int recordsLength;
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_LENGTH);
+
+            // Not closed by the try, closing it would close the channel before the header is written
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), checksum));
+
+            while (clients.hasNext()) {
+                Client client = clients.next();
+
+                if (count == index.length) {
+                    index = Arrays.copyOf(index, count * 2);
+                }
+
+                index[count++] = (long) client.getId() << 32 | out.size();
+
+                out.writeInt(client.getVersion());
+                writeString(out, client.getLastName());
+                writeString(out, client.getFirstName());
+                writeString(out, client.getAddress());
+                writeString(out, client.getCity());
+            }
+
+            recordsLength = out.size();
+
+            Arrays.sort(index, 0, count);
+
+            for (int i = 0; i < count; i++) {
+                out.writeLong(index[i]);
+            }
+
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT)
+                    .putLong(token)
+                    .putInt(count)
+                    .putInt(recordsLength)
+                    .putLong(checksum.getValue())
+                    .flip();
+
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return count;
+    }
+
+    /**
+     * @return The change token the snapshot is current at
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * @return The number of clients
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the id of the client at a position, ordered by id
+     *
+     * @param index The position of the client
+     * @return The id of the client
+     */
+    public int idAt(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+
+        return buffer.getInt(indexStart + index * 8);
+    }
+
+    /**
+     * Decodes the client at a position, ordered by id
+     *
+     * @param index The position of the client
+     * @return A new client
+     */
+    public Client get(int index) {
+        int id = idAt(index);
+
+        // Each read gets its own position so the snapshot can be read by many threads
+        ByteBuffer record = buffer.duplicate();
+
+        record.position(HEADER_LENGTH + buffer.getInt(indexStart + index * 8 + 4));
+
+        Client client = new Client();
+
+        client.setId(id);
+        client.setVersion(record.getInt());
+        client.setLastName(readString(record));
+        client.setFirstName(readString(record));
+        client.setAddress(readString(record));
+        client.setCity(readString(record));
+
+        return client;
+    }
+
+    /**
+     * Finds a client by id
+     *
+     * @param id The id of the client
+     * @return A new client or null if the snapshot does not hold it
+     */
+    public Client find(int id) {
+        int index = indexAfter(id - 1);
+
+        return index < count && idAt(index) == id ? get(index) : null;
+    }
+
+    /**
+     * Returns the position of the first client whose id is greater than the given one
+     *
+     * @param afterId The id to start after
+     * @return The position, or the size if every id is lower or equal
+     */
+    public int indexAfter(int afterId) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (idAt(middle) <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the clients following an id, ordered by id
+     *
+     * @param afterId The id to start after
+     * @param size    The maximum number of clients
+     * @return The clients
+     */
+    public ArrayList<Client> page(int afterId, int size) {
+        int from = indexAfter(afterId);
+        int to = Math.min(count, from + size);
+        ArrayList<Client> page = new ArrayList<>(Math.max(0, to - from));
+
+        for (int i = from; i < to; i++) {
+            page.add(get(i));
+        }
+
+        return page;
+    }
+
+    /**
+     * Returns the clients of the snapshot with changes applied, ordered by id, to write the next snapshot from
+     * <p>
+     * The inserted and updated clients replace any client with the same id and the deleted ones are skipped, so
+     * applying changes the snapshot already holds does no harm.
+     *
+     * @param changes The changes read since the token of the snapshot
+     * @return The clients, decoded one at a time
+     */
+    public Iterator<Client> merge(ClientChanges changes) {
+        Map<Integer, Client> upserted = new HashMap<>();
+
+        for (Client client : changes.getInserted()) upserted.put(client.getId(), client);
+        for (Client client : changes.getUpdated()) upserted.put(client.getId(), client);
+
+        Set<Integer> deleted = new HashSet<>(changes.getDeleted());
+        List<Client> added = sorted(upserted.values());
+
+        return new Iterator<>() {
+            private int index;
+            private int addedIndex;
+            private Client next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Client next() {
+                if (next == null) throw new NoSuchElementException();
+
+                Client current = next;
+
+                next = advance();
+
+                return current;
+            }
+
+            /**
+             * Merges the two ordered sources, the changes winning over the snapshot
+             */
+            private Client advance() {
+                while (index < count || addedIndex < added.size()) {
+                    int snapshotId = index < count ? idAt(index) : Integer.MAX_VALUE;
+                    int addedId = addedIndex < added.size() ? added.get(addedIndex).getId() : Integer.MAX_VALUE;
+
+                    if (addedId <= snapshotId) {
+                        if (addedId == snapshotId) index++;
+
+                        Client client = added.get(addedIndex++);
+
+                        if (!deleted.contains(client.getId())) return client;
+                    } else {
+                        Client client = deleted.contains(snapshotId) ? null : get(index);
+
+                        index++;
+
+                        if (client != null) return client;
+                    }
+                }
+
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Maps a snapshot file and checks it
+     *
+     * @return The snapshot or null if the file is missing, corrupted or of another format
+     */
+    private static ClientSnapshot open(Path file, int slot) throws IOException {
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH || channel.size() > Integer.MAX_VALUE) return null;
+
+            // The mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) return null;
+
+        long recordsLength = buffer.getInt(20);
+        long expectedLength = HEADER_LENGTH + recordsLength + buffer.getInt(16) * 8L;
+
+        if (buffer.getInt(16) < 0 || recordsLength < 0 || expectedLength != buffer.capacity()) return null;
+
+        CRC32C checksum = new CRC32C();
+
+        checksum.update(buffer.duplicate().position(HEADER_LENGTH));
+
+        return checksum.getValue() == buffer.getLong(24) ? new ClientSnapshot(buffer, slot) : null;
+    }
+
+    /**
+     * @return The clients ordered by id
+     */
+    private static List<Client> sorted(Collection<Client> clients) {
+        List<Client> sorted = new ArrayList<>(clients);
+
+        sorted.sort((first, second) -> Integer.compare(first.getId(), second.getId()));
+
+        return sorted;
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getShort();
+
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+
+        record.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
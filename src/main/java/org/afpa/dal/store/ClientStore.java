@@ -0,0 +1,242 @@
+package org.afpa.dal.store;
+
+import org.afpa.dal.models.Client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A compact in-memory store of many clients, kept in columns of primitives rather than one object per client
+ * <p>
+ * The ids and the versions are plain ints. The cities are encoded in a dictionary, and so are the first and last
+ * names which share one, each distinct value being held once however many clients have it. The addresses, which
+ * seldom repeat, are held as UTF-8 bytes without a string around them. The clients are looked up by id through an
+ * open addressing table of ints and the rows of the removed clients are reused.
+ * <p>
+ * The clients are read as new {@link Client} instances, built when asked for. The store is not thread safe.
+ */
+public final class ClientStore {
+    private static final int FREE = 0;
+    private static final int REMOVED = -1;
+
+    private final StringDictionary cities = new StringDictionary();
+    private final StringDictionary names = new StringDictionary();
+    private byte[][] addresses = new byte[16][];
+    private int[] cityCodes = new int[16];
+    private int[] firstNameCodes = new int[16];
+    private int freeRows;
+    private int[] freeList = new int[16];
+    private int[] ids = new int[16];
+    private int[] lastNameCodes = new int[16];
+    private int next;
+    private int size;
+    // The rows plus one, so that the zero of a new array is a free slot
+    private int[] table = new int[32];
+    private int used;
+    private int[] versions = new int[16];
+
+    /**
+     * Stores a saved client, or replaces the client with the same id
+     *
+     * @param client The client to store, its values are copied
+     */
+    public void put(Client client) {
+        // Clients which were never saved have no id to store them under
+        if (client.getId() <= 0) return;
+
+        int slot = slot(client.getId());
+        int row;
+
+        if (table[slot] > 0) {
+            row = table[slot] - 1;
+
+            release(row);
+        } else {
+            row = freeRows > 0 ? freeList[--freeRows] : next++;
+
+            if (row == ids.length) grow(row * 2);
+
+            size++;
+
+            if (table[slot] == FREE) used++;
+
+            table[slot] = row + 1;
+        }
+
+        ids[row] = client.getId();
+        versions[row] = client.getVersion();
+        lastNameCodes[row] = names.add(client.getLastName());
+        firstNameCodes[row] = names.add(client.getFirstName());
+        cityCodes[row] = cities.add(client.getCity());
+        addresses[row] = client.getAddress() == null ? null : client.getAddress().getBytes(StandardCharsets.UTF_8);
+
+        if (used * 4 > table.length * 3) rehash(size * 2 > table.length ? table.length * 2 : table.length);
+    }
+
+    /**
+     * Returns a client by id
+     *
+     * @param id The id of the client
+     * @return A new client or null if the store does not hold it
+     */
+    public Client get(int id) {
+        int row = row(id);
+
+        return row < 0 ? null : client(row);
+    }
+
+    /**
+     * @param id The id of a client
+     * @return {@code true} if the store holds the client
+     */
+    public boolean contains(int id) {
+        return row(id) >= 0;
+    }
+
+    /**
+     * Removes a client
+     *
+     * @param id The id of the client
+     * @return {@code true} if the store held the client
+     */
+    public boolean remove(int id) {
+        if (id <= 0) return false;
+
+        int slot = slot(id);
+
+        if (table[slot] <= 0) return false;
+
+        int row = table[slot] - 1;
+
+        release(row);
+
+        table[slot] = REMOVED;
+        ids[row] = 0;
+        addresses[row] = null;
+        size--;
+
+        if (freeRows == freeList.length) freeList = Arrays.copyOf(freeList, freeRows * 2);
+
+        freeList[freeRows++] = row;
+
+        return true;
+    }
+
+    /**
+     * Removes every client
+     */
+    public void clear() {
+        cities.clear();
+        names.clear();
+        Arrays.fill(addresses, null);
+        Arrays.fill(ids, 0);
+        Arrays.fill(table, FREE);
+        freeRows = next = size = used = 0;
+    }
+
+    /**
+     * Passes every client to an action, in no particular order
+     *
+     * @param action Receives a new client for each stored one
+     */
+    public void forEach(Consumer<Client> action) {
+        for (int row = 0; row < next; row++) {
+            if (ids[row] > 0) action.accept(client(row));
+        }
+    }
+
+    /**
+     * @return The number of clients
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of distinct cities
+     */
+    public int distinctCities() {
+        return cities.size();
+    }
+
+    /**
+     * @return The number of distinct first and last names
+     */
+    public int distinctNames() {
+        return names.size();
+    }
+
+    /**
+     * Builds the client of a row
+     */
+    private Client client(int row) {
+        byte[] address = addresses[row];
+        Client client = new Client(address == null ? null : new String(address, StandardCharsets.UTF_8), cities.get(cityCodes[row]),
+                names.get(firstNameCodes[row]), ids[row], names.get(lastNameCodes[row]));
+
+        client.setVersion(versions[row]);
+
+        return client;
+    }
+
+    /**
+     * Releases the dictionary values of a row
+     */
+    private void release(int row) {
+        names.release(lastNameCodes[row]);
+        names.release(firstNameCodes[row]);
+        cities.release(cityCodes[row]);
+    }
+
+    /**
+     * @return The row of the client, or -1 if the store does not hold it
+     */
+    private int row(int id) {
+        if (id <= 0) return -1;
+
+        int slot = slot(id);
+
+        return table[slot] > 0 ? table[slot] - 1 : -1;
+    }
+
+    /**
+     * @return The slot holding the id, else the first reusable slot of its probe sequence
+     */
+    private int slot(int id) {
+        int mask = table.length - 1;
+        int slot = id * 0x9E3779B9 >>> 1 & mask;
+        int reusable = -1;
+
+        while (table[slot] != FREE) {
+            if (table[slot] > 0 && ids[table[slot] - 1] == id) return slot;
+
+            if (table[slot] == REMOVED && reusable < 0) reusable = slot;
+
+            slot = slot + 1 & mask;
+        }
+
+        return reusable >= 0 ? reusable : slot;
+    }
+
+    private void grow(int capacity) {
+        addresses = Arrays.copyOf(addresses, capacity);
+        cityCodes = Arrays.copyOf(cityCodes, capacity);
+        firstNameCodes = Arrays.copyOf(firstNameCodes, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        lastNameCodes = Arrays.copyOf(lastNameCodes, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        used = 0;
+
+        for (int row = 0; row < next; row++) {
+            if (ids[row] <= 0) continue;
+
+            table[slot(ids[row])] = row + 1;
+            used++;
+        }
+    }
+}
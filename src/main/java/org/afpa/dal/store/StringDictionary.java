@@ -0,0 +1,142 @@
+package org.afpa.dal.store;
+
+import java.util.Arrays;
+
+/**
+ * Encodes repeated strings as int codes, each distinct value being held once
+ * <p>
+ * Every value is counted each time it is added, its code is freed and reused once it is released as many times. The
+ * codes are looked up through an open addressing table of ints, so a value costs its string and three ints. The
+ * dictionary is not thread safe.
+ */
+public final class StringDictionary {
+    /**
+     * The code of a null value, which is never stored
+     */
+    public static final int NULL = -1;
+
+    private static final int FREE = 0;
+    private static final int REMOVED = -1;
+
+    private int[] counts = new int[16];
+    private int freeCodes;
+    private int[] freeList = new int[16];
+    private int next;
+    private int size;
+    // The codes plus one, so that the zero of a new array is a free slot
+    private int[] table = new int[32];
+    private int used;
+    private String[] values = new String[16];
+
+    /**
+     * Adds a value, or counts it once more if it is already held
+     *
+     * @param value The value, may be null
+     * @return The code of the value, {@link #NULL} for null
+     */
+    public int add(String value) {
+        if (value == null) return NULL;
+
+        int slot = slot(value);
+
+        if (table[slot] > 0) {
+            counts[table[slot] - 1]++;
+
+            return table[slot] - 1;
+        }
+
+        int code = freeCodes > 0 ? freeList[--freeCodes] : next++;
+
+        if (code == values.length) {
+            values = Arrays.copyOf(values, code * 2);
+            counts = Arrays.copyOf(counts, code * 2);
+        }
+
+        values[code] = value;
+        counts[code] = 1;
+        size++;
+
+        if (table[slot] == FREE) used++;
+
+        table[slot] = code + 1;
+
+        if (used * 4 > table.length * 3) rehash(size * 2 > table.length ? table.length * 2 : table.length);
+
+        return code;
+    }
+
+    /**
+     * Returns the value of a code
+     *
+     * @param code The code of the value
+     * @return The value, the same instance for every call, or null for {@link #NULL}
+     */
+    public String get(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Releases a value once, the value is dropped when it is released as many times as it was added
+     *
+     * @param code The code of the value
+     */
+    public void release(int code) {
+        if (code == NULL || --counts[code] > 0) return;
+
+        table[slot(values[code])] = REMOVED;
+        values[code] = null;
+        size--;
+
+        if (freeCodes == freeList.length) freeList = Arrays.copyOf(freeList, freeCodes * 2);
+
+        freeList[freeCodes++] = code;
+    }
+
+    /**
+     * Drops every value
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(table, FREE);
+        Arrays.fill(values, null);
+        freeCodes = next = size = used = 0;
+    }
+
+    /**
+     * @return The number of distinct values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The slot holding the value, else the first reusable slot of its probe sequence
+     */
+    private int slot(String value) {
+        int mask = table.length - 1;
+        int slot = value.hashCode() * 0x9E3779B9 >>> 1 & mask;
+        int reusable = -1;
+
+        while (table[slot] != FREE) {
+            if (table[slot] > 0 && values[table[slot] - 1].equals(value)) return slot;
+
+            if (table[slot] == REMOVED && reusable < 0) reusable = slot;
+
+            slot = slot + 1 & mask;
+        }
+
+        return reusable >= 0 ? reusable : slot;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        used = 0;
+
+        for (int code = 0; code < next; code++) {
+            if (values[code] == null) continue;
+
+            table[slot(values[code])] = code + 1;
+            used++;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.afpa.dal.validation;
+
+import org.afpa.dal.models.Client;
+
+/**
+ * The validated fields of a client, with the label shown in the error messages
+ */
+public enum ClientField {
+    ADDRESS("L'adresse"),
+    CITY("La ville"),
+    FIRST_NAME("Le prénom"),
+    LAST_NAME("Le nom");
+
+    private final String label;
+
+    ClientField(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return The label of the field, starting a sentence
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Reads the field of a client
+     *
+     * @param client The client
+     * @return The value of the field
+     */
+    public String value(Client client) {
+        switch (this) {
+            case ADDRESS:
+                return client.getAddress();
+            case CITY:
+                return client.getCity();
+            case FIRST_NAME:
+                return client.getFirstName();
+            default:
+                return client.getLastName();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.afpa.dal.validation;
+
+import org.afpa.dal.models.Client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Validates clients against rules set per field, and reports which field breaks which rule
+ * <p>
+ * The rules are compiled once when the validator is built, along with every error they can report. Validating a
+ * client allocates nothing when it is valid, and only the list of its errors otherwise. The batch validation splits
+ * large collections over the common fork-join pool.
+ * <p>
+ * The validator is immutable and safe to use from several threads.
+ */
+public final class ClientValidator {
+    // Set before DEFAULT, which reads them when it is built
+    private static final ClientField[] FIELDS = ClientField.values();
+    private static final int RULES = Rule.values().length;
+
+    /**
+     * The rules of the application: the city and the names are required, no field may be a lone symbol
+     */
+    public static final ClientValidator DEFAULT = new ClientValidator(defaultRules());
+
+    /**
+     * The number of clients below which a batch is validated on the calling thread
+     */
+    static final int PARALLEL_THRESHOLD = 2048;
+
+    // Indexed by the bit of the field and rule, see #bit
+    private final FieldError[] errors = new FieldError[FIELDS.length * RULES];
+    private final Rule[][] rules = new Rule[FIELDS.length][];
+
+    /**
+     * Primary constructor
+     *
+     * @param rules The rules of each field, checked in order, a field reports the first rule it breaks
+     */
+    public ClientValidator(Map<ClientField, List<Rule>> rules) {
+        if (FIELDS.length * RULES > Integer.SIZE) {
+            throw new IllegalStateException("Too many fields and rules to report them in an int");
+        }
+
+        for (ClientField field : FIELDS) {
+            this.rules[field.ordinal()] = rules.getOrDefault(field, List.of()).toArray(new Rule[0]);
+
+            for (Rule rule : this.rules[field.ordinal()]) {
+                errors[bit(field, rule)] = new FieldError(field, rule);
+            }
+        }
+    }
+
+    /**
+     * @param client The client to validate
+     * @return {@code true} if every field follows its rules
+     */
+    public boolean isValid(Client client) {
+        return check(client) == 0;
+    }
+
+    /**
+     * Validates a client
+     *
+     * @param client The client to validate
+     * @return The errors of the fields, in the order of {@link ClientField}, empty if the client is valid
+     */
+    public List<FieldError> validate(Client client) {
+        return errors(check(client));
+    }
+
+    /**
+     * Validates many clients, in parallel for the large batches
+     *
+     * @param clients The clients to validate
+     * @return The report of each client, in the order of the batch
+     */
+    public ValidationReport validateAll(List<Client> clients) {
+        Client[] batch = clients.toArray(new Client[0]);
+        int[] failures = new int[batch.length];
+
+        if (batch.length < PARALLEL_THRESHOLD) {
+            check(batch, failures, 0, batch.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new Batch(batch, failures, 0, batch.length));
+        }
+
+        return new ValidationReport(this, failures);
+    }
+
+    /**
+     * Returns the errors of a set of failures
+     *
+     * @param failures The bits of the rules broken by a client
+     * @return The errors, empty if there are none
+     */
+    List<FieldError> errors(int failures) {
+        if (failures == 0) return Collections.emptyList();
+
+        List<FieldError> list = new ArrayList<>(Integer.bitCount(failures));
+
+        for (int bits = failures; bits != 0; bits &= bits - 1) {
+            list.add(errors[Integer.numberOfTrailingZeros(bits)]);
+        }
+
+        return list;
+    }
+
+    /**
+     * Checks every field of a client
+     *
+     * @return The bits of the rules the client breaks, zero if it is valid
+     */
+    private int check(Client client) {
+        int failures = 0;
+
+        for (ClientField field : FIELDS) {
+            Rule[] fieldRules = rules[field.ordinal()];
+
+            if (fieldRules.length == 0) continue;
+
+            String value = field.value(client);
+
+            for (Rule rule : fieldRules) {
+                if (!rule.test(value)) {
+                    failures |= 1 << bit(field, rule);
+                    break;
+                }
+            }
+        }
+
+        return failures;
+    }
+
+    private void check(Client[] batch, int[] failures, int from, int to) {
+        for (int i = from; i < to; i++) {
+            failures[i] = check(batch[i]);
+        }
+    }
+
+    private static int bit(ClientField field, Rule rule) {
+        return field.ordinal() * RULES + rule.ordinal();
+    }
+
+    private static Map<ClientField, List<Rule>> defaultRules() {
+        Map<ClientField, List<Rule>> rules = new EnumMap<>(ClientField.class);
+
+        rules.put(ClientField.ADDRESS, List.of(Rule.NOT_SYMBOL));
+        rules.put(ClientField.CITY, List.of(Rule.REQUIRED, Rule.NOT_SYMBOL));
+        rules.put(ClientField.FIRST_NAME, List.of(Rule.REQUIRED, Rule.NOT_SYMBOL));
+        rules.put(ClientField.LAST_NAME, List.of(Rule.REQUIRED, Rule.NOT_SYMBOL));
+
+        return rules;
+    }
+
+    /**
+     * Validates a range of a batch, split in halves until it is small enough
+     */
+    private final class Batch extends RecursiveAction {
+        private final Client[] batch;
+        private final int[] failures;
+        private final int from;
+        private final int to;
+
+        private Batch(Client[] batch, int[] failures, int from, int to) {
+            this.batch = batch;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                check(batch, failures, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new Batch(batch, failures, from, middle), new Batch(batch, failures, middle, to));
+            }
+        }
+    }
+}
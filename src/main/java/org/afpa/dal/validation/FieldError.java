@@ -0,0 +1,44 @@
+package org.afpa.dal.validation;
+
+/**
+ * A field of a client which breaks a rule
+ * <p>
+ * The errors are built once by the {@link ClientValidator} and shared by every validation.
+ */
+public final class FieldError {
+    private final ClientField field;
+    private final String message;
+    private final Rule rule;
+
+    FieldError(ClientField field, Rule rule) {
+        this.field = field;
+        this.message = String.format(rule.getMessage(), field.getLabel());
+        this.rule = rule;
+    }
+
+    /**
+     * @return The field in error
+     */
+    public ClientField getField() {
+        return field;
+    }
+
+    /**
+     * @return The message shown to the user, in French
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The rule the field breaks
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
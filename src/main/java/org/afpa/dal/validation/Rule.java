@@ -0,0 +1,51 @@
+package org.afpa.dal.validation;
+
+import java.util.regex.Pattern;
+
+/**
+ * The rules a field of a client may have to follow
+ */
+public enum Rule {
+    /**
+     * The value is neither null nor empty
+     */
+    REQUIRED("%s est obligatoire.") {
+        @Override
+        boolean test(String value) {
+            return value != null && !value.isEmpty();
+        }
+    },
+
+    /**
+     * The value is not a lone character which is neither a word character nor a space, like {@code "!"}
+     * <p>
+     * A whole value can only match the pattern if it is one character long, so the pattern is only run on those.
+     */
+    NOT_SYMBOL("%s ne peut pas être un symbole.") {
+        private final Pattern symbol = Pattern.compile("[^\\w\\s]");
+
+        @Override
+        boolean test(String value) {
+            return value == null || value.length() != 1 || !symbol.matcher(value).matches();
+        }
+    };
+
+    private final String message;
+
+    Rule(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return The message of the rule, formatted with the label of the field
+     */
+    String getMessage() {
+        return message;
+    }
+
+    /**
+     * @param value The value of the field
+     * @return {@code true} if the value follows the rule
+     */
+    abstract boolean test(String value);
+}
@@ -0,0 +1,54 @@
+package org.afpa.dal.validation;
+
+import java.util.List;
+
+/**
+ * The result of the validation of a batch of clients, in the order of the batch
+ */
+public final class ValidationReport {
+    private final int[] failures;
+    private final int invalid;
+    private final ClientValidator validator;
+
+    ValidationReport(ClientValidator validator, int[] failures) {
+        int invalid = 0;
+
+        for (int failure : failures) {
+            if (failure != 0) invalid++;
+        }
+
+        this.failures = failures;
+        this.invalid = invalid;
+        this.validator = validator;
+    }
+
+    /**
+     * @param index The position of the client in the batch
+     * @return The errors of the fields of the client, empty if it is valid
+     */
+    public List<FieldError> getErrors(int index) {
+        return validator.errors(failures[index]);
+    }
+
+    /**
+     * @return The number of invalid clients
+     */
+    public int getInvalidCount() {
+        return invalid;
+    }
+
+    /**
+     * @param index The position of the client in the batch
+     * @return {@code true} if the client is valid
+     */
+    public boolean isValid(int index) {
+        return failures[index] == 0;
+    }
+
+    /**
+     * @return The number of validated clients
+     */
+    public int size() {
+        return failures.length;
+    }
+}
@@ -0,0 +1,494 @@
+package org.afpa.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.dao.ClientQuery;
+import org.afpa.dal.dao.ConflictException;
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.interfaces.Queryable;
+import org.afpa.dal.json.ClientJson;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.DAOExecutor;
+import org.afpa.dal.shared.DataSource;
+import org.afpa.dal.shared.ExceptionPrinter;
+import org.afpa.dal.validation.ClientValidator;
+import org.afpa.dal.validation.FieldError;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Serves the clients over HTTP as JSON, so many workstations share the connection pool of a single process
+ * <p>
+ * Runs on the HTTP server of the JDK, the requests are handled by a {@link DAOExecutor}: on virtual threads when the
+ * JDK has them, else on a fixed pool of threads, and at most {@code queueCapacity} requests wait for their turn. The
+ * requests beyond it are answered at once with a 503. The routes are:
+ * <pre>
+ * GET    /clients                  every client, streamed from the database as they are read
+ * GET    /clients?after=12&amp;limit=50 the page following the client 12, ordered by id
+ * GET    /clients?lastName=Du&amp;city=Am&amp;sort=LAST_NAME&amp;desc=true&amp;limit=50&amp;after=12&amp;offset=0
+ *                                  the clients whose names or city start with the prefixes, see {@link ClientQuery}
+ * GET    /clients/count            the number of clients, filtered by the same prefixes
+ * GET    /clients/12               a client, 404 if there is none
+ * POST   /clients                  inserts the client of the body, 201 with its id, 400 with the invalid fields
+ * PUT    /clients/12               updates the client with the version it was read with, 409 if it changed since
+ * DELETE /clients/12               deletes a client and its reservations, 204
+ * </pre>
+ * The failures of the database are answered with a 503. When a streamed list fails, its status is already sent, so
+ * the connection is dropped before the end of the response instead.
+ * Run it with {@code App --headless}, on the port {@code org.afpa.server.port} (8080 by default).
+ */
+public final class ClientServer implements AutoCloseable {
+    /**
+     * The largest page a request may ask for
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String PATH = "/clients";
+
+    // Set while a request is answered on the thread of the HTTP server because the executor is full
+    private static final ThreadLocal<Boolean> OVERLOADED = new ThreadLocal<>();
+
+    private final CRUD<Client> dao;
+    private final DAOExecutor executor;
+    private final Queryable<Client, ClientQuery> queries;
+    private final HttpServer server;
+
+    /**
+     * Creates a server of the shared pool, with the concurrency of {@code org.afpa.server.concurrency} (the size of
+     * the pool by default) and the queue capacity of {@code org.afpa.server.queueCapacity} (1024 by default)
+     *
+     * @param port The port to listen on, 0 for any free one
+     * @throws IOException If the port can't be bound
+     */
+    public ClientServer(int port) throws IOException {
+        this(new ClientDAO(), new InetSocketAddress(port),
+                Integer.getInteger("org.afpa.server.concurrency", DataSource.getMaximumPoolSize()),
+                Integer.getInteger("org.afpa.server.queueCapacity", 1024));
+    }
+
+    /**
+     * Creates a server of a client DAO
+     *
+     * @param dao           The DAO reading and writing the clients
+     * @param address       The address to listen on
+     * @param concurrency   The maximum number of requests handled at the same time
+     * @param queueCapacity The maximum number of requests waiting to be handled
+     * @throws IOException If the address can't be bound
+     */
+    public ClientServer(ClientDAO dao, InetSocketAddress address, int concurrency, int queueCapacity) throws IOException {
+        this(dao, dao, address, concurrency, queueCapacity);
+    }
+
+    /**
+     * Primary constructor
+     *
+     * @param dao           The DAO reading and writing the clients
+     * @param queries       Runs the filtered queries
+     * @param address       The address to listen on
+     * @param concurrency   The maximum number of requests handled at the same time
+     * @param queueCapacity The maximum number of requests waiting to be handled
+     * @throws IOException If the address can't be bound
+     */
+    public ClientServer(CRUD<Client> dao, Queryable<Client, ClientQuery> queries, InetSocketAddress address,
+                        int concurrency, int queueCapacity) throws IOException {
+        this.dao = dao;
+        this.executor = new DAOExecutor(concurrency, queueCapacity);
+        this.queries = queries;
+        this.server = HttpServer.create(address, 0);
+
+        server.createContext(PATH, this::handle);
+        server.setExecutor(overflow(executor));
+    }
+
+    /**
+     * Runs the server in the foreground until the JVM is stopped
+     *
+     * @param args Unused
+     * @throws IOException If the port can't be bound
+     */
+    public static void main(String[] args) throws IOException {
+        ClientServer server = new ClientServer(Integer.getInteger("org.afpa.server.port", 8080));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "client-server-shutdown"));
+        server.start();
+
+        System.out.printf("Serving the clients on http://localhost:%d%s%n", server.getPort(), PATH);
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits a second for the running ones, then stops the executor
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    /**
+     * Hands the requests to the executor, and answers them on the thread of the HTTP server when it is full
+     */
+    private static Executor overflow(DAOExecutor executor) {
+        return exchange -> {
+            try {
+                executor.execute(exchange);
+            } catch (RejectedExecutionException e) {
+                // Only reads the request and answers 503, without touching the database
+                OVERLOADED.set(true);
+
+                try {
+                    exchange.run();
+                } finally {
+                    OVERLOADED.remove();
+                }
+            }
+        };
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (Boolean.TRUE.equals(OVERLOADED.get())) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                error(exchange, 503, "The server is overloaded");
+            } else {
+                route(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, e.getMessage());
+        } catch (ConflictException e) {
+            error(exchange, 409, e.getMessage());
+        } catch (SQLException e) {
+            // Pretty prints the exception
+            new ExceptionPrinter<>(e).print();
+
+            fail(exchange, 503, "The database can't be reached", e);
+        } catch (RuntimeException e) {
+            // Pretty prints the exception
+            new ExceptionPrinter<>(e).print();
+
+            fail(exchange, 500, "Internal error", e);
+        }
+
+        // Not in a finally, closing ends the body properly and the HTTP server drops the connection when it throws
+        exchange.close();
+    }
+
+    private void route(HttpExchange exchange) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath().substring(PATH.length());
+        Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+
+        if (path.isEmpty() || path.equals("/")) {
+            if (method.equals("GET")) {
+                list(exchange, parameters);
+            } else if (method.equals("POST")) {
+                insert(exchange);
+            } else {
+                error(exchange, 405, "GET or POST expected");
+            }
+        } else if (path.equals("/count")) {
+            if (method.equals("GET")) {
+                count(exchange, parameters);
+            } else {
+                error(exchange, 405, "GET expected");
+            }
+        } else {
+            int id = id(path.substring(1));
+
+            switch (method) {
+                case "GET":
+                    find(exchange, id);
+                    break;
+                case "PUT":
+                    update(exchange, id);
+                    break;
+                case "DELETE":
+                    delete(exchange, id);
+                    break;
+                default:
+                    error(exchange, 405, "GET, PUT or DELETE expected");
+            }
+        }
+    }
+
+    private void count(HttpExchange exchange, Map<String, String> parameters) throws IOException, SQLException {
+        int count = isQuery(parameters) ? queries.count(query(parameters)) : dao.count();
+
+        respond(exchange, 200, "{\"count\":" + count + "}");
+    }
+
+    private void delete(HttpExchange exchange, int id) throws IOException, SQLException {
+        if (!dao.remove(id)) throw new SQLException("The client " + id + " could not be deleted");
+
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void find(HttpExchange exchange, int id) throws IOException, SQLException {
+        Client client = dao.find(id);
+
+        if (client == null) throw new SQLException("The client " + id + " could not be read");
+
+        if (client.getId() == 0) {
+            error(exchange, 404, "No client " + id);
+
+            return;
+        }
+
+        respond(exchange, 200, json(client));
+    }
+
+    private void insert(HttpExchange exchange) throws IOException, SQLException {
+        Client client = ClientJson.read(body(exchange));
+
+        if (invalid(exchange, client)) return;
+
+        dao.insert(client);
+
+        if (client.getId() <= 0) throw new SQLException("The client could not be inserted");
+
+        exchange.getResponseHeaders().set("Location", PATH + "/" + client.getId());
+        respond(exchange, 201, json(client));
+    }
+
+    /**
+     * Streams every client, or answers a page or a query
+     */
+    private void list(HttpExchange exchange, Map<String, String> parameters) throws IOException, SQLException {
+        List<Client> clients;
+
+        if (isQuery(parameters)) {
+            clients = queries.query(query(parameters));
+        } else if (parameters.containsKey("after") || parameters.containsKey("limit")) {
+            clients = dao.page(number(parameters, "after", 0), limit(parameters));
+        } else {
+            stream(exchange);
+
+            return;
+        }
+
+        if (clients == null) throw new SQLException("The clients could not be read");
+
+        respond(exchange, 200, clients);
+    }
+
+    /**
+     * Writes the clients as they are read from the database, the response is chunked
+     */
+    private void stream(HttpExchange exchange) throws IOException, SQLException {
+        try (Stream<Client> clients = dao.stream()) {
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            exchange.sendResponseHeaders(200, 0);
+
+            // Only closed once every client is written, closing after a failure would end the chunked body properly
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024);
+
+            ClientJson.writeAll(clients.iterator(), out);
+            out.close();
+        }
+    }
+
+    private void update(HttpExchange exchange, int id) throws IOException, SQLException {
+        Client client = ClientJson.read(body(exchange));
+
+        client.setId(id);
+
+        if (invalid(exchange, client)) return;
+
+        int version = client.getVersion();
+
+        dao.update(client);
+
+        // The DAO only increments the version once the update is committed
+        if (client.getVersion() == version) throw new SQLException("The client " + id + " could not be updated");
+
+        respond(exchange, 200, json(client));
+    }
+
+    /**
+     * Answers 400 with the invalid fields of the client
+     *
+     * @return True if the client is invalid
+     */
+    private static boolean invalid(HttpExchange exchange, Client client) throws IOException {
+        List<FieldError> errors = ClientValidator.DEFAULT.validate(client);
+
+        if (errors.isEmpty()) return false;
+
+        StringWriter json = new StringWriter().append("{\"errors\":[");
+
+        for (int i = 0; i < errors.size(); i++) {
+            json.append(i == 0 ? "{\"field\":" : ",{\"field\":");
+            ClientJson.string(errors.get(i).getField().name(), json);
+            json.append(",\"message\":");
+            ClientJson.string(errors.get(i).getMessage(), json);
+            json.append('}');
+        }
+
+        respond(exchange, 400, json.append("]}").toString());
+
+        return true;
+    }
+
+    /**
+     * @return True if the parameters filter or sort the clients rather than only page them
+     */
+    private static boolean isQuery(Map<String, String> parameters) {
+        for (String key : List.of("city", "desc", "firstName", "lastName", "offset", "sort")) {
+            if (parameters.containsKey(key)) return true;
+        }
+
+        return false;
+    }
+
+    private ClientQuery query(Map<String, String> parameters) throws SQLException {
+        ClientQuery query = ClientQuery.all()
+                .lastNameStartsWith(parameters.get("lastName"))
+                .firstNameStartsWith(parameters.get("firstName"))
+                .cityStartsWith(parameters.get("city"))
+                .orderBy(ClientQuery.Sort.valueOf(parameters.getOrDefault("sort", "ID")), !Boolean.parseBoolean(parameters.get("desc")))
+                .limit(limit(parameters));
+
+        if (parameters.containsKey("offset")) query = query.offset(number(parameters, "offset", 0));
+
+        if (!parameters.containsKey("after")) return query;
+
+        int after = number(parameters, "after", 0);
+        // The keyset needs the sorted value of the last client, which only the database knows
+        Client last = query.getSort() == ClientQuery.Sort.ID ? new Client(null, null, null, after, null) : dao.find(after);
+
+        if (last == null) throw new SQLException("The client " + after + " could not be read");
+
+        if (last.getId() == 0) throw new IllegalArgumentException("No client " + after + " to start after");
+
+        return query.after(last);
+    }
+
+    private static int limit(Map<String, String> parameters) {
+        int limit = number(parameters, "limit", ClientQuery.DEFAULT_LIMIT);
+
+        if (limit <= 0 || limit > MAX_LIMIT) throw new IllegalArgumentException("The limit must be between 1 and " + MAX_LIMIT);
+
+        return limit;
+    }
+
+    private static int number(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+
+        if (value == null) return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The parameter " + name + " must be a number");
+        }
+    }
+
+    private static int id(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown path " + PATH + "/" + segment);
+        }
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+
+        if (rawQuery == null || rawQuery.isEmpty()) return parameters;
+
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+
+            parameters.put(key, value);
+        }
+
+        return parameters;
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String json(Client client) throws IOException {
+        StringWriter json = new StringWriter(128);
+
+        ClientJson.write(client, json);
+
+        return json.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, List<Client> clients) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(clients.size() * 128 + 2);
+
+        try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            ClientJson.writeAll(clients.iterator(), out);
+        }
+
+        respond(exchange, status, bytes.toByteArray());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        respond(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] json) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+
+        headers.set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, json.length);
+        exchange.getResponseBody().write(json);
+    }
+
+    /**
+     * Answers an error, or drops the connection when the status is already sent, so the client sees the response
+     * was cut short instead of reading a truncated body
+     */
+    private static void fail(HttpExchange exchange, int status, String message, Exception cause) throws IOException {
+        if (exchange.getResponseCode() != -1) throw new IOException("The response was cut short", cause);
+
+        error(exchange, status, message);
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter json = new StringWriter().append("{\"error\":");
+
+        ClientJson.string(message, json);
+        respond(exchange, status, json.append('}').toString());
+    }
+}
@@ -0,0 +1,227 @@
+package org.afpa.dal;
+
+import org.afpa.dal.dao.CachedCRUD;
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.models.Client;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+public class CachedCRUDTest {
+    private final InMemoryCRUD dao = new InMemoryCRUD();
+
+    @Test
+    public void find() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 10, Duration.ofMinutes(1));
+
+        dao.insert(new Client("1 rue du cache", "Cacheville", "Jean", 0, "Cache"));
+
+        Assert.assertEquals("Jean", cache.find(1).getFirstName());
+        Assert.assertEquals("Jean", cache.find(1).getFirstName());
+
+        Assert.assertEquals(1, dao.finds);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void copies() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 10, Duration.ofMinutes(1));
+
+        dao.insert(new Client("1 rue du cache", "Cacheville", "Jean", 0, "Cache"));
+
+        // Modifying a found client must not modify the cached one
+        cache.find(1).setFirstName("Modifié");
+
+        Assert.assertEquals("Jean", cache.find(1).getFirstName());
+    }
+
+    @Test
+    public void update() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 10, Duration.ofMinutes(1));
+
+        dao.insert(new Client("1 rue du cache", "Cacheville", "Jean", 0, "Cache"));
+
+        Client client = cache.find(1);
+        client.setFirstName("Paul");
+
+        cache.update(client);
+
+        Assert.assertEquals("Paul", cache.find(1).getFirstName());
+        Assert.assertEquals(2, dao.finds);
+    }
+
+    @Test
+    public void delete() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 10, Duration.ofMinutes(1));
+
+        dao.insert(new Client("1 rue du cache", "Cacheville", "Jean", 0, "Cache"));
+
+        cache.find(1);
+        cache.delete(1);
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.find(1).getId());
+    }
+
+    @Test
+    public void staleFind() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 10, Duration.ofMinutes(1));
+
+        dao.insert(new Client("1 rue du cache", "Cacheville", "Jean", 0, "Cache"));
+
+        // Another user updates the client once the find read it, before the find caches it
+        dao.afterFind = () -> {
+            Client client = new Client(dao.clients.get(1));
+            client.setFirstName("Paul");
+
+            cache.update(client);
+        };
+
+        Assert.assertEquals("Jean", cache.find(1).getFirstName());
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals("Paul", cache.find(1).getFirstName());
+    }
+
+    @Test
+    public void eviction() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 2, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 5; i++) {
+            dao.insert(new Client("", "Cacheville", "Jean", 0, "Cache"));
+        }
+
+        cache.page(0, 5);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(3, cache.getEvictions());
+    }
+
+    @Test
+    public void evictionSamples() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 64, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 100; i++) {
+            dao.insert(new Client("", "Cacheville", "Jean", 0, "Cache"));
+        }
+
+        cache.page(0, 64);
+
+        // Reads every cached client but one, far from the start of the map
+        for (int id = 1; id <= 64; id++) {
+            if (id != 40) cache.find(id);
+        }
+
+        // Each find evicts one entry, the samples must reach the unread one
+        for (int id = 65; id <= 72; id++) {
+            cache.find(id);
+        }
+
+        int finds = dao.finds;
+
+        cache.find(40);
+
+        Assert.assertEquals(finds + 1, dao.finds);
+    }
+
+    @Test
+    public void expiration() throws Exception {
+        CachedCRUD<Client> cache = new CachedCRUD<>(dao, Client::getId, Client::new, 10, Duration.ZERO);
+
+        dao.insert(new Client("1 rue du cache", "Cacheville", "Jean", 0, "Cache"));
+
+        cache.find(1);
+        cache.find(1);
+
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(2, dao.finds);
+    }
+
+    /**
+     * A DAO storing the clients in a map, which counts the finds
+     */
+    private static final class InMemoryCRUD implements CRUD<Client> {
+        private final TreeMap<Integer, Client> clients = new TreeMap<>();
+        // Runs once after the next find read its client
+        private Hook afterFind;
+        private int finds;
+
+        @Override
+        public int count() {
+            return clients.size();
+        }
+
+        @Override
+        public void delete(int id) {
+            clients.remove(id);
+        }
+
+        @Override
+        public Client find(int id) throws SQLException {
+            finds++;
+
+            Client client = clients.get(id);
+
+            if (afterFind != null) {
+                Hook hook = afterFind;
+
+                afterFind = null;
+                hook.run();
+            }
+
+            return client == null ? new Client() : new Client(client);
+        }
+
+        @Override
+        public int idAt(int position) {
+            return new ArrayList<>(clients.keySet()).get(position);
+        }
+
+        @Override
+        public void insert(Client client) {
+            client.setId(clients.isEmpty() ? 1 : clients.lastKey() + 1);
+            clients.put(client.getId(), new Client(client));
+        }
+
+        @Override
+        public ArrayList<Client> list() {
+            return page(0, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public ArrayList<Client> page(int afterId, int size) {
+            ArrayList<Client> page = new ArrayList<>();
+
+            for (Map.Entry<Integer, Client> entry : clients.tailMap(afterId, false).entrySet()) {
+                if (page.size() == size) break;
+
+                page.add(new Client(entry.getValue()));
+            }
+
+            return page;
+        }
+
+        @Override
+        public Stream<Client> stream() {
+            return list().stream();
+        }
+
+        @Override
+        public void update(Client client) {
+            clients.put(client.getId(), new Client(client));
+        }
+    }
+
+    /**
+     * Something done by another user during a call to the DAO
+     */
+    private interface Hook {
+        void run() throws SQLException;
+    }
+}
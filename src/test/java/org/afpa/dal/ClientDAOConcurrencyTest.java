@@ -0,0 +1,79 @@
+package org.afpa.dal;
+
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.models.Client;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ClientDAOConcurrencyTest {
+    private static final int OPERATIONS = 50;
+    private static final int THREADS = 16;
+
+    // A single DAO shared by every thread
+    private final ClientDAO clientDAO = new ClientDAO();
+
+    @Test
+    public void hammer() throws Exception {
+        int sizeBefore = clientDAO.count();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Integer>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            String city = "Concurrence" + t;
+
+            workers.add(() -> {
+                int failures = 0;
+
+                for (int i = 0; i < OPERATIONS; i++) {
+                    Client client = new Client(i + " rue du stress", city, "Stress", 0, "Test");
+
+                    clientDAO.insert(client);
+
+                    Client found = clientDAO.find(client.getId());
+
+                    // Each thread must only ever see its own rows, fully committed
+                    if (client.getId() == 0 || found == null || !city.equals(found.getCity())) failures++;
+
+                    client.setFirstName("Stressé");
+                    clientDAO.update(client);
+
+                    found = clientDAO.find(client.getId());
+
+                    if (found == null || !"Stressé".equals(found.getFirstName())) failures++;
+
+                    clientDAO.page(client.getId() - 1, 10);
+                    clientDAO.delete(client.getId());
+
+                    found = clientDAO.find(client.getId());
+
+                    if (found == null || found.getId() != 0) failures++;
+                }
+
+                return failures;
+            });
+        }
+
+        int failures = 0;
+
+        try {
+            for (Future<Integer> result : executor.invokeAll(workers)) {
+                failures += result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        Assert.assertEquals(0, failures);
+        Assert.assertEquals(sizeBefore, clientDAO.count());
+    }
+}
@@ -1,12 +1,31 @@
 package org.afpa.dal;
 
 import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.dao.ConflictException;
 import org.afpa.dal.models.Client;
+import org.afpa.dal.models.ClientChanges;
+import org.afpa.dal.models.ClientReservations;
+import org.afpa.dal.models.Reservation;
+import org.afpa.dal.shared.DataSource;
+import org.afpa.dal.shared.UnitOfWork;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public class ClientDAOTest {
     public final ClientDAO clientDAO = new ClientDAO();
@@ -22,7 +41,7 @@ public class ClientDAOTest {
 
         clientDAO.insert(client);
 
-        Client foundClient = clientDAO.getLastClient();
+        Client foundClient = clientDAO.find(client.getId());
 
         Assert.assertEquals("65 rue imaginaire", foundClient.getAddress());
         Assert.assertEquals("Imaginaire", foundClient.getCity());
@@ -49,6 +68,37 @@ public class ClientDAOTest {
         Assert.assertEquals("Update", newClient.getLastName());
     }
 
+    @Test
+    public void conflict() throws SQLException {
+        Client client = new Client("1 rue du conflit", "Conflitville", "Jean", 0, "Conflit");
+
+        clientDAO.insert(client);
+
+        try {
+            Client mine = clientDAO.find(client.getId());
+            Client theirs = clientDAO.find(client.getId());
+
+            theirs.setCity("Ailleurs");
+            clientDAO.update(theirs);
+
+            Assert.assertEquals(mine.getVersion() + 1, theirs.getVersion());
+
+            // Read before their update, mine no longer matches the row
+            mine.setCity("Ici");
+
+            try {
+                clientDAO.update(mine);
+                Assert.fail();
+            } catch (ConflictException e) {
+                Assert.assertEquals(mine.getId(), e.getId());
+            }
+
+            Assert.assertEquals("Ailleurs", clientDAO.find(mine.getId()).getCity());
+        } finally {
+            clientDAO.delete(client.getId());
+        }
+    }
+
     @Test
     public void find() throws SQLException {
         Client client = clientDAO.find(clientDAO.getLastClient().getId());
@@ -78,4 +128,292 @@ public class ClientDAOTest {
 
         Assert.assertEquals(sizeBeforeDelete, clientDAO.list().size());
     }
+
+    @Test
+    public void page() throws SQLException {
+        List<Client> clients = Arrays.asList(
+                new Client("1 rue de la page", "Pageville", "Un", 0, "Page"),
+                new Client("2 rue de la page", "Pageville", "Deux", 0, "Page"),
+                new Client("3 rue de la page", "Pageville", "Trois", 0, "Page"));
+
+        for (Client client : clients) {
+            clientDAO.insert(client);
+        }
+
+        try {
+            ArrayList<Client> firstPage = clientDAO.page(0, 2);
+
+            Assert.assertEquals(2, firstPage.size());
+            Assert.assertEquals(firstPage.get(1).getId(), clientDAO.idAt(1));
+
+            // The second page starts right after the last client of the first one
+            ArrayList<Client> secondPage = clientDAO.page(firstPage.get(1).getId(), 2);
+
+            Assert.assertFalse(secondPage.isEmpty());
+            Assert.assertTrue(secondPage.get(0).getId() > firstPage.get(1).getId());
+
+            // The inserted clients follow each other from one page to the next
+            ArrayList<Client> inserted = clientDAO.page(clients.get(0).getId() - 1, 2);
+
+            Assert.assertEquals(clients.get(0).getId(), inserted.get(0).getId());
+            Assert.assertEquals(clients.get(1).getId(), inserted.get(1).getId());
+            Assert.assertEquals(clients.get(2).getId(), clientDAO.page(inserted.get(1).getId(), 2).get(0).getId());
+        } finally {
+            clientDAO.deleteAll(clients.stream().mapToInt(Client::getId).toArray());
+        }
+    }
+
+    @Test
+    public void count() throws SQLException {
+        Assert.assertEquals(clientDAO.list().size(), clientDAO.count());
+    }
+
+    @Test
+    public void stream() throws SQLException {
+        try (Stream<Client> clients = clientDAO.stream()) {
+            Assert.assertEquals(clientDAO.count(), clients.count());
+        }
+    }
+
+    @Test
+    public void bulk() throws SQLException {
+        List<Client> clients = Arrays.asList(
+                new Client("1 rue du lot", "Batchville", "Un", 0, "Lot"),
+                new Client("2 rue du lot", "Batchville", "Deux", 0, "Lot"),
+                new Client("3 rue du lot", "Batchville", "Trois", 0, "Lot")
+        );
+
+        clientDAO.setBatchSize(2);
+
+        int[] ids = clientDAO.insertAll(clients);
+
+        Assert.assertNotNull(ids);
+        Assert.assertEquals(3, ids.length);
+
+        for (int i = 0; i < ids.length; i++) {
+            Assert.assertEquals(ids[i], clients.get(i).getId());
+            Assert.assertEquals(clients.get(i).getFirstName(), clientDAO.find(ids[i]).getFirstName());
+        }
+
+        for (Client client : clients) {
+            client.setCity("Updateville");
+        }
+
+        clientDAO.updateAll(clients);
+
+        Assert.assertEquals("Updateville", clientDAO.find(ids[2]).getCity());
+
+        int sizeBeforeDelete = clientDAO.count();
+
+        clientDAO.deleteAll(ids);
+
+        Assert.assertEquals(sizeBeforeDelete - 3, clientDAO.count());
+    }
+
+    @Test
+    public void staleBatch() throws SQLException {
+        List<Client> clients = Arrays.asList(
+                new Client("1 rue du lot", "Batchville", "Un", 0, "Périmé"),
+                new Client("2 rue du lot", "Batchville", "Deux", 0, "Périmé"));
+
+        clientDAO.insertAll(clients);
+
+        try {
+            // Another user updates the second client, the batch still holds its first version
+            Client other = new Client(clients.get(1));
+
+            other.setCity("Ailleurs");
+            clientDAO.update(other);
+
+            for (Client client : clients) {
+                client.setCity("Updateville");
+            }
+
+            try {
+                clientDAO.updateAll(clients);
+
+                Assert.fail("The stale client should conflict");
+            } catch (ConflictException e) {
+                Assert.assertEquals(clients.get(1).getId(), e.getId());
+            }
+
+            // The whole chunk was rolled back
+            Assert.assertEquals("Batchville", clientDAO.find(clients.get(0).getId()).getCity());
+            Assert.assertEquals("Ailleurs", clientDAO.find(clients.get(1).getId()).getCity());
+        } finally {
+            clientDAO.deleteAll(clients.stream().mapToInt(Client::getId).toArray());
+        }
+    }
+
+    @Test
+    public void batchWithoutUpdateCounts() throws SQLException {
+        List<String> calls = new ArrayList<>();
+        // The counts of the statements run one by one, the second client is stale
+        Deque<Integer> counts = new ArrayDeque<>(List.of(1, 0, 1, 0));
+        int[] batched = {0};
+        PreparedStatement statement = FakeJdbc.fake(PreparedStatement.class, (method, args) -> {
+            switch (method) {
+                case "addBatch":
+                    batched[0]++;
+
+                    return null;
+                case "executeBatch":
+                    calls.add(method);
+
+                    int[] noInfo = new int[batched[0]];
+
+                    Arrays.fill(noInfo, Statement.SUCCESS_NO_INFO);
+                    batched[0] = 0;
+
+                    return noInfo;
+                case "executeUpdate":
+                    calls.add(method);
+
+                    return counts.pop();
+                default:
+                    return null;
+            }
+        });
+        ClientDAO fakeDAO = new ClientDAO(new UnitOfWork(FakeJdbc.dataSource(() -> FakeJdbc.fake(Connection.class, (method, args) -> {
+            switch (method) {
+                case "prepareStatement":
+                    return statement;
+                case "getAutoCommit":
+                    return false;
+                case "setSavepoint":
+                    return FakeJdbc.fake(Savepoint.class, (savepointMethod, savepointArgs) -> null);
+                case "rollback":
+                    calls.add(args.length == 0 ? "rollback" : "rollback to savepoint");
+
+                    return null;
+                default:
+                    return null;
+            }
+        }))));
+        List<Client> clients = Arrays.asList(new Client("", "", "", 1, "Un"), new Client("", "", "", 2, "Deux"));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                fakeDAO.updateAll(clients);
+
+                Assert.fail("The stale client should conflict");
+            } catch (ConflictException e) {
+                Assert.assertEquals(2, e.getId());
+            }
+        }
+
+        // The batch could not tell the conflict, its chunk is run again one client at a time, then every chunk is
+        Assert.assertEquals(List.of("executeBatch", "rollback to savepoint", "executeUpdate", "executeUpdate", "rollback",
+                "executeUpdate", "executeUpdate", "rollback"), calls);
+    }
+
+    @Test
+    public void reservations() throws SQLException {
+        ArrayList<ClientReservations> page = clientDAO.pageWithReservations(0, 5);
+
+        Assert.assertNotNull(page);
+        Assert.assertEquals(clientDAO.page(0, 5).size(), page.size());
+
+        int[] ids = new int[page.size()];
+
+        for (int i = 0; i < page.size(); i++) {
+            ids[i] = page.get(i).getClient().getId();
+
+            for (Reservation reservation : page.get(i).getReservations()) {
+                Assert.assertEquals(ids[i], reservation.getClientId());
+                Assert.assertNotNull(reservation.getHotelName());
+            }
+        }
+
+        // The IN query groups the same reservations as the joined page
+        ArrayList<ClientReservations> found = clientDAO.findWithReservations(ids);
+
+        Assert.assertEquals(page.size(), found.size());
+
+        for (int i = 0; i < page.size(); i++) {
+            Assert.assertEquals(page.get(i).getReservations().size(), found.get(i).getReservations().size());
+        }
+    }
+
+    @Test
+    public void changes() throws SQLException {
+        long token = clientDAO.changeToken();
+        Client updated = new Client("1 rue du journal", "Deltaville", "Avant", 0, "Journal");
+        Client deleted = new Client("2 rue du journal", "Deltaville", "Supprimé", 0, "Journal");
+
+        clientDAO.insert(updated);
+
+        long afterInsert = clientDAO.changeToken();
+
+        clientDAO.insert(deleted);
+        updated.setFirstName("Après");
+        clientDAO.update(updated);
+        clientDAO.delete(deleted.getId());
+
+        // Inserted then modified reads as inserted with its last values, inserted then deleted is not reported
+        ClientChanges changes = clientDAO.changesSince(token);
+
+        Assert.assertFalse(changes.isOverflow());
+        Assert.assertTrue(changes.getToken() > token);
+        Assert.assertTrue(changes.getInserted().stream().anyMatch(client -> client.getId() == updated.getId() && "Après".equals(client.getFirstName())));
+        Assert.assertTrue(changes.getInserted().stream().noneMatch(client -> client.getId() == deleted.getId()));
+        Assert.assertFalse(changes.getDeleted().contains(deleted.getId()));
+
+        // Read from after its insert, the first client is only modified
+        changes = clientDAO.changesSince(afterInsert);
+
+        Assert.assertTrue(changes.getUpdated().stream().anyMatch(client -> client.getId() == updated.getId()));
+
+        long beforeDelete = clientDAO.changeToken();
+
+        clientDAO.delete(updated.getId());
+
+        Assert.assertTrue(clientDAO.changesSince(beforeDelete).getDeleted().contains(updated.getId()));
+    }
+
+    @Test
+    public void changesCommittedOutOfOrder() throws Exception {
+        long token = clientDAO.changeToken();
+        Client first = new Client("3 rue du journal", "Deltaville", "Premier", 0, "Journal");
+        Client second = new Client("4 rue du journal", "Deltaville", "Second", 0, "Journal");
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // The first insert gets the first change id but commits after the second one
+        CompletableFuture<Void> pending = CompletableFuture.runAsync(() -> {
+            try {
+                DataSource.getUnitOfWork().run(connection -> {
+                    clientDAO.insert(first);
+                    inserted.countDown();
+
+                    try {
+                        commit.await();
+                    } catch (InterruptedException e) {
+                        throw new SQLException(e);
+                    }
+                });
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+
+        inserted.await();
+        clientDAO.insert(second);
+
+        ClientChanges changes = clientDAO.changesSince(token);
+
+        // Read up to the pending change, and no token is handed out meanwhile
+        Assert.assertTrue(changes.getInserted().stream().noneMatch(client -> client.getId() == second.getId()));
+        Assert.assertEquals(token, changes.getToken());
+        Assert.assertEquals(-1, clientDAO.changeToken());
+
+        commit.countDown();
+        pending.get(5, TimeUnit.SECONDS);
+        changes = clientDAO.changesSince(token);
+
+        Assert.assertTrue(changes.getInserted().stream().anyMatch(client -> client.getId() == first.getId()));
+        Assert.assertTrue(changes.getInserted().stream().anyMatch(client -> client.getId() == second.getId()));
+
+        clientDAO.deleteAll(first.getId(), second.getId());
+    }
 }
@@ -0,0 +1,106 @@
+package org.afpa.dal;
+
+import org.afpa.dal.dao.ClientQuery;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.DataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientQueryTest {
+    @Test
+    public void parameterized() throws SQLException {
+        ClientQuery query = ClientQuery.all()
+                .lastNameStartsWith("'; DROP TABLE client; --")
+                .cityStartsWith("50%_")
+                .orderBy(ClientQuery.Sort.LAST_NAME)
+                .limit(20);
+
+        String sql = query.sql("cli_id");
+
+        Assert.assertEquals("SELECT cli_id FROM client WHERE cli_nom LIKE ? ESCAPE '!' AND cli_ville LIKE ? ESCAPE '!'"
+                + " ORDER BY cli_nom ASC, cli_id ASC LIMIT ?", sql);
+
+        // The wildcards of the prefixes only match themselves
+        Assert.assertEquals(List.of("'; DROP TABLE client; --%", "50!%!_%", 20), bound(query));
+    }
+
+    @Test
+    public void keyset() throws SQLException {
+        Client last = new Client("", "Londre", "Paul", 12, "Weller");
+        ClientQuery byName = ClientQuery.all().orderBy(ClientQuery.Sort.LAST_NAME).after(last);
+        ClientQuery byIdDescending = ClientQuery.all().orderBy(ClientQuery.Sort.ID, false).after(last);
+
+        Assert.assertEquals("SELECT cli_id FROM client WHERE (cli_nom > ? OR (cli_nom = ? AND cli_id > ?))"
+                + " ORDER BY cli_nom ASC, cli_id ASC LIMIT ?", byName.sql("cli_id"));
+        Assert.assertEquals(List.of("Weller", "Weller", 12, ClientQuery.DEFAULT_LIMIT), bound(byName));
+        Assert.assertEquals("SELECT cli_id FROM client WHERE cli_id < ? ORDER BY cli_id DESC LIMIT ?", byIdDescending.sql("cli_id"));
+
+        // An offset replaces the keyset
+        Assert.assertEquals(List.of(ClientQuery.DEFAULT_LIMIT, 100), bound(byName.offset(100)));
+    }
+
+    /**
+     * Explains the common queries on the database, with enough clients for the optimizer to prefer the indexes
+     * <p>
+     * The clients are inserted in a transaction which is rolled back, InnoDB counts them in its estimates meanwhile.
+     */
+    @Test
+    public void explain() throws SQLException {
+        try (Connection connection = DataSource.getUnitOfWork().borrow()) {
+            try {
+                try (PreparedStatement ps = connection.prepareStatement("INSERT INTO client(cli_nom, cli_prenom, cli_adresse, cli_ville) VALUES (?,?,?,?)")) {
+                    for (int i = 0; i < 5000; i++) {
+                        ps.setString(1, "Explain" + i);
+                        ps.setString(2, "Prenom" + i);
+                        ps.setString(3, i + " rue de l'index");
+                        ps.setString(4, "Ville" + i % 100);
+                        ps.addBatch();
+                    }
+
+                    ps.executeBatch();
+                }
+
+                Assert.assertEquals("client_nom", key(connection, ClientQuery.all().lastNameStartsWith("Explain123").orderBy(ClientQuery.Sort.LAST_NAME)));
+                Assert.assertEquals("client_prenom", key(connection, ClientQuery.all().firstNameStartsWith("Prenom123")));
+                Assert.assertEquals("client_ville", key(connection, ClientQuery.all().cityStartsWith("Ville1").orderBy(ClientQuery.Sort.CITY)));
+                Assert.assertEquals("client_nom", key(connection, ClientQuery.all().orderBy(ClientQuery.Sort.LAST_NAME)
+                        .after(new Client("", "", "", 2500, "Explain2500"))));
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * @return The index MariaDB plans to read the client table with
+     */
+    private static String key(Connection connection, ClientQuery query) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + query.sql("cli_id, cli_nom, cli_prenom, cli_ville"))) {
+            query.bind(ps);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+
+                return rs.getString("key");
+            }
+        }
+    }
+
+    /**
+     * @return The values bound to the statement of the query, in order
+     */
+    private static List<Object> bound(ClientQuery query) throws SQLException {
+        List<Object> values = new ArrayList<>();
+
+        query.bind(FakeJdbc.binding(values));
+
+        return values;
+    }
+}
@@ -0,0 +1,61 @@
+package org.afpa.dal;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.search.ClientSearchIndex;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ClientSearchIndexTest {
+    private final ClientSearchIndex index = new ClientSearchIndex();
+
+    @Before
+    public void fill() {
+        index.add(new Client("", "Londre", "Weller", 1, "Paul"));
+        index.add(new Client("", "Londre", "Chris", 2, "Squire"));
+        index.add(new Client("", "Palm Desert", "Josh", 3, "Homme"));
+        index.add(new Client("", "Amiens", "Hélène", 4, "Dubois"));
+    }
+
+    @Test
+    public void prefix() {
+        List<Client> clients = index.search("lon", 10);
+
+        Assert.assertEquals(2, clients.size());
+        Assert.assertEquals("Paul", clients.get(0).getLastName());
+        Assert.assertEquals("Squire", clients.get(1).getLastName());
+    }
+
+    @Test
+    public void severalTerms() {
+        Assert.assertEquals(1, index.search("Lond squi", 10).size());
+        Assert.assertEquals(1, index.search("desert", 10).size());
+        Assert.assertEquals(0, index.search("londres", 10).size());
+    }
+
+    @Test
+    public void accents() {
+        Assert.assertEquals(4, index.search("HELENE", 10).get(0).getId());
+    }
+
+    @Test
+    public void incremental() {
+        index.update(new Client("", "Amiens", "Hélène", 1, "Paul"));
+
+        Assert.assertEquals(1, index.search("lon", 10).size());
+        Assert.assertEquals(2, index.search("amie", 10).size());
+
+        index.remove(4);
+
+        Assert.assertEquals(1, index.search("amie", 10).size());
+        Assert.assertEquals(3, index.size());
+    }
+
+    @Test
+    public void limit() {
+        Assert.assertEquals(1, index.search("l", 1).size());
+        Assert.assertTrue(index.search(" ", 10).isEmpty());
+    }
+}
@@ -0,0 +1,334 @@
+package org.afpa.dal;
+
+import org.afpa.dal.dao.ClientQuery;
+import org.afpa.dal.dao.ConflictException;
+import org.afpa.dal.interfaces.CRUD;
+import org.afpa.dal.interfaces.Queryable;
+import org.afpa.dal.json.ClientJson;
+import org.afpa.dal.models.Client;
+import org.afpa.server.ClientServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ClientServerTest {
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final MemoryClients clients = new MemoryClients();
+    private ClientServer server;
+
+    @After
+    public void close() {
+        if (server != null) server.close();
+    }
+
+    @Test
+    public void jsonRoundTrip() throws IOException {
+        Client client = new Client("1 \"rue\" \\ des\nPins\u0001", null, "Zoé", 12, "O'Neil");
+        StringWriter json = new StringWriter();
+
+        client.setVersion(3);
+        ClientJson.write(client, json);
+
+        Assert.assertEquals("{\"id\":12,\"version\":3,\"lastName\":\"O'Neil\",\"firstName\":\"Zoé\","
+                + "\"address\":\"1 \\\"rue\\\" \\\\ des\\nPins\\u0001\",\"city\":null}", json.toString());
+
+        Client read = ClientJson.read(json.toString());
+
+        Assert.assertEquals(client.getAddress(), read.getAddress());
+        Assert.assertEquals("Zoé", read.getFirstName());
+        Assert.assertEquals(3, read.getVersion());
+    }
+
+    @Test
+    public void jsonReads() {
+        Client read = ClientJson.read("{\"id\":12,\"version\":3,\"lastName\":\"O\\u0027Neil\",\"firstName\":\"Zo\u00e9\",\"extra\":true,"
+                + "\"address\":\"1 \\\"rue\\\"\\n\",\"city\":null}");
+
+        Assert.assertEquals(12, read.getId());
+        Assert.assertEquals(3, read.getVersion());
+        Assert.assertEquals("O'Neil", read.getLastName());
+        Assert.assertEquals("Zoé", read.getFirstName());
+        Assert.assertEquals("1 \"rue\"\n", read.getAddress());
+        Assert.assertNull(read.getCity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedJson() {
+        ClientJson.read("{\"id\":\"12\"}");
+    }
+
+    @Test
+    public void crud() throws Exception {
+        start(4, 16);
+
+        HttpResponse<String> created = send("POST", "/clients", "{\"lastName\":\"Dubois\",\"firstName\":\"William\",\"address\":\"65 Rue des Poussins\",\"city\":\"Amiens\"}");
+
+        Assert.assertEquals(201, created.statusCode());
+        Assert.assertEquals("/clients/1", created.headers().firstValue("Location").orElse(null));
+
+        HttpResponse<String> found = send("GET", "/clients/1", null);
+
+        Assert.assertEquals(200, found.statusCode());
+        Assert.assertEquals("Dubois", ClientJson.read(found.body()).getLastName());
+
+        // Updated with the version it was read with, then the stale version conflicts
+        String update = "{\"version\":0,\"lastName\":\"Dupont\",\"firstName\":\"William\",\"address\":\"65 Rue des Poussins\",\"city\":\"Amiens\"}";
+
+        Assert.assertEquals(1, ClientJson.read(send("PUT", "/clients/1", update).body()).getVersion());
+        Assert.assertEquals(409, send("PUT", "/clients/1", update).statusCode());
+
+        Assert.assertEquals(204, send("DELETE", "/clients/1", null).statusCode());
+        Assert.assertEquals(404, send("GET", "/clients/1", null).statusCode());
+    }
+
+    @Test
+    public void rejectsInvalidRequests() throws Exception {
+        start(4, 16);
+
+        HttpResponse<String> invalid = send("POST", "/clients", "{\"lastName\":\"\",\"firstName\":\"William\",\"address\":\"1 rue\",\"city\":\"Amiens\"}");
+
+        Assert.assertEquals(400, invalid.statusCode());
+        Assert.assertTrue(invalid.body(), invalid.body().contains("\"field\":\"LAST_NAME\""));
+        Assert.assertEquals(400, send("POST", "/clients", "{\"lastName\":").statusCode());
+        Assert.assertEquals(400, send("GET", "/clients?limit=100000", null).statusCode());
+        Assert.assertEquals(400, send("GET", "/clients/abc", null).statusCode());
+        Assert.assertEquals(405, send("PATCH", "/clients", null).statusCode());
+        Assert.assertEquals(0, clients.count());
+    }
+
+    @Test
+    public void listsPagesAndQueries() throws Exception {
+        start(4, 16);
+
+        for (int i = 0; i < 120; i++) {
+            clients.insert(new Client(i + " rue", "Amiens", "Prénom" + i, 0, "Nom" + i));
+        }
+
+        List<Client> all = readArray(send("GET", "/clients", null).body());
+        List<Client> page = readArray(send("GET", "/clients?after=50&limit=20", null).body());
+
+        Assert.assertEquals(120, all.size());
+        Assert.assertEquals(20, page.size());
+        Assert.assertEquals(51, page.get(0).getId());
+        Assert.assertEquals(70, page.get(19).getId());
+        Assert.assertEquals("{\"count\":120}", send("GET", "/clients/count", null).body());
+        // Nom1, Nom10 to Nom19 and Nom100 to Nom119
+        Assert.assertEquals("{\"count\":31}", send("GET", "/clients/count?lastName=Nom1", null).body());
+        Assert.assertEquals(31, readArray(send("GET", "/clients?lastName=Nom1&limit=50", null).body()).size());
+    }
+
+    @Test
+    public void shedsTheOverload() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        clients.blockFinds(release);
+        start(1, 0);
+
+        // The first request holds the only slot, the next ones can't wait
+        CompletableFuture<HttpResponse<String>> held = sendAsync("/clients/1");
+
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        List<Integer> statuses = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            statuses.add(send("GET", "/clients/1", null).statusCode());
+        }
+
+        release.countDown();
+
+        Assert.assertEquals(List.of(503, 503, 503), statuses);
+        Assert.assertEquals(404, held.get(5, TimeUnit.SECONDS).statusCode());
+    }
+
+    @Test
+    public void reportsFailedWrites() throws Exception {
+        start(4, 16);
+
+        clients.insert(new Client("1 rue", "Amiens", "William", 0, "Dubois"));
+        clients.failing = true;
+
+        Assert.assertEquals(503, send("DELETE", "/clients/1", null).statusCode());
+        Assert.assertEquals(1, clients.count());
+    }
+
+    @Test
+    public void cutsFailedStreamsShort() throws Exception {
+        start(4, 16);
+
+        for (int i = 0; i < 1000; i++) {
+            clients.insert(new Client(i + " rue", "Amiens", "Prénom" + i, 0, "Nom" + i));
+        }
+
+        clients.failing = true;
+
+        // The status is already sent when the stream fails, the client must not read a complete response
+        try {
+            send("GET", "/clients", null);
+
+            Assert.fail("The response should have been cut short");
+        } catch (IOException expected) {
+            // The connection was dropped before the end of the body
+        }
+
+        clients.failing = false;
+
+        Assert.assertEquals(1000, readArray(send("GET", "/clients", null).body()).size());
+    }
+
+    private void start(int concurrency, int queueCapacity) throws IOException {
+        server = new ClientServer(clients, clients, new InetSocketAddress("localhost", 0), concurrency, queueCapacity);
+        server.start();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(String path) {
+        return http.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Splits the array of flat objects written by the server, whose strings hold no braces here
+     */
+    private static List<Client> readArray(String json) {
+        List<Client> read = new ArrayList<>();
+
+        for (int from = json.indexOf('{'); from >= 0; from = json.indexOf('{', from + 1)) {
+            read.add(ClientJson.read(json.substring(from, json.indexOf('}', from) + 1)));
+        }
+
+        return read;
+    }
+
+    /**
+     * The clients held in memory, the queries only filter on the start of the last names
+     */
+    private static final class MemoryClients implements CRUD<Client>, Queryable<Client, ClientQuery> {
+        private final ConcurrentSkipListMap<Integer, Client> clients = new ConcurrentSkipListMap<>();
+        private volatile CountDownLatch findsBlocked;
+        // Fails the deletes and the streams half way, like a DAO losing its connection
+        private volatile boolean failing;
+        private int next;
+
+        private void blockFinds(CountDownLatch until) {
+            findsBlocked = until;
+        }
+
+        @Override
+        public int count(ClientQuery query) {
+            return query(query).size();
+        }
+
+        @Override
+        public ArrayList<Client> query(ClientQuery query) {
+            String sql = query.sql("cli_id");
+            String prefix = sql.contains("cli_nom LIKE") ? "Nom1" : "";
+
+            return clients.values().stream()
+                    .filter(client -> client.getLastName().startsWith(prefix))
+                    .limit(query.getLimit())
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public void delete(int id) {
+            clients.remove(id);
+        }
+
+        @Override
+        public boolean remove(int id) {
+            if (failing) return false;
+
+            delete(id);
+
+            return true;
+        }
+
+        @Override
+        public Client find(int id) {
+            CountDownLatch blocked = findsBlocked;
+
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            Client client = clients.get(id);
+
+            return client == null ? new Client() : new Client(client);
+        }
+
+        @Override
+        public int count() {
+            return clients.size();
+        }
+
+        @Override
+        public int idAt(int position) {
+            return clients.keySet().stream().skip(position).findFirst().orElse(0);
+        }
+
+        @Override
+        public synchronized void insert(Client client) {
+            client.setId(++next);
+            clients.put(client.getId(), new Client(client));
+        }
+
+        @Override
+        public ArrayList<Client> list() {
+            return new ArrayList<>(clients.values());
+        }
+
+        @Override
+        public ArrayList<Client> page(int afterId, int size) {
+            return clients.tailMap(afterId, false).values().stream().limit(size).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public Stream<Client> stream() {
+            if (!failing) return clients.values().stream();
+
+            return clients.values().stream().peek(client -> {
+                if (client.getId() > clients.size() / 2) throw new IllegalStateException("The connection was lost");
+            });
+        }
+
+        @Override
+        public synchronized void update(Client client) throws ConflictException {
+            Client current = clients.get(client.getId());
+
+            if (current == null || current.getVersion() != client.getVersion()) {
+                throw new ConflictException(client.getId(), client.getVersion());
+            }
+
+            client.setVersion(client.getVersion() + 1);
+            clients.put(client.getId(), new Client(client));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.afpa.dal;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.models.ClientChanges;
+import org.afpa.dal.snapshot.ClientSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientSnapshotTest {
+    @Test
+    public void writeThenRead() throws IOException {
+        Path directory = Files.createTempDirectory("snapshot");
+
+        // Written in any order, read ordered by id
+        ClientSnapshot.write(directory, null, 42, List.of(
+                new Client("3 rue du disque", "Mapville", "Hélène", 3, "Dubois"),
+                new Client(null, "Mapville", "Paul", 1, "Weller")).iterator());
+
+        ClientSnapshot snapshot = ClientSnapshot.open(directory);
+
+        Assert.assertEquals(42, snapshot.getToken());
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(1, snapshot.idAt(0));
+        Assert.assertNull(snapshot.get(0).getAddress());
+        Assert.assertEquals("Hélène", snapshot.find(3).getFirstName());
+        Assert.assertNull(snapshot.find(2));
+        Assert.assertEquals(3, snapshot.page(1, 10).get(0).getId());
+    }
+
+    @Test
+    public void merge() throws IOException {
+        Path directory = Files.createTempDirectory("snapshot");
+
+        ClientSnapshot.write(directory, null, 1, List.of(
+                new Client("1 rue", "Ville", "Un", 1, "Client"),
+                new Client("2 rue", "Ville", "Deux", 2, "Client"),
+                new Client("3 rue", "Ville", "Trois", 3, "Client")).iterator());
+
+        ClientSnapshot previous = ClientSnapshot.open(directory);
+        ClientChanges changes = new ClientChanges(List.of(new Client("4 rue", "Ville", "Quatre", 4, "Client")),
+                List.of(new Client("2 rue", "Ville", "Modifié", 2, "Client")), List.of(1), 5, false);
+
+        ClientSnapshot.write(directory, previous, changes.getToken(), previous.merge(changes));
+
+        // The new snapshot went to the other slot and wins with its greater token
+        ClientSnapshot merged = ClientSnapshot.open(directory);
+        List<String> firstNames = new ArrayList<>();
+
+        for (int i = 0; i < merged.size(); i++) {
+            firstNames.add(merged.get(i).getFirstName());
+        }
+
+        Assert.assertEquals(5, merged.getToken());
+        Assert.assertEquals(List.of("Modifié", "Trois", "Quatre"), firstNames);
+        Assert.assertEquals(1, previous.getToken());
+    }
+
+    @Test
+    public void corrupted() throws IOException {
+        Path directory = Files.createTempDirectory("snapshot");
+
+        ClientSnapshot.write(directory, null, 7, List.of(new Client("1 rue", "Ville", "Un", 1, "Client")).iterator());
+
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("clients.0.snapshot").toFile(), "rw")) {
+            // Flips a byte of the first record
+            file.seek(40);
+
+            int value = file.read();
+
+            file.seek(40);
+            file.write(value ^ 0xFF);
+        }
+
+        Assert.assertNull(ClientSnapshot.open(directory));
+    }
+}
@@ -0,0 +1,102 @@
+package org.afpa.dal;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.store.ClientStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientStoreTest {
+    private final ClientStore store = new ClientStore();
+
+    @Test
+    public void putThenGet() {
+        Client client = new Client("1 rue de la mémoire", "Londre", "Hélène", 7, "Dubois");
+
+        client.setVersion(3);
+        store.put(client);
+
+        Client stored = store.get(7);
+
+        Assert.assertEquals("1 rue de la mémoire", stored.getAddress());
+        Assert.assertEquals("Londre", stored.getCity());
+        Assert.assertEquals("Hélène", stored.getFirstName());
+        Assert.assertEquals("Dubois", stored.getLastName());
+        Assert.assertEquals(3, stored.getVersion());
+        Assert.assertNull(store.get(8));
+
+        // Never saved, not stored
+        store.put(new Client("", "Londre", "Paul", 0, "Weller"));
+
+        Assert.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void nulls() {
+        store.put(new Client(null, null, null, 1, null));
+
+        Client stored = store.get(1);
+
+        Assert.assertNull(stored.getAddress());
+        Assert.assertNull(stored.getCity());
+        Assert.assertNull(stored.getFirstName());
+        Assert.assertNull(stored.getLastName());
+    }
+
+    @Test
+    public void dictionary() {
+        store.put(new Client("", "Londre", "Paul", 1, "Weller"));
+        store.put(new Client("", "Londre", "Chris", 2, "Squire"));
+        store.put(new Client("", "Londre", "Paul", 3, "Squire"));
+
+        Assert.assertEquals(1, store.distinctCities());
+        Assert.assertEquals(4, store.distinctNames());
+        // The same instance is shared by every client of the city
+        Assert.assertSame(store.get(1).getCity(), store.get(2).getCity());
+
+        store.put(new Client("", "Amiens", "Paul", 1, "Weller"));
+        store.remove(3);
+
+        Assert.assertEquals(2, store.distinctCities());
+        Assert.assertEquals(4, store.distinctNames());
+
+        store.remove(2);
+
+        Assert.assertEquals(1, store.distinctCities());
+        Assert.assertEquals(2, store.distinctNames());
+    }
+
+    @Test
+    public void removeThenReuse() {
+        for (int id = 1; id <= 1000; id++) {
+            store.put(new Client(id + " rue du stock", "Ville" + id % 10, "Prenom" + id, id, "Nom" + id));
+        }
+
+        for (int id = 1; id <= 1000; id += 2) {
+            Assert.assertTrue(store.remove(id));
+        }
+
+        Assert.assertFalse(store.remove(1));
+        Assert.assertEquals(500, store.size());
+
+        for (int id = 1001; id <= 1500; id++) {
+            store.put(new Client("", "Ville", "Prenom", id, "Nom"));
+        }
+
+        List<Client> clients = new ArrayList<>();
+
+        store.forEach(clients::add);
+
+        Assert.assertEquals(1000, clients.size());
+        Assert.assertEquals("Nom998", store.get(998).getLastName());
+        Assert.assertFalse(store.contains(999));
+        Assert.assertTrue(store.contains(1500));
+
+        store.clear();
+
+        Assert.assertEquals(0, store.size());
+        Assert.assertNull(store.get(998));
+    }
+}
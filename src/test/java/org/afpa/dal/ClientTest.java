@@ -0,0 +1,45 @@
+package org.afpa.dal;
+
+import javafx.beans.property.StringProperty;
+import org.afpa.dal.models.Client;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientTest {
+    @Test
+    public void lazyProperty() {
+        Client client = new Client("1 rue du modèle", "Amiens", "Hélène", 1, "Dubois");
+
+        StringProperty firstName = client.firstNameProperty();
+
+        Assert.assertEquals("Hélène", firstName.get());
+        Assert.assertSame(firstName, client.firstNameProperty());
+    }
+
+    @Test
+    public void setterNotifies() {
+        Client client = new Client("1 rue du modèle", "Amiens", "Hélène", 1, "Dubois");
+        List<String> changes = new ArrayList<>();
+
+        client.lastNameProperty().addListener((observable, oldValue, newValue) -> changes.add(newValue));
+        client.setLastName("Durand");
+
+        Assert.assertEquals("Durand", client.getLastName());
+        Assert.assertEquals(List.of("Durand"), changes);
+    }
+
+    @Test
+    public void copyInPlace() {
+        Client row = new Client("1 rue du modèle", "Amiens", "Hélène", 1, "Dubois");
+        StringProperty city = row.cityProperty();
+
+        row.copy(new Client("2 rue du modèle", "Lille", "Hélène", 1, "Dubois"));
+
+        Assert.assertEquals("Lille", city.get());
+        Assert.assertEquals("2 rue du modèle", row.getAddress());
+        Assert.assertEquals("Lille", new Client(row).getCity());
+    }
+}
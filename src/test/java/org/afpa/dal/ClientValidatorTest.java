@@ -0,0 +1,68 @@
+package org.afpa.dal;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.validation.ClientField;
+import org.afpa.dal.validation.ClientValidator;
+import org.afpa.dal.validation.FieldError;
+import org.afpa.dal.validation.Rule;
+import org.afpa.dal.validation.ValidationReport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientValidatorTest {
+    private final ClientValidator validator = ClientValidator.DEFAULT;
+
+    @Test
+    public void valid() {
+        Client client = new Client("65 rue des Poussins", "Amiens", "William", 0, "Dubois");
+
+        Assert.assertTrue(validator.isValid(client));
+        Assert.assertTrue(validator.validate(client).isEmpty());
+        // The address is optional
+        Assert.assertTrue(validator.isValid(new Client(null, "Amiens", "William", 0, "Dubois")));
+    }
+
+    @Test
+    public void fieldErrors() {
+        List<FieldError> errors = validator.validate(new Client("!", "", "William", 0, "?"));
+
+        Assert.assertEquals(3, errors.size());
+        Assert.assertEquals(ClientField.ADDRESS, errors.get(0).getField());
+        Assert.assertEquals(Rule.NOT_SYMBOL, errors.get(0).getRule());
+        Assert.assertEquals(ClientField.CITY, errors.get(1).getField());
+        Assert.assertEquals(Rule.REQUIRED, errors.get(1).getRule());
+        Assert.assertEquals("La ville est obligatoire.", errors.get(1).getMessage());
+        Assert.assertEquals(ClientField.LAST_NAME, errors.get(2).getField());
+    }
+
+    @Test
+    public void symbols() {
+        // Only a value which is a lone symbol is rejected, as the whole value must match
+        Assert.assertFalse(validator.isValid(new Client("", "Amiens", "-", 0, "Dubois")));
+        Assert.assertTrue(validator.isValid(new Client("", "Amiens", "Jean-Paul", 0, "Dubois")));
+        Assert.assertTrue(validator.isValid(new Client("", "Amiens", "A", 0, "Dubois")));
+        Assert.assertTrue(validator.isValid(new Client(" ", "Amiens", "_", 0, "Dubois")));
+    }
+
+    @Test
+    public void batch() {
+        List<Client> clients = new ArrayList<>();
+
+        // Large enough to be split over the fork-join pool
+        for (int i = 0; i < 10_000; i++) {
+            clients.add(new Client("", "Amiens", i % 7 == 0 ? "" : "Prenom" + i, 0, "Nom" + i));
+        }
+
+        ValidationReport report = validator.validateAll(clients);
+
+        Assert.assertEquals(10_000, report.size());
+        Assert.assertEquals(1429, report.getInvalidCount());
+        Assert.assertFalse(report.isValid(7));
+        Assert.assertTrue(report.isValid(8));
+        Assert.assertEquals(ClientField.FIRST_NAME, report.getErrors(7).get(0).getField());
+        Assert.assertTrue(report.getErrors(8).isEmpty());
+    }
+}
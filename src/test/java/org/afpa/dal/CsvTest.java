@@ -0,0 +1,52 @@
+package org.afpa.dal;
+
+import org.afpa.dal.csv.CsvReader;
+import org.afpa.dal.csv.CsvWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+public class CsvTest {
+    @Test
+    public void plain() throws IOException {
+        CsvReader reader = reader("cli_nom,cli_prenom\nWeller,Paul\n");
+
+        Assert.assertEquals(List.of("cli_nom", "cli_prenom"), reader.next());
+        Assert.assertEquals(List.of("Weller", "Paul"), reader.next());
+        Assert.assertNull(reader.next());
+    }
+
+    @Test
+    public void quoted() throws IOException {
+        CsvReader reader = reader("\"12, rue \"\"du\"\" port\",\"Saint-\nMalo\",\n");
+
+        Assert.assertEquals(List.of("12, rue \"du\" port", "Saint-\nMalo", ""), reader.next());
+        Assert.assertEquals(2, reader.getLine());
+    }
+
+    @Test(expected = IOException.class)
+    public void unterminated() throws IOException {
+        reader("\"Saint-Malo\n").next();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        StringWriter out = new StringWriter();
+
+        try (CsvWriter writer = new CsvWriter(new BufferedWriter(out))) {
+            writer.write("1", "Dubois", "Hélène", "12, rue \"du\" port", null);
+        }
+
+        Assert.assertEquals(List.of("1", "Dubois", "Hélène", "12, rue \"du\" port", ""), reader(out.toString()).next());
+    }
+
+    private static CsvReader reader(String text) {
+        return new CsvReader(new BufferedReader(new StringReader(text)));
+    }
+}
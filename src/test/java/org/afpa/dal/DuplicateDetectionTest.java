@@ -0,0 +1,108 @@
+package org.afpa.dal;
+
+import org.afpa.dal.duplicate.ClientSimilarity;
+import org.afpa.dal.duplicate.Duplicate;
+import org.afpa.dal.duplicate.DuplicateDetector;
+import org.afpa.dal.duplicate.DuplicateIndex;
+import org.afpa.dal.duplicate.DuplicateReport;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.search.ClientSearchIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DuplicateDetectionTest {
+    @Test
+    public void similarity() {
+        Assert.assertEquals("R163", ClientSimilarity.soundex("robert"));
+        Assert.assertEquals("R163", ClientSimilarity.soundex("rupert"));
+        Assert.assertEquals("A261", ClientSimilarity.soundex("ashcraft"));
+        Assert.assertEquals("helene dubois", ClientSimilarity.normalize(" Hélène-DUBOIS "));
+        Assert.assertEquals(0.961, ClientSimilarity.jaroWinkler("martha", "marhta"), 0.001);
+
+        Client client = new Client("3 rue des Lilas", "Amiens", "Hélène", 1, "Dubois");
+
+        Assert.assertTrue(ClientSimilarity.score(client, new Client("3 rue des lilas", "AMIENS", "Helene", 2, "Duboit")) > 0.95);
+        Assert.assertTrue(ClientSimilarity.score(client, new Client("12 avenue Foch", "Amiens", "Marc", 3, "Dubois")) < 0.9);
+    }
+
+    @Test
+    public void incremental() {
+        ClientSearchIndex clients = new ClientSearchIndex();
+        DuplicateIndex index = new DuplicateIndex(clients::get);
+        Client known = new Client("3 rue des Lilas", "Amiens", "Hélène", 1, "Dubois");
+
+        clients.add(known);
+        index.add(known);
+
+        // A typo in the last name and the city still shares the phonetic key
+        List<Duplicate> duplicates = index.check(new Client("3 rue des Lilas", "Amien", "Helene", 0, "Dubuis"));
+
+        Assert.assertEquals(1, duplicates.size());
+        Assert.assertEquals(1, duplicates.get(0).getOther().getId());
+        Assert.assertTrue(index.check(new Client("", "Londre", "Paul", 0, "Weller")).isEmpty());
+        // A client is not its own duplicate
+        Assert.assertTrue(index.check(known).isEmpty());
+
+        index.remove(known);
+
+        Assert.assertTrue(index.check(new Client("3 rue des Lilas", "Amiens", "Hélène", 0, "Dubois")).isEmpty());
+    }
+
+    @Test
+    public void batch() {
+        List<Client> clients = new ArrayList<>();
+
+        for (int i = 1; i <= 10_000; i++) {
+            clients.add(new Client(i + " rue du lot", "Ville" + i % 100, name(i * 7), i, name(i)));
+        }
+
+        // Typed twice, with a typo in the first name then in the city
+        clients.add(new Client("42 rue du lot", "Ville42", name(42 * 7) + "e", 10_001, name(42)));
+        clients.add(new Client("7 rue du lot", "Vile7", name(7 * 7), 10_002, name(7)));
+
+        DuplicateReport report = new DuplicateDetector().findAll(clients.stream());
+
+        Assert.assertEquals(10_002, report.getClients());
+        Assert.assertEquals(0, report.getOversizedBlocks());
+        // Far fewer than the 50 million pairs of the whole table
+        Assert.assertTrue(report.getComparisons() < 100_000);
+
+        // The generated names look alike, the clients typed twice score the best
+        for (Duplicate duplicate : report.getDuplicates().subList(0, 2)) {
+            Assert.assertTrue(duplicate.getClient().getId() < duplicate.getOther().getId());
+            Assert.assertTrue(duplicate.getOther().getId() > 10_000);
+            Assert.assertTrue(duplicate.getScore() > 0.95);
+        }
+    }
+
+    /**
+     * @return A name made of syllables, distinct for each number
+     */
+    private static String name(int number) {
+        String[] syllables = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "po", "ru", "sa", "te", "vi", "ko", "mu", "ze"};
+        StringBuilder name = new StringBuilder();
+
+        for (int n = number; n > 0; n /= syllables.length) {
+            name.append(syllables[n % syllables.length]);
+        }
+
+        return name.toString();
+    }
+
+    @Test
+    public void oversized() {
+        List<Client> clients = new ArrayList<>();
+
+        for (int i = 1; i <= 20; i++) {
+            clients.add(new Client("", "Paris", "Jean", i, "Martin"));
+        }
+
+        DuplicateReport report = new DuplicateDetector(0.9, 10).findAll(clients.stream());
+
+        Assert.assertTrue(report.getDuplicates().isEmpty());
+        Assert.assertEquals(2, report.getOversizedBlocks());
+    }
+}
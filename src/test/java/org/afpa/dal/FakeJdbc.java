@@ -0,0 +1,127 @@
+package org.afpa.dal;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Fake JDBC objects for the tests which must run without a database
+ * <p>
+ * Each fake is a proxy of the JDBC interface whose calls are answered by a {@link Handler}, but {@code equals} and
+ * {@code hashCode} which compare the proxies by identity, so fakes can be held in maps and sets.
+ */
+final class FakeJdbc {
+    private FakeJdbc() { }
+
+    /**
+     * Returns a fake of a JDBC interface
+     *
+     * @param type    The interface
+     * @param handler Answers the calls
+     * @param <T>     The interface
+     * @return The fake
+     */
+    static <T> T fake(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return handler.handle(method.getName(), args == null ? new Object[0] : args);
+            }
+        }));
+    }
+
+    /**
+     * @param connections Lends the connections
+     * @return A data source which only lends connections
+     */
+    static DataSource dataSource(Connections connections) {
+        return fake(DataSource.class, (method, args) -> {
+            if (!method.equals("getConnection")) throw new UnsupportedOperationException(method);
+
+            return connections.get();
+        });
+    }
+
+    /**
+     * @return A statement whose queries return no row, its other calls do nothing
+     */
+    static PreparedStatement emptyStatement() {
+        ResultSet empty = fake(ResultSet.class, (method, args) -> method.equals("next") ? false : null);
+
+        return fake(PreparedStatement.class, (method, args) -> method.startsWith("executeQuery") ? empty : null);
+    }
+
+    /**
+     * @param values Receives the values bound to the statement, in the order of their parameters
+     * @return A statement which only binds values
+     */
+    static PreparedStatement binding(List<Object> values) {
+        return fake(PreparedStatement.class, (method, args) -> {
+            if (!method.startsWith("set")) throw new UnsupportedOperationException(method);
+
+            if (!args[0].equals(values.size() + 1)) throw new IllegalStateException("Parameter " + args[0] + " bound out of order");
+
+            values.add(args[1]);
+
+            return null;
+        });
+    }
+
+    /**
+     * @param values The values of the columns
+     * @return A result set positioned on a single row holding the values
+     */
+    static ResultSet row(List<Object> values) {
+        return fake(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "getInt":
+                case "getString":
+                    return values.get((Integer) args[0] - 1);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+    }
+
+    /**
+     * @param labels The labels of the columns
+     * @return The description of a result set holding the columns
+     */
+    static ResultSetMetaData metaData(List<String> labels) {
+        return fake(ResultSetMetaData.class, (method, args) -> {
+            switch (method) {
+                case "getColumnCount":
+                    return labels.size();
+                case "getColumnLabel":
+                    return labels.get((Integer) args[0] - 1);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+    }
+
+    /**
+     * Answers the calls to a fake
+     */
+    @FunctionalInterface
+    interface Handler {
+        Object handle(String method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * Lends the connections of a fake data source
+     */
+    @FunctionalInterface
+    interface Connections {
+        Connection get() throws SQLException;
+    }
+}
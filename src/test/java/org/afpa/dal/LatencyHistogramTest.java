@@ -0,0 +1,39 @@
+package org.afpa.dal;
+
+import org.afpa.dal.metrics.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void empty() {
+        Assert.assertEquals(0, histogram.count());
+        Assert.assertEquals(0, histogram.percentile(0.99));
+    }
+
+    @Test
+    public void percentiles() {
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assert.assertEquals(1000, histogram.count());
+        Assert.assertEquals(1_000_000, histogram.max());
+
+        // Buckets are accurate to about 3%
+        Assert.assertEquals(500_000, histogram.percentile(0.5), 500_000 * 0.04);
+        Assert.assertEquals(990_000, histogram.percentile(0.99), 990_000 * 0.04);
+        Assert.assertEquals(1_000_000, histogram.percentile(1));
+    }
+
+    @Test
+    public void reset() {
+        histogram.record(42);
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.count());
+        Assert.assertEquals(0, histogram.max());
+    }
+}
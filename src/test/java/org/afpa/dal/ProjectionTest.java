@@ -0,0 +1,51 @@
+package org.afpa.dal;
+
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.Projection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+public class ProjectionTest {
+    private final Projection<Client> projection = Projection.of(Client::new)
+            .column("cli_id", (client, rs, i) -> client.setId(rs.getInt(i)))
+            .column("cli_nom", (client, rs, i) -> client.setLastName(rs.getString(i)));
+
+    @Test
+    public void columns() {
+        Assert.assertEquals("cli_id, cli_nom", projection.columns());
+        Assert.assertEquals("c.cli_id, c.cli_nom", projection.columns("c"));
+        Assert.assertEquals(2, projection.size());
+    }
+
+    @Test
+    public void byIndex() throws SQLException {
+        Client client = projection.mapper().map(FakeJdbc.row(List.of(7, "Weller")));
+
+        Assert.assertEquals(7, client.getId());
+        Assert.assertEquals("Weller", client.getLastName());
+    }
+
+    @Test
+    public void afterOtherColumns() throws SQLException {
+        Client client = projection.mapper(1).map(FakeJdbc.row(List.of("ignored", 7, "Weller")));
+
+        Assert.assertEquals(7, client.getId());
+        Assert.assertEquals("Weller", client.getLastName());
+    }
+
+    @Test
+    public void byName() throws SQLException {
+        Client client = projection.mapper(FakeJdbc.metaData(List.of("CLI_NOM", "cli_ville", "cli_id"))).map(FakeJdbc.row(List.of("Weller", "Londre", 7)));
+
+        Assert.assertEquals(7, client.getId());
+        Assert.assertEquals("Weller", client.getLastName());
+    }
+
+    @Test(expected = SQLException.class)
+    public void missingColumn() throws SQLException {
+        projection.mapper(FakeJdbc.metaData(List.of("cli_id")));
+    }
+}
@@ -0,0 +1,185 @@
+package org.afpa.dal;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.dao.ReadConsistency;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.ReadRouter;
+import org.afpa.dal.shared.UnitOfWork;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The routing is checked against fake pools, and against two local databases when the port of the second one is given
+ * with {@code -PreplicaPort=3307}: a MariaDB instance loaded with hotel.sql stands in for the replica, replicated from
+ * the primary or not.
+ */
+public class ReadRoutingTest {
+    private static final String REPLICA_PORT = System.getProperty("org.afpa.test.replicaPort");
+
+    // The names of the pools which lent a connection, in order
+    private final List<String> borrowed = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void spreadsTheReads() throws SQLException {
+        ReadRouter router = new ReadRouter(List.of(pool("replica1", false), pool("replica2", false)), pool("primary", false), 5000);
+
+        for (int i = 0; i < 4; i++) {
+            router.getConnection().close();
+        }
+
+        Assert.assertEquals(List.of("replica1", "replica2", "replica1", "replica2"), borrowed);
+    }
+
+    @Test
+    public void failsOver() throws SQLException {
+        ReadRouter router = new ReadRouter(List.of(pool("replica1", true), pool("replica2", false)), pool("primary", false), 5000);
+
+        for (int i = 0; i < 3; i++) {
+            router.getConnection().close();
+        }
+
+        // The failed replica is only tried once, then skipped
+        Assert.assertEquals(List.of("replica1!", "replica2", "replica2", "replica2"), borrowed);
+        Assert.assertTrue(router.isSkipped(0));
+        Assert.assertFalse(router.isSkipped(1));
+    }
+
+    @Test
+    public void fallsBackToThePrimary() throws SQLException {
+        ReadRouter router = new ReadRouter(List.of(pool("replica1", true), pool("replica2", true)), pool("primary", false), 5000);
+
+        router.getConnection().close();
+        router.getConnection().close();
+
+        Assert.assertEquals(List.of("replica1!", "replica2!", "primary", "primary"), borrowed);
+    }
+
+    @Test
+    public void retriesAFailedReplica() throws SQLException {
+        boolean[] down = {true};
+        DataSource replica = pool("replica1", down);
+        ReadRouter router = new ReadRouter(List.of(replica), pool("primary", false), 0);
+
+        router.getConnection().close();
+        down[0] = false;
+        router.getConnection().close();
+
+        Assert.assertEquals(List.of("replica1!", "primary", "replica1"), borrowed);
+    }
+
+    @Test
+    public void routesTheReadsOfTheDAO() throws SQLException {
+        UnitOfWork primary = new UnitOfWork(pool("primary", false));
+        ClientDAO clientDAO = new ClientDAO(primary, new UnitOfWork(pool("replica", false)));
+
+        clientDAO.find(1);
+        clientDAO.find(1, ReadConsistency.READ_YOUR_WRITES);
+        clientDAO.list();
+        clientDAO.list(ReadConsistency.READ_YOUR_WRITES);
+        clientDAO.getLastClient();
+        clientDAO.getLastClient(ReadConsistency.READ_YOUR_WRITES);
+
+        // Joins the transaction of the primary, which would see its own uncommitted writes
+        primary.run(connection -> clientDAO.find(1));
+
+        Assert.assertEquals(List.of("replica", "primary", "replica", "primary", "replica", "primary", "primary"), borrowed);
+    }
+
+    @Test
+    public void twoLocalDatabases() throws SQLException {
+        Assume.assumeNotNull(REPLICA_PORT);
+
+        try (HikariDataSource primaryPool = new HikariDataSource(config(null));
+             HikariDataSource replicaPool = new HikariDataSource(config(REPLICA_PORT));
+             HikariDataSource downPool = new HikariDataSource(config("1"))) {
+            // The first replica can't be reached, its reads fail over to the second one
+            ReadRouter router = new ReadRouter(List.of(downPool, replicaPool), primaryPool, 60_000);
+            UnitOfWork primary = new UnitOfWork(primaryPool);
+            UnitOfWork replicas = new UnitOfWork(router);
+            ClientDAO clientDAO = new ClientDAO(primary, replicas);
+            Client client = new Client("1 rue du Test", "Amiens", "Réplique", 0, "Routage");
+
+            Assert.assertEquals(Integer.parseInt(REPLICA_PORT), (int) replicas.call(ReadRoutingTest::port));
+            Assert.assertEquals(Integer.parseInt(REPLICA_PORT), (int) replicas.call(ReadRoutingTest::port));
+            Assert.assertNotEquals(Integer.parseInt(REPLICA_PORT), (int) primary.call(ReadRoutingTest::port));
+
+            clientDAO.insert(client);
+
+            try {
+                Assert.assertEquals("Réplique", clientDAO.find(client.getId(), ReadConsistency.READ_YOUR_WRITES).getFirstName());
+
+                // The replica may or may not have the client yet, the read must not fail either way
+                Assert.assertNotNull(clientDAO.find(client.getId()));
+            } finally {
+                clientDAO.delete(client.getId());
+            }
+        }
+    }
+
+    /**
+     * @param port The port of the database, null for the one of the properties
+     * @return The configuration of the properties, on another port
+     */
+    private static HikariConfig config(String port) {
+        HikariConfig config = new HikariConfig("src/main/resources/org/afpa/datasource.properties");
+
+        config.setConnectionTimeout(1000);
+        config.setInitializationFailTimeout(-1);
+
+        if (port != null) config.addDataSourceProperty("portNumber", port);
+
+        return config;
+    }
+
+    private static int port(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT @@port")) {
+            rs.next();
+
+            return rs.getInt(1);
+        }
+    }
+
+    private DataSource pool(String name, boolean down) {
+        return pool(name, new boolean[]{down});
+    }
+
+    /**
+     * @return A pool which records the connections it lends, or fails while it is down, its queries find nothing
+     */
+    private DataSource pool(String name, boolean[] down) {
+        return FakeJdbc.dataSource(() -> {
+            if (down[0]) {
+                borrowed.add(name + "!");
+
+                throw new SQLException(name + " is down");
+            }
+
+            borrowed.add(name);
+
+            return FakeJdbc.fake(Connection.class, (method, args) -> {
+                switch (method) {
+                    case "prepareStatement":
+                    case "createStatement":
+                        return FakeJdbc.emptyStatement();
+                    case "getAutoCommit":
+                        return false;
+                    default:
+                        return null;
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package org.afpa.dal;
+
+import org.afpa.dal.shared.UnitOfWork;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UnitOfWorkTest {
+    // Calls received by the fake connections, such as "1.commit"
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    private final UnitOfWork unitOfWork = new UnitOfWork(fakeDataSource());
+
+    @Test
+    public void commits() throws SQLException {
+        Assert.assertEquals("ok", unitOfWork.call(connection -> "ok"));
+        Assert.assertEquals(List.of("1.commit", "1.close"), calls);
+        Assert.assertFalse(unitOfWork.inTransaction());
+    }
+
+    @Test
+    public void rollsBack() {
+        try {
+            unitOfWork.run(connection -> {
+                throw new SQLException("boom");
+            });
+
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals("boom", e.getMessage());
+        }
+
+        Assert.assertEquals(List.of("1.rollback", "1.close"), calls);
+    }
+
+    @Test
+    public void nestedJoins() throws SQLException {
+        unitOfWork.run(outer -> unitOfWork.run(inner -> Assert.assertSame(outer, inner)));
+
+        // A single connection is borrowed and committed once
+        Assert.assertEquals(List.of("1.commit", "1.close"), calls);
+    }
+
+    @Test
+    public void swallowedFailureRollsBack() {
+        try {
+            unitOfWork.run(connection -> {
+                try {
+                    unitOfWork.run(inner -> {
+                        throw new SQLException("boom");
+                    });
+                } catch (SQLException e) {
+                    // Like the DAOs which print the exception and go on
+                }
+            });
+
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals(List.of("1.rollback", "1.close"), calls);
+        }
+    }
+
+    @Test
+    public void threadsBorrowTheirOwnConnection() throws Exception {
+        List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    unitOfWork.run(connections::add);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(8, connections.stream().distinct().count());
+    }
+
+    /**
+     * @return A data source lending numbered connections which record their commits, rollbacks and closes
+     */
+    private DataSource fakeDataSource() {
+        AtomicInteger borrowed = new AtomicInteger();
+
+        return FakeJdbc.dataSource(() -> {
+            int number = borrowed.incrementAndGet();
+
+            return FakeJdbc.fake(Connection.class, (method, args) -> {
+                switch (method) {
+                    case "getAutoCommit":
+                        return false;
+                    case "commit":
+                    case "rollback":
+                    case "close":
+                        calls.add(number + "." + method);
+
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package org.afpa.dal;
+
+import org.afpa.dal.dao.ClientDAO;
+import org.afpa.dal.dao.ConflictException;
+import org.afpa.dal.dao.WriteBehindClientDAO;
+import org.afpa.dal.models.Client;
+import org.afpa.dal.shared.DataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+public class WriteBehindClientDAOTest {
+    private final ClientDAO clientDAO = new ClientDAO();
+
+    @Test
+    public void coalescesThenFlushesOnClose() throws SQLException {
+        Client client = new Client("1 rue du tampon", "Tamponville", "Avant", 0, "Tampon");
+
+        clientDAO.insert(client);
+
+        // The interval is long enough for the close to be the only flush
+        WriteBehindClientDAO writeBehind = new WriteBehindClientDAO(clientDAO, DataSource.getUnitOfWork(), 100,
+                TimeUnit.MINUTES.toMillis(10), 100, conflict -> Assert.fail(conflict.getMessage()));
+
+        for (int i = 0; i < 10; i++) {
+            client.setFirstName("Modifié " + i);
+            writeBehind.update(client);
+        }
+
+        // Ten updates of the same client are written once, the finds already see them
+        Assert.assertEquals(1, writeBehind.getQueueDepth());
+        Assert.assertEquals("Modifié 9", writeBehind.find(client.getId()).getFirstName());
+        Assert.assertEquals("Avant", clientDAO.find(client.getId()).getFirstName());
+
+        writeBehind.delete(client.getId());
+        writeBehind.close();
+
+        Assert.assertEquals(0, writeBehind.getQueueDepth());
+        Assert.assertEquals(0, clientDAO.find(client.getId()).getId());
+    }
+
+    @Test(expected = ConflictException.class)
+    public void rejectsUpdatesOfDeletedClients() throws SQLException {
+        Client client = new Client("1 rue du tampon", "Tamponville", "Avant", 0, "Tampon");
+
+        clientDAO.insert(client);
+
+        WriteBehindClientDAO writeBehind = new WriteBehindClientDAO(clientDAO, DataSource.getUnitOfWork(), 100,
+                TimeUnit.MINUTES.toMillis(10), 100, conflict -> Assert.fail(conflict.getMessage()));
+
+        try {
+            writeBehind.delete(client.getId());
+            writeBehind.update(client);
+        } finally {
+            writeBehind.close();
+        }
+    }
+
+    @Test(expected = SQLException.class)
+    public void rejectsWritesOnceClosed() throws SQLException {
+        WriteBehindClientDAO writeBehind = new WriteBehindClientDAO(clientDAO, DataSource.getUnitOfWork(), 1, 1000, 1, conflict -> { });
+
+        writeBehind.close();
+        writeBehind.insert(new Client());
+    }
+}